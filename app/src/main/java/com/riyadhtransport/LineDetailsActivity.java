@@ -7,6 +7,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.RequestScheduler;
 import java.util.HashMap;
 import java.util.Map;
 import retrofit2.Call;
@@ -61,7 +62,7 @@ public class LineDetailsActivity extends AppCompatActivity {
             call = ApiClient.getApiService().viewBus(body);
         }
         
-        call.enqueue(new Callback<JsonObject>() {
+        RequestScheduler.schedule(call, RequestScheduler.Priority.INTERACTIVE).enqueue(new Callback<JsonObject>() {
             @Override
             public void onResponse(Call<JsonObject> call, Response<JsonObject> response) {
                 if (response.isSuccessful() && response.body() != null) {
@@ -17,6 +17,7 @@ import com.google.gson.JsonObject;
 import com.riyadhtransport.adapters.StationListAdapter;
 import com.riyadhtransport.adapters.AlertAdapter;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.RequestScheduler;
 import com.riyadhtransport.models.LineAlert;
 import com.riyadhtransport.utils.LineColorHelper;
 import com.riyadhtransport.utils.AlertsManager;
@@ -145,7 +146,7 @@ public class LineStationsActivity extends AppCompatActivity {
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("line", lineId);
         
-        ApiClient.getApiService().viewMetro(requestBody).enqueue(new Callback<JsonObject>() {
+        RequestScheduler.schedule(ApiClient.getApiService().viewMetro(requestBody), RequestScheduler.Priority.INTERACTIVE).enqueue(new Callback<JsonObject>() {
             @Override
             public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
                 progressBar.setVisibility(View.GONE);
@@ -180,7 +181,7 @@ public class LineStationsActivity extends AppCompatActivity {
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("line", lineId);
         
-        ApiClient.getApiService().viewBus(requestBody).enqueue(new Callback<JsonObject>() {
+        RequestScheduler.schedule(ApiClient.getApiService().viewBus(requestBody), RequestScheduler.Priority.INTERACTIVE).enqueue(new Callback<JsonObject>() {
             @Override
             public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
                 progressBar.setVisibility(View.GONE);
@@ -222,7 +223,8 @@ public class LineStationsActivity extends AppCompatActivity {
         Map<String, String> requestBody = new HashMap<>();
         requestBody.put("station_name", stationName);
         
-        ApiClient.getApiService().searchStation(requestBody).enqueue(new Callback<Map<String, Object>>() {
+        RequestScheduler.schedule(ApiClient.getApiService().searchStation(requestBody), RequestScheduler.Priority.INTERACTIVE)
+                .enqueue(new Callback<Map<String, Object>>() {
             @Override
             public void onResponse(@NonNull Call<Map<String, Object>> call,
                                    @NonNull Response<Map<String, Object>> response) {
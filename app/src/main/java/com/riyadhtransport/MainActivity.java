@@ -4,15 +4,18 @@ import android.Manifest;
 import android.view.View;
 import android.content.res.Configuration;
 import android.content.Context;
+import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
+import android.widget.FrameLayout;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
 import androidx.viewpager2.adapter.FragmentStateAdapter;
 import androidx.viewpager2.widget.ViewPager2;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
@@ -22,7 +25,18 @@ import com.google.android.material.tabs.TabLayoutMediator;
 import com.riyadhtransport.fragments.LinesFragment;
 import com.riyadhtransport.fragments.RouteFragment;
 import com.riyadhtransport.fragments.StationsFragment;
+import com.riyadhtransport.models.Station;
+import com.riyadhtransport.utils.DebugOverlay;
+import com.riyadhtransport.utils.IdlePrefetcher;
 import com.riyadhtransport.utils.LocationHelper;
+import com.riyadhtransport.utils.MapTileCache;
+import com.riyadhtransport.utils.OfflineTileArchive;
+import com.riyadhtransport.utils.RouteOverlayLayer;
+import com.riyadhtransport.utils.StartupTrace;
+import com.riyadhtransport.utils.StationClusterOverlay;
+import com.riyadhtransport.utils.StationRepository;
+import com.riyadhtransport.utils.StationSearchIndex;
+import org.osmdroid.tileprovider.modules.IArchiveFile;
 import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
 import org.osmdroid.tileprovider.tilesource.OnlineTileSourceBase;
 import org.osmdroid.tileprovider.tilesource.XYTileSource;
@@ -30,6 +44,7 @@ import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
 import org.osmdroid.views.overlay.mylocation.GpsMyLocationProvider;
 import org.osmdroid.views.overlay.mylocation.MyLocationNewOverlay;
+import java.util.List;
 import java.util.Locale;
 import androidx.coordinatorlayout.widget.CoordinatorLayout;
 import androidx.core.widget.NestedScrollView;
@@ -37,7 +52,12 @@ import com.google.android.material.bottomsheet.BottomSheetBehavior;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final int TAB_COUNT = 3;
+
     private MapView mapView;
+    // Opened off the main thread before the map is created; null without an archive
+    private volatile IArchiveFile offlineTiles;
+    private RouteOverlayLayer routeLayer;
     private MyLocationNewOverlay myLocationOverlay;
     private TabLayout tabLayout;
     private ViewPager2 viewPager;
@@ -56,18 +76,20 @@ public class MainActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         
+        // Stage 1: what the first frame needs. The map, station snapshot, alerts and
+        // location are loaded once it has been drawn or on background threads.
+        StartupTrace.begin("main.locale");
         // Load and apply saved language preference before anything else
         loadSavedLanguage();
         
         // Initialize ApiClient with context AFTER loading language preference
         // This ensures the Arabic locale is properly detected
         com.riyadhtransport.api.ApiClient.init(this);
+        // Connect to the API hosts while the first screen is being built
+        com.riyadhtransport.api.ConnectionWarmer.warm();
+        StartupTrace.end();
 
-        // Configure OSMDroid
-        Context ctx = getApplicationContext();
-        org.osmdroid.config.Configuration.getInstance().load(ctx, PreferenceManager.getDefaultSharedPreferences(ctx));
-        org.osmdroid.config.Configuration.getInstance().setUserAgentValue(getPackageName());
-
+        StartupTrace.begin("main.content_view");
         setContentView(R.layout.activity_main);
 
         // Initialize location helper
@@ -78,7 +100,6 @@ public class MainActivity extends AppCompatActivity {
         viewPager = findViewById(R.id.view_page_container);
         fabSettings = findViewById(R.id.fab_settings);
         fabFavorites = findViewById(R.id.fab_favorites);
-        mapView = findViewById(R.id.map);
         NestedScrollView bottomSheet = findViewById(R.id.bottom_sheet);
 
         // Setup bottom sheet behavior to allow full expansion
@@ -93,15 +114,17 @@ public class MainActivity extends AppCompatActivity {
         // The offset is the distance from top when fully expanded
         // Setting to a small value (like the pull tab height ~20dp) allows maximum expansion
         bottomSheetBehavior.setExpandedOffset(20);
-
-        // Setup map
-        setupMap();
+        StartupTrace.end();
 
         // Setup ViewPager with tabs
+        StartupTrace.begin("main.view_pager");
         setupViewPager();
+        StartupTrace.end();
 
         // Setup FAB for settings
         fabSettings.setOnClickListener(v -> showSettingsDialog());
+        // Hidden: long-press settings to toggle the performance metrics overlay
+        DebugOverlay.install(this, fabSettings);
         
         // Setup FAB for favorites
         fabFavorites.setOnClickListener(v -> openFavorites());
@@ -113,6 +136,47 @@ public class MainActivity extends AppCompatActivity {
         
         // Handle intent extras (from favorites)
         handleIntent(getIntent());
+
+        // Stage 2: the map, once OSMDroid's configuration has been read off the main thread
+        View content = findViewById(android.R.id.content);
+        StartupTrace.afterFirstFrame(content, () -> {
+            StartupTrace.milestone("first_frame");
+            // Tabs load lazily; warm the one the user is most likely to open next
+            IdlePrefetcher.runWhenIdle(() -> {
+                if (!isFinishing()) {
+                    int current = viewPager.getCurrentItem();
+                    prefetchTab(IdlePrefetcher.likelyNextTab(this, current, TAB_COUNT));
+                }
+            });
+        });
+        loadMapConfiguration();
+    }
+    
+    /**
+     * OSMDroid reads its preferences and resolves its cache directories on load, so do
+     * that in the background and create the map when it is done
+     */
+    private void loadMapConfiguration() {
+        Context ctx = getApplicationContext();
+        new Thread(() -> {
+            StartupTrace.begin("map.configuration");
+            org.osmdroid.config.Configuration.getInstance().load(ctx, PreferenceManager.getDefaultSharedPreferences(ctx));
+            org.osmdroid.config.Configuration.getInstance().setUserAgentValue(getPackageName());
+            MapTileCache.configure(ctx);
+            StartupTrace.end();
+            StartupTrace.begin("map.offline_archive");
+            offlineTiles = OfflineTileArchive.open(ctx, getMapStyle(), getCurrentLanguage());
+            StartupTrace.end();
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                StartupTrace.begin("map.setup");
+                setupMap();
+                StartupTrace.end();
+                StartupTrace.milestone("map_ready");
+            });
+        }, "map-config").start();
     }
     
     @Override
@@ -146,20 +210,24 @@ public class MainActivity extends AppCompatActivity {
         startActivity(intent);
     }
 
-    private void setupMap() {
-        // Get current language
-        String language = getCurrentLanguage();
-        
+    private String getMapStyle() {
         // Check if dark mode is enabled
         int nightModeFlags = getResources().getConfiguration().uiMode & android.content.res.Configuration.UI_MODE_NIGHT_MASK;
         boolean isDarkMode = nightModeFlags == android.content.res.Configuration.UI_MODE_NIGHT_YES;
         
         // Use dark map style if dark mode is enabled
-        String mapStyle = isDarkMode ? "streets-v2-dark" : "streets-v2";
+        return isDarkMode ? "streets-v2-dark" : "streets-v2";
+    }
+
+    private void setupMap() {
+        // Get current language
+        String language = getCurrentLanguage();
+        String mapStyle = getMapStyle();
 
         // Create MapTiler tile source with language and dark mode support
+        // Named per style and language, so cached tiles never show the wrong labels or theme
         OnlineTileSourceBase mapTilerSource = new XYTileSource(
-                "MapTiler",
+                MapTileCache.tileSourceName(mapStyle, language),
                 0, 20, 256, ".png",
                 new String[]{
                     "https://api.maptiler.com/maps/" + mapStyle + "/256/"
@@ -181,6 +249,16 @@ public class MainActivity extends AppCompatActivity {
             }
         };
 
+        // Created here rather than inflated so it never starts with the default tile source
+        // The offline archive, if any, answers first; the cache and MapTiler fill in the rest
+        mapView = new MapView(this, OfflineTileArchive.createTileProvider(this, mapTilerSource, offlineTiles));
+        FrameLayout mapContainer = findViewById(R.id.map_container);
+        mapContainer.addView(mapView, new FrameLayout.LayoutParams(
+                FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
+        if (getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.RESUMED)) {
+            mapView.onResume();
+        }
+
         mapView.setTileSource(mapTilerSource);
         mapView.setMultiTouchControls(true);
         mapView.getController().setZoom(11.0);
@@ -194,6 +272,27 @@ public class MainActivity extends AppCompatActivity {
         }
         // Add map tap listener
         setupMapTapListener();
+        // Added after the tap listener so station taps are handled first
+        setupStationOverlay();
+    }
+
+    private void setupStationOverlay() {
+        StationClusterOverlay stationOverlay = new StationClusterOverlay(this, station ->
+                showMapTapDialog(station.getDisplayName(), station.getLatitude(), station.getLongitude()));
+        mapView.getOverlays().add(stationOverlay);
+        StationRepository.getStations(this, new StationRepository.StationsCallback() {
+            @Override
+            public void onStationsLoaded(List<Station> stations, StationSearchIndex searchIndex) {
+                if (mapView != null) {
+                    stationOverlay.setStations(stations, mapView);
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                // Already reported by the route tab; the map just stays without stations
+            }
+        });
     }
 
     private void setupMapTapListener() {
@@ -209,6 +308,10 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void showMapTapDialog(double latitude, double longitude) {
+        showMapTapDialog(getString(R.string.map_tap_title), latitude, longitude);
+    }
+
+    private void showMapTapDialog(String title, double latitude, double longitude) {
         String[] options = {
                 getString(R.string.set_as_origin),
                 getString(R.string.set_as_destination),
@@ -216,7 +319,7 @@ public class MainActivity extends AppCompatActivity {
         };
 
         new MaterialAlertDialogBuilder(this)
-                .setTitle(R.string.map_tap_title)
+                .setTitle(title)
                 .setItems(options, (dialog, which) -> {
                     switch (which) {
                         case 0: // Set as origin
@@ -310,6 +413,30 @@ public class MainActivity extends AppCompatActivity {
                     break;
             }
         }).attach();
+
+        viewPager.registerOnPageChangeCallback(new ViewPager2.OnPageChangeCallback() {
+            @Override
+            public void onPageSelected(int position) {
+                IdlePrefetcher.recordTabOpened(MainActivity.this, position);
+            }
+        });
+    }
+
+    /**
+     * Start loading a tab's data before it is shown; the tab picks the results up when opened
+     */
+    private void prefetchTab(int position) {
+        switch (position) {
+            case 0:
+                RouteFragment.prefetch(this);
+                break;
+            case 1:
+                StationsFragment.prefetch(this);
+                break;
+            case 2:
+                LinesFragment.prefetch(this);
+                break;
+        }
     }
 
     private void getCurrentLocation() {
@@ -343,7 +470,9 @@ public class MainActivity extends AppCompatActivity {
         android.widget.RadioGroup languageGroup = dialogView.findViewById(R.id.language_radio_group);
         android.widget.RadioButton englishRadio = dialogView.findViewById(R.id.radio_english);
         android.widget.RadioButton arabicRadio = dialogView.findViewById(R.id.radio_arabic);
+        android.widget.RadioGroup mapStorageGroup = dialogView.findViewById(R.id.map_storage_radio_group);
         android.widget.Button clearCacheButton = dialogView.findViewById(R.id.clear_cache_button);
+        android.widget.Button exportTraceButton = dialogView.findViewById(R.id.export_trace_button);
 
         // Set current language selection
         String currentLang = getCurrentLanguage();
@@ -361,11 +490,34 @@ public class MainActivity extends AppCompatActivity {
             }
         });
         
+        // Map tile storage; the new budget applies when the map is next created
+        int budgetMb = MapTileCache.getBudgetMb(this);
+        mapStorageGroup.check(budgetMb <= MapTileCache.SMALL_BUDGET_MB ? R.id.radio_map_storage_small
+                : budgetMb <= MapTileCache.DEFAULT_BUDGET_MB ? R.id.radio_map_storage_default
+                : R.id.radio_map_storage_large);
+        mapStorageGroup.setOnCheckedChangeListener((group, checkedId) -> MapTileCache.setBudgetMb(this,
+                checkedId == R.id.radio_map_storage_small ? MapTileCache.SMALL_BUDGET_MB
+                        : checkedId == R.id.radio_map_storage_large ? MapTileCache.LARGE_BUDGET_MB
+                        : MapTileCache.DEFAULT_BUDGET_MB));
+        
         // Handle clear cache button
         clearCacheButton.setOnClickListener(v -> {
             com.riyadhtransport.fragments.LinesFragment.clearCache(this);
+            MapTileCache.clear();
             Toast.makeText(this, R.string.cache_cleared, Toast.LENGTH_SHORT).show();
         });
+        
+        // Share the recorded network calls as JSON (debug builds only)
+        if (BuildConfig.DEBUG) {
+            exportTraceButton.setVisibility(View.VISIBLE);
+            exportTraceButton.setOnClickListener(v -> {
+                Intent share = new Intent(Intent.ACTION_SEND);
+                share.setType("application/json");
+                share.putExtra(Intent.EXTRA_SUBJECT, "network-trace.json");
+                share.putExtra(Intent.EXTRA_TEXT, com.riyadhtransport.api.NetworkTracer.exportJson());
+                startActivity(Intent.createChooser(share, getString(R.string.export_network_trace)));
+            });
+        }
 
         builder.setPositiveButton(R.string.ok, null);
         builder.show();
@@ -439,7 +591,7 @@ public class MainActivity extends AppCompatActivity {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                 if (myLocationOverlay != null) {
                     myLocationOverlay.enableMyLocation();
-                } else {
+                } else if (mapView != null) {
                     myLocationOverlay = new MyLocationNewOverlay(new GpsMyLocationProvider(this), mapView);
                     myLocationOverlay.enableMyLocation();
                     mapView.getOverlays().add(myLocationOverlay);
@@ -454,6 +606,16 @@ public class MainActivity extends AppCompatActivity {
         return mapView;
     }
 
+    /**
+     * Layer the route is drawn on; null until the map has been created
+     */
+    public RouteOverlayLayer getRouteLayer() {
+        if (routeLayer == null && mapView != null) {
+            routeLayer = new RouteOverlayLayer(mapView);
+        }
+        return routeLayer;
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -502,7 +664,7 @@ public class MainActivity extends AppCompatActivity {
 
         @Override
         public int getItemCount() {
-            return 3;
+            return TAB_COUNT;
         }
     }
 }
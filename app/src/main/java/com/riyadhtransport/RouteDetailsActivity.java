@@ -4,6 +4,7 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
+import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
@@ -12,18 +13,26 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.gson.Gson;
 import com.riyadhtransport.adapters.RouteSegmentAdapter;
 import com.riyadhtransport.adapters.AlertAdapter;
+import com.riyadhtransport.api.NetworkQualityEstimator;
 import com.riyadhtransport.models.Route;
 import com.riyadhtransport.models.RouteSegment;
 import com.riyadhtransport.models.LineAlert;
 import com.riyadhtransport.utils.JourneyTimeCalculator;
 import com.riyadhtransport.utils.AlertsManager;
+import com.riyadhtransport.utils.ArrivalAnimationTicker;
+import com.riyadhtransport.utils.Metrics;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class RouteDetailsActivity extends AppCompatActivity {
     private static final String TAG = "RouteDetailsActivity";
     private static final long REFRESH_INTERVAL_MS = 60000; // 60 seconds
     
+    private static final Metrics.Counter REFRESHES = Metrics.counter("refresh.route_details");
+    private static final Metrics.Histogram FIRST_LIVE_TIME_MS =
+            Metrics.histogram("screen.route_details.first_live_time_ms");
+    
     private RecyclerView routeSegmentsRecycler;
     private RouteSegmentAdapter adapter;
     private TextView totalTimeText;
@@ -31,14 +40,19 @@ public class RouteDetailsActivity extends AppCompatActivity {
     
     private Handler refreshHandler;
     private Runnable refreshRunnable;
+    private CompletableFuture<Integer> journeyCalculation;
     
     private LinearLayout alertsContainer;
     private RecyclerView alertsRecycler;
     private AlertAdapter alertAdapter;
     
+    private long createdAtNanos;
+    private boolean firstLiveTimeShown = false;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdAtNanos = System.nanoTime();
         setContentView(R.layout.activity_route_details);
         
         // Initialize views
@@ -92,24 +106,11 @@ public class RouteDetailsActivity extends AppCompatActivity {
             return;
         }
         
-        // Fetch all alerts and filter for the lines in this route
-        AlertsManager.getAlerts(this, new AlertsManager.AlertsCallback() {
+        // Alerts for the lines in this route, from the shared alerts store
+        AlertsManager.getAlertsForLines(this, lineNumbers, new AlertsManager.AlertsCallback() {
             @Override
-            public void onSuccess(java.util.List<LineAlert> allAlerts) {
+            public void onSuccess(java.util.List<LineAlert> relevantAlerts) {
                 runOnUiThread(() -> {
-                    java.util.List<LineAlert> relevantAlerts = new java.util.ArrayList<>();
-                    for (LineAlert alert : allAlerts) {
-                        if (alert.isLineSpecific()) {
-                            // Check if this alert applies to any line in the route
-                            for (String lineNumber : lineNumbers) {
-                                if (alert.appliesToLine(lineNumber)) {
-                                    relevantAlerts.add(alert);
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    
                     if (!relevantAlerts.isEmpty()) {
                         alertAdapter.setAlerts(relevantAlerts);
                         alertsContainer.setVisibility(View.VISIBLE);
@@ -147,7 +148,7 @@ public class RouteDetailsActivity extends AppCompatActivity {
             @Override
             public void run() {
                 refreshLiveData();
-                refreshHandler.postDelayed(this, REFRESH_INTERVAL_MS);
+                refreshHandler.postDelayed(this, NetworkQualityEstimator.scaleInterval(REFRESH_INTERVAL_MS));
             }
         };
         
@@ -159,13 +160,22 @@ public class RouteDetailsActivity extends AppCompatActivity {
         if (currentRoute == null) return;
         
         Log.d(TAG, "Refreshing live arrival data...");
+        REFRESHES.increment();
         
-        JourneyTimeCalculator.calculateLiveJourneyTime(currentRoute, 
+        // A slow refresh must not land after a newer one
+        if (journeyCalculation != null) {
+            journeyCalculation.cancel(true);
+        }
+        journeyCalculation = JourneyTimeCalculator.calculateLiveJourneyTime(currentRoute, 
             new JourneyTimeCalculator.CalculationCallback() {
                 @Override
                 public void onComplete(int newTotalMinutes) {
                     runOnUiThread(() -> {
                         Log.d(TAG, "Journey time updated: " + newTotalMinutes + " minutes");
+                        if (!firstLiveTimeShown) {
+                            firstLiveTimeShown = true;
+                            FIRST_LIVE_TIME_MS.recordSinceNanos(createdAtNanos);
+                        }
                         updateTotalTime(newTotalMinutes);
                         adapter.notifyDataSetChanged();
                     });
@@ -181,6 +191,7 @@ public class RouteDetailsActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        ArrivalAnimationTicker.resume(routeSegmentsRecycler);
         if (refreshHandler != null && refreshRunnable != null) {
             refreshHandler.post(refreshRunnable);
         }
@@ -189,6 +200,7 @@ public class RouteDetailsActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
+        ArrivalAnimationTicker.pause(routeSegmentsRecycler);
         if (refreshHandler != null && refreshRunnable != null) {
             refreshHandler.removeCallbacks(refreshRunnable);
         }
@@ -197,6 +209,11 @@ public class RouteDetailsActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        // RecyclerView doesn't detach its rows when the screen goes away
+        ArrivalAnimationTicker.release(routeSegmentsRecycler);
+        if (journeyCalculation != null) {
+            journeyCalculation.cancel(true);
+        }
         if (refreshHandler != null && refreshRunnable != null) {
             refreshHandler.removeCallbacks(refreshRunnable);
         }
@@ -18,9 +18,12 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.textfield.TextInputEditText;
 import com.riyadhtransport.adapters.SearchResultAdapter;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.NetworkQualityEstimator;
 import com.riyadhtransport.models.NominatimResult;
 import com.riyadhtransport.models.SearchResult;
 import com.riyadhtransport.models.Station;
+import com.riyadhtransport.utils.StationRepository;
+import com.riyadhtransport.utils.StationSearchIndex;
 import java.util.ArrayList;
 import java.util.List;
 import retrofit2.Call;
@@ -38,13 +41,15 @@ public class SearchLocationActivity extends AppCompatActivity {
     public static final int REQUEST_SEARCH_START = 1;
     public static final int REQUEST_SEARCH_END = 2;
     
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    
     private TextInputEditText searchInput;
     private RecyclerView resultsRecycler;
     private ProgressBar progressBar;
     private SearchResultAdapter adapter;
     private Handler searchHandler = new Handler(Looper.getMainLooper());
     private Runnable searchRunnable;
-    private List<Station> allStations = new ArrayList<>();
+    private StationSearchIndex stationIndex = StationSearchIndex.build(null);
     private String searchType;
     
     @Override
@@ -97,9 +102,9 @@ public class SearchLocationActivity extends AppCompatActivity {
                     searchHandler.removeCallbacks(searchRunnable);
                 }
                 
-                // Schedule new search after 300ms delay
+                // Schedule new search after a pause in typing, longer on slow links
                 searchRunnable = () -> performSearch(s.toString());
-                searchHandler.postDelayed(searchRunnable, 300);
+                searchHandler.postDelayed(searchRunnable, NetworkQualityEstimator.scaleDebounce(SEARCH_DEBOUNCE_MS));
             }
             
             @Override
@@ -111,17 +116,15 @@ public class SearchLocationActivity extends AppCompatActivity {
     }
     
     private void loadStations() {
-        ApiClient.getApiService().getStations().enqueue(new Callback<List<Station>>() {
+        // Usually already loaded by the route screen, with the search index built
+        StationRepository.getStations(this, new StationRepository.StationsCallback() {
             @Override
-            public void onResponse(@NonNull Call<List<Station>> call,
-                                   @NonNull Response<List<Station>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    allStations = response.body();
-                }
+            public void onStationsLoaded(List<Station> stations, StationSearchIndex searchIndex) {
+                stationIndex = searchIndex;
             }
             
             @Override
-            public void onFailure(@NonNull Call<List<Station>> call, @NonNull Throwable t) {
+            public void onError(String message) {
                 // Silently fail - Nominatim will still work
             }
         });
@@ -140,17 +143,15 @@ public class SearchLocationActivity extends AppCompatActivity {
         List<SearchResult> combinedResults = new ArrayList<>();
         
         // Search in local stations
-        for (Station station : allStations) {
-            if (station.getDisplayName().toLowerCase().contains(query.toLowerCase())) {
-                SearchResult result = new SearchResult();
-                result.setName(station.getDisplayName());
-                result.setDescription(getString(R.string.metro_station)); // or bus_stop based on type
-                result.setLatitude(station.getLatitude());
-                result.setLongitude(station.getLongitude());
-                result.setStation(true);
-                result.setType("search");
-                combinedResults.add(result);
-            }
+        for (Station station : stationIndex.search(query)) {
+            SearchResult result = new SearchResult();
+            result.setName(station.getDisplayName());
+            result.setDescription(getString(R.string.metro_station)); // or bus_stop based on type
+            result.setLatitude(station.getLatitude());
+            result.setLongitude(station.getLongitude());
+            result.setStation(true);
+            result.setType("search");
+            combinedResults.add(result);
         }
         
         // Search in Nominatim
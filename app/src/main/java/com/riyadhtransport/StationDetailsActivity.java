@@ -7,6 +7,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.RequestScheduler;
 import com.riyadhtransport.models.Arrival;
 import java.util.HashMap;
 import java.util.List;
@@ -62,7 +63,7 @@ public class StationDetailsActivity extends AppCompatActivity {
             call = ApiClient.getApiService().getBusArrivals(body);
         }
         
-        call.enqueue(new Callback<Map<String, Object>>() {
+        RequestScheduler.schedule(call, RequestScheduler.Priority.INTERACTIVE).enqueue(new Callback<Map<String, Object>>() {
             @Override
             public void onResponse(Call<Map<String, Object>> call, 
                                    Response<Map<String, Object>> response) {
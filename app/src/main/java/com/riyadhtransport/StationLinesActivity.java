@@ -6,6 +6,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import android.view.MenuItem;
+import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
@@ -14,15 +15,21 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.adapters.LineAdapter;
 import com.riyadhtransport.adapters.AlertAdapter;
+import com.riyadhtransport.api.NetworkQualityEstimator;
 import com.riyadhtransport.models.Arrival;
 import com.riyadhtransport.models.Line;
 import com.riyadhtransport.models.LineAlert;
 import com.riyadhtransport.utils.LineColorHelper;
 import com.riyadhtransport.utils.LiveArrivalManager;
 import com.riyadhtransport.utils.AlertsManager;
+import com.riyadhtransport.utils.ArrivalAnimationTicker;
+import com.riyadhtransport.utils.ArrivalIndex;
+import com.riyadhtransport.utils.Metrics;
+import com.riyadhtransport.utils.ResponsePipeline;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 public class StationLinesActivity extends AppCompatActivity {
@@ -30,6 +37,10 @@ public class StationLinesActivity extends AppCompatActivity {
     private static final String TAG = "StationLinesActivity";
     private static final long REFRESH_INTERVAL_MS = 60000; // 60 seconds
     
+    private static final Metrics.Counter REFRESHES = Metrics.counter("refresh.station_lines");
+    private static final Metrics.Histogram FIRST_ARRIVAL_MS =
+            Metrics.histogram("screen.station_lines.first_arrival_ms");
+    
     private TextView stationNameView;
     private RecyclerView linesRecycler;
     private LineAdapter adapter;
@@ -43,9 +54,13 @@ public class StationLinesActivity extends AppCompatActivity {
     private RecyclerView alertsRecycler;
     private AlertAdapter alertAdapter;
     
+    private long createdAtNanos;
+    private boolean firstArrivalShown = false;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdAtNanos = System.nanoTime();
         setContentView(R.layout.activity_station_lines);
         
         // Enable back button
@@ -122,24 +137,11 @@ public class StationLinesActivity extends AppCompatActivity {
             return;
         }
         
-        // Fetch all alerts and filter for the lines at this station
-        AlertsManager.getAlerts(this, new AlertsManager.AlertsCallback() {
+        // Alerts for the lines at this station, from the shared alerts store
+        AlertsManager.getAlertsForLines(this, lineNumbers, new AlertsManager.AlertsCallback() {
             @Override
-            public void onSuccess(List<LineAlert> allAlerts) {
+            public void onSuccess(List<LineAlert> relevantAlerts) {
                 runOnUiThread(() -> {
-                    List<LineAlert> relevantAlerts = new ArrayList<>();
-                    for (LineAlert alert : allAlerts) {
-                        if (alert.isLineSpecific()) {
-                            // Check if this alert applies to any line at this station
-                            for (String lineNumber : lineNumbers) {
-                                if (alert.appliesToLine(lineNumber)) {
-                                    relevantAlerts.add(alert);
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    
                     if (!relevantAlerts.isEmpty()) {
                         alertAdapter.setAlerts(relevantAlerts);
                         alertsContainer.setVisibility(View.VISIBLE);
@@ -163,7 +165,7 @@ public class StationLinesActivity extends AppCompatActivity {
             @Override
             public void run() {
                 refreshLiveArrivals();
-                refreshHandler.postDelayed(this, REFRESH_INTERVAL_MS);
+                refreshHandler.postDelayed(this, NetworkQualityEstimator.scaleInterval(REFRESH_INTERVAL_MS));
             }
         };
         
@@ -177,9 +179,7 @@ public class StationLinesActivity extends AppCompatActivity {
         Log.d(TAG, "Refreshing live arrivals for " + allLines.size() + " lines at " + stationName);
         
         Log.d(TAG, "Refreshing live arrivals for station: " + stationName);
-        
-        // Collect all lines to display (will expand metro lines by direction)
-        List<Line> displayLines = new ArrayList<>();
+        REFRESHES.increment();
         
         // Fetch arrivals for each line
         for (Line line : allLines) {
@@ -195,105 +195,18 @@ public class StationLinesActivity extends AppCompatActivity {
                 new LiveArrivalManager.ArrivalCallback() {
                     @Override
                     public void onSuccess(List<Arrival> arrivals) {
-                        runOnUiThread(() -> {
-                            Log.d(TAG, "Got " + arrivals.size() + " arrivals for line " + line.getId());
-                            
-                            // For metro lines, group by destination to show both directions
-                            if (line.isMetro()) {
-                                // Group arrivals by destination
-                                java.util.Map<String, List<Arrival>> arrivalsByDestination = new java.util.HashMap<>();
-                                for (Arrival arrival : arrivals) {
-                                    String dest = arrival.getDestination();
-                                    if (dest != null) {
-                                        if (!arrivalsByDestination.containsKey(dest)) {
-                                            arrivalsByDestination.put(dest, new ArrayList<>());
-                                        }
-                                        arrivalsByDestination.get(dest).add(arrival);
-                                    }
-                                }
-                                
-                                Log.d(TAG, "Found " + arrivalsByDestination.size() + " directions for metro line " + line.getId());
-                                
-                                // Create a separate line entry for each direction
-                                displayLines.clear();
-                                for (Line originalLine : allLines) {
-                                    if (originalLine.getId().equals(line.getId())) {
-                                        // This is the metro line we're processing
-                                        for (java.util.Map.Entry<String, List<Arrival>> entry : arrivalsByDestination.entrySet()) {
-                                            String destination = entry.getKey();
-                                            List<Arrival> destArrivals = entry.getValue();
-                                            
-                                            // Create a new line entry for this direction
-                                            Line directionLine = new Line(originalLine.getId(), originalLine.getName(), originalLine.getType());
-                                            directionLine.setDestination(destination);
-                                            
-                                            // Extract arrival times (up to 3)
-                                            List<Integer> upcomingArrivals = new ArrayList<>();
-                                            for (Arrival arr : destArrivals) {
-                                                if (upcomingArrivals.size() >= 3) break;
-                                                upcomingArrivals.add(arr.getMinutesUntil());
-                                            }
-                                            directionLine.setUpcomingArrivals(upcomingArrivals);
-                                            
-                                            // Set status
-                                            if (!upcomingArrivals.isEmpty()) {
-                                                int firstArrival = upcomingArrivals.get(0);
-                                                if (firstArrival >= 59) {
-                                                    directionLine.setArrivalStatus("normal");
-                                                } else {
-                                                    directionLine.setArrivalStatus("live");
-                                                }
-                                            } else {
-                                                directionLine.setArrivalStatus("hidden");
-                                            }
-                                            
-                                            displayLines.add(directionLine);
-                                        }
-                                    } else {
-                                        // Keep other lines as-is
-                                        displayLines.add(originalLine);
-                                    }
-                                }
-                            } else {
-                                // For bus lines, keep single entry with first destination
-                                List<Integer> upcomingArrivals = new ArrayList<>();
-                                String destination = null;
-                                
-                                for (Arrival arrival : arrivals) {
-                                    if (upcomingArrivals.size() >= 3) break;
-                                    upcomingArrivals.add(arrival.getMinutesUntil());
-                                    
-                                    // Get destination from first arrival
-                                    if (destination == null && arrival.getDestination() != null) {
-                                        destination = arrival.getDestination();
-                                    }
-                                }
-                                
-                                line.setUpcomingArrivals(upcomingArrivals);
-                                line.setDestination(destination);
-                                
-                                // Set status based on arrival time
-                                if (!upcomingArrivals.isEmpty()) {
-                                    int firstArrival = upcomingArrivals.get(0);
-                                    if (firstArrival >= 59) {
-                                        line.setArrivalStatus("normal");
-                                    } else {
-                                        line.setArrivalStatus("live");
-                                    }
-                                } else {
-                                    line.setArrivalStatus("hidden");
-                                }
-                                
-                                // Keep original line in display list
-                                displayLines.clear();
-                                for (Line originalLine : allLines) {
-                                    displayLines.add(originalLine);
-                                }
+                        // Group and summarize in the background; only the rows come back here
+                        ResponsePipeline.submit("station_lines.rows", () -> buildRows(line, arrivals),
+                                new ResponsePipeline.Consumer<List<Line>>() {
+                            @Override
+                            public void onResult(List<Line> rows) {
+                                showRows(line, rows, arrivals.size());
                             }
                             
-                            // Update adapter with new list
-                            adapter.setLines(displayLines);
-                            adapter.notifyDataSetChanged();
+                            @Override
+                            public void onFailure(Throwable t) {
+                                Log.e(TAG, "Error building rows for line " + line.getId(), t);
+                            }
                         });
                     }
                     
@@ -309,6 +222,96 @@ public class StationLinesActivity extends AppCompatActivity {
         }
     }
     
+    /**
+     * The rows a line is shown as: one per direction for metro lines, or a single
+     * summary row for bus lines. Runs in the background, so it only builds new objects.
+     */
+    private static List<Line> buildRows(Line line, List<Arrival> arrivals) {
+        // Index once per fetch; groups are sorted soonest first
+        ArrivalIndex arrivalIndex = ArrivalIndex.build(arrivals);
+        List<Line> rows = new ArrayList<>();
+        
+        if (line.isMetro()) {
+            // For metro lines, group by destination to show both directions
+            Map<String, List<Arrival>> arrivalsByDestination = arrivalIndex.directions(null);
+            Log.d(TAG, "Found " + arrivalsByDestination.size() + " directions for metro line " + line.getId());
+            
+            for (Map.Entry<String, List<Arrival>> entry : arrivalsByDestination.entrySet()) {
+                // Create a new line entry for this direction
+                Line directionLine = new Line(line.getId(), line.getName(), line.getType());
+                directionLine.setDestination(entry.getKey());
+                setUpcoming(directionLine, entry.getValue());
+                rows.add(directionLine);
+            }
+        } else {
+            // For bus lines, keep single entry with first destination
+            Line summary = new Line(line.getId(), line.getName(), line.getType());
+            List<Arrival> soonest = arrivalIndex.arrivals(null);
+            // Destination of the first shown arrival that has one
+            for (Arrival arrival : soonest.subList(0, Math.min(3, soonest.size()))) {
+                if (arrival.getDestination() != null) {
+                    summary.setDestination(arrival.getDestination());
+                    break;
+                }
+            }
+            setUpcoming(summary, soonest);
+            rows.add(summary);
+        }
+        return rows;
+    }
+    
+    /**
+     * Set the next (up to 3) arrival times and the status they imply
+     */
+    private static void setUpcoming(Line row, List<Arrival> arrivals) {
+        List<Integer> upcomingArrivals = new ArrayList<>();
+        for (Arrival arr : arrivals) {
+            if (upcomingArrivals.size() >= 3) break;
+            upcomingArrivals.add(arr.getMinutesUntil());
+        }
+        row.setUpcomingArrivals(upcomingArrivals);
+        
+        if (!upcomingArrivals.isEmpty()) {
+            row.setArrivalStatus(upcomingArrivals.get(0) >= 59 ? "normal" : "live");
+        } else {
+            row.setArrivalStatus("hidden");
+        }
+    }
+    
+    private void showRows(Line line, List<Line> rows, int arrivalCount) {
+        if (isFinishing()) {
+            return;
+        }
+        Log.d(TAG, "Got " + arrivalCount + " arrivals for line " + line.getId());
+        if (!firstArrivalShown) {
+            firstArrivalShown = true;
+            FIRST_ARRIVAL_MS.recordSinceNanos(createdAtNanos);
+        }
+        
+        List<Line> displayLines = new ArrayList<>();
+        if (line.isMetro()) {
+            // Replace the metro line with a row per direction
+            for (Line originalLine : allLines) {
+                if (originalLine.getId().equals(line.getId())) {
+                    displayLines.addAll(rows);
+                } else {
+                    // Keep other lines as-is
+                    displayLines.add(originalLine);
+                }
+            }
+        } else {
+            Line summary = rows.get(0);
+            line.setUpcomingArrivals(summary.getUpcomingArrivals());
+            line.setDestination(summary.getDestination());
+            line.setArrivalStatus(summary.getArrivalStatus());
+            displayLines.addAll(allLines);
+        }
+        
+        // Update adapter with new list
+        adapter.setLines(displayLines);
+        adapter.notifyDataSetChanged();
+    }
+    
     private void onLineClick(Line line) {
         // Open LineStationsActivity to show stations on this line
         Intent intent = new Intent(this, LineStationsActivity.class);
@@ -330,6 +333,7 @@ public class StationLinesActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        ArrivalAnimationTicker.resume(linesRecycler);
         if (refreshHandler != null && refreshRunnable != null) {
             refreshHandler.post(refreshRunnable);
         }
@@ -338,6 +342,7 @@ public class StationLinesActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
+        ArrivalAnimationTicker.pause(linesRecycler);
         if (refreshHandler != null && refreshRunnable != null) {
             refreshHandler.removeCallbacks(refreshRunnable);
         }
@@ -346,6 +351,8 @@ public class StationLinesActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        // RecyclerView doesn't detach its rows when the screen goes away
+        ArrivalAnimationTicker.release(linesRecycler);
         if (refreshHandler != null && refreshRunnable != null) {
             refreshHandler.removeCallbacks(refreshRunnable);
         }
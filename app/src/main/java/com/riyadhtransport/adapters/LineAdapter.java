@@ -9,10 +9,11 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.R;
 import com.riyadhtransport.models.Line;
+import com.riyadhtransport.utils.ArrivalAnimationTicker;
+import com.riyadhtransport.utils.ArrivalTimeFormatter;
 import com.riyadhtransport.utils.LineColorHelper;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Calendar;
 
 public class LineAdapter extends RecyclerView.Adapter<LineAdapter.LineViewHolder> {
 
@@ -57,7 +58,7 @@ public class LineAdapter extends RecyclerView.Adapter<LineAdapter.LineViewHolder
     public LineViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_line, parent, false);
-        return new LineViewHolder(view);
+        return new LineViewHolder(view, parent);
     }
 
     @Override
@@ -66,12 +67,31 @@ public class LineAdapter extends RecyclerView.Adapter<LineAdapter.LineViewHolder
         holder.bind(line, listener);
     }
 
+    @Override
+    public void onViewAttachedToWindow(@NonNull LineViewHolder holder) {
+        super.onViewAttachedToWindow(holder);
+        holder.onAttached();
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(@NonNull LineViewHolder holder) {
+        super.onViewDetachedFromWindow(holder);
+        holder.onDetached();
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull LineViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.stopAnimation();
+    }
+
     @Override
     public int getItemCount() {
         return filteredLines.size();
     }
 
-    static class LineViewHolder extends RecyclerView.ViewHolder {
+    static class LineViewHolder extends RecyclerView.ViewHolder
+            implements ArrivalAnimationTicker.FrameListener {
         ImageView lineIcon;
         TextView lineName;
         TextView lineType;
@@ -82,12 +102,14 @@ public class LineAdapter extends RecyclerView.Adapter<LineAdapter.LineViewHolder
         TextView arrivalTime2;
         TextView arrivalTime3;
         
-        private android.os.Handler animationHandler;
-        private Runnable animationRunnable;
-        private int currentAnimationFrame = 0;
+        // The RecyclerView showing this row, which pauses and releases its animation
+        private final ViewGroup host;
+        private boolean live = false;
+        private boolean isRtl = false;
 
-        LineViewHolder(@NonNull View itemView) {
+        LineViewHolder(@NonNull View itemView, ViewGroup host) {
             super(itemView);
+            this.host = host;
             lineIcon = itemView.findViewById(R.id.line_icon);
             lineName = itemView.findViewById(R.id.line_name);
             lineType = itemView.findViewById(R.id.line_type);
@@ -97,15 +119,27 @@ public class LineAdapter extends RecyclerView.Adapter<LineAdapter.LineViewHolder
             arrivalTime1 = itemView.findViewById(R.id.arrival_time_1);
             arrivalTime2 = itemView.findViewById(R.id.arrival_time_2);
             arrivalTime3 = itemView.findViewById(R.id.arrival_time_3);
-            
-            animationHandler = new android.os.Handler(android.os.Looper.getMainLooper());
         }
         
         void stopAnimation() {
-            if (animationRunnable != null) {
-                animationHandler.removeCallbacks(animationRunnable);
+            live = false;
+            ArrivalAnimationTicker.unregister(this);
+        }
+        
+        void onAttached() {
+            if (live) {
+                ArrivalAnimationTicker.register(host, this);
             }
         }
+        
+        void onDetached() {
+            ArrivalAnimationTicker.unregister(this);
+        }
+        
+        @Override
+        public void onFrame(int frame) {
+            arrivalIcon.setImageResource(ArrivalAnimationTicker.getFrameResource(frame, isRtl));
+        }
 
         void bind(Line line, OnLineClickListener listener) {
             // Show destination as main text if available, otherwise show line name
@@ -187,7 +221,7 @@ public class LineAdapter extends RecyclerView.Adapter<LineAdapter.LineViewHolder
                 arrivalIcon.setImageResource(R.drawable.ic_clock);
                 
                 if (!upcomingArrivals.isEmpty()) {
-                    String timeText = formatAsTime(upcomingArrivals.get(0));
+                    String timeText = ArrivalTimeFormatter.formatMinutesFromNow(upcomingArrivals.get(0));
                     arrivalTime1.setText(timeText);
                     arrivalTime1.setTextColor(0xFF000000); // Black
                     arrivalTime1.setVisibility(View.VISIBLE);
@@ -220,34 +254,15 @@ public class LineAdapter extends RecyclerView.Adapter<LineAdapter.LineViewHolder
         }
         
         private void startLiveAnimation() {
-            stopAnimation();
+            live = true;
             
-            boolean isRtl = itemView.getContext().getResources().getConfiguration()
+            isRtl = itemView.getContext().getResources().getConfiguration()
                     .getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
             
-            final int[] frames = isRtl ? 
-                new int[]{R.drawable.lr3, R.drawable.lr2, R.drawable.lr1} :
-                new int[]{R.drawable.lt3, R.drawable.lt2, R.drawable.lt1};
-            
-            animationRunnable = new Runnable() {
-                @Override
-                public void run() {
-                    arrivalIcon.setImageResource(frames[currentAnimationFrame]);
-                    currentAnimationFrame = (currentAnimationFrame + 1) % 3;
-                    animationHandler.postDelayed(this, 500);
-                }
-            };
-            
-            animationHandler.post(animationRunnable);
-        }
-        
-        private String formatAsTime(int minutesFromNow) {
-            java.util.Calendar cal = java.util.Calendar.getInstance();
-            cal.add(java.util.Calendar.MINUTE, minutesFromNow);
-            
-            java.text.SimpleDateFormat timeFormat = new java.text.SimpleDateFormat("h:mm a", 
-                    java.util.Locale.getDefault());
-            return timeFormat.format(cal.getTime());
+            // Rows that are bound before being attached register in onAttached()
+            if (itemView.isAttachedToWindow()) {
+                ArrivalAnimationTicker.register(host, this);
+            }
         }
     }
 }
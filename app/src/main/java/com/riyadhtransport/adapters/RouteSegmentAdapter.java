@@ -12,10 +12,11 @@ import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.R;
 import com.riyadhtransport.models.RouteSegment;
+import com.riyadhtransport.utils.ArrivalAnimationTicker;
+import com.riyadhtransport.utils.ArrivalTimeFormatter;
 import com.riyadhtransport.utils.LineColorHelper;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Calendar;
 
 public class RouteSegmentAdapter extends RecyclerView.Adapter<RouteSegmentAdapter.SegmentViewHolder> {
 
@@ -35,7 +36,7 @@ public class RouteSegmentAdapter extends RecyclerView.Adapter<RouteSegmentAdapte
     public SegmentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_route_segment, parent, false);
-        return new SegmentViewHolder(view);
+        return new SegmentViewHolder(view, parent);
     }
 
     @Override
@@ -45,12 +46,31 @@ public class RouteSegmentAdapter extends RecyclerView.Adapter<RouteSegmentAdapte
         holder.bind(segment, isLastSegment);
     }
 
+    @Override
+    public void onViewAttachedToWindow(@NonNull SegmentViewHolder holder) {
+        super.onViewAttachedToWindow(holder);
+        holder.onAttached();
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(@NonNull SegmentViewHolder holder) {
+        super.onViewDetachedFromWindow(holder);
+        holder.onDetached();
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull SegmentViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.stopAnimation();
+    }
+
     @Override
     public int getItemCount() {
         return segments.size();
     }
 
-    static class SegmentViewHolder extends RecyclerView.ViewHolder {
+    static class SegmentViewHolder extends RecyclerView.ViewHolder
+            implements ArrivalAnimationTicker.FrameListener {
         ImageView segmentIcon;
         TextView segmentType;
         TextView segmentDuration;
@@ -61,12 +81,14 @@ public class RouteSegmentAdapter extends RecyclerView.Adapter<RouteSegmentAdapte
         TextView arrivalTime2;
         TextView arrivalTime3;
         
-        private android.os.Handler animationHandler;
-        private Runnable animationRunnable;
-        private int currentAnimationFrame = 0;
+        // The RecyclerView showing this row, which pauses and releases its animation
+        private final ViewGroup host;
+        private boolean live = false;
+        private boolean isRtl = false;
 
-        SegmentViewHolder(@NonNull View itemView) {
+        SegmentViewHolder(@NonNull View itemView, ViewGroup host) {
             super(itemView);
+            this.host = host;
             segmentIcon = itemView.findViewById(R.id.segment_icon);
             segmentType = itemView.findViewById(R.id.segment_type);
             segmentDuration = itemView.findViewById(R.id.segment_duration);
@@ -76,15 +98,27 @@ public class RouteSegmentAdapter extends RecyclerView.Adapter<RouteSegmentAdapte
             arrivalTime1 = itemView.findViewById(R.id.arrival_time_1);
             arrivalTime2 = itemView.findViewById(R.id.arrival_time_2);
             arrivalTime3 = itemView.findViewById(R.id.arrival_time_3);
-            
-            animationHandler = new android.os.Handler(android.os.Looper.getMainLooper());
         }
         
         void stopAnimation() {
-            if (animationRunnable != null) {
-                animationHandler.removeCallbacks(animationRunnable);
+            live = false;
+            ArrivalAnimationTicker.unregister(this);
+        }
+        
+        void onAttached() {
+            if (live) {
+                ArrivalAnimationTicker.register(host, this);
             }
         }
+        
+        void onDetached() {
+            ArrivalAnimationTicker.unregister(this);
+        }
+        
+        @Override
+        public void onFrame(int frame) {
+            arrivalIcon.setImageResource(ArrivalAnimationTicker.getFrameResource(frame, isRtl));
+        }
 
         void bind(RouteSegment segment, boolean isLastSegment) {
             String typeText;
@@ -210,7 +244,7 @@ public class RouteSegmentAdapter extends RecyclerView.Adapter<RouteSegmentAdapte
                 
                 // Format as time (e.g., "9:59 PM")
                 if (!upcomingArrivals.isEmpty()) {
-                    String timeText = formatAsTime(upcomingArrivals.get(0));
+                    String timeText = ArrivalTimeFormatter.formatMinutesFromNow(upcomingArrivals.get(0));
                     arrivalTime1.setText(timeText);
                     arrivalTime1.setTextColor(0xFF000000); // Black
                     arrivalTime1.setVisibility(View.VISIBLE);
@@ -246,35 +280,16 @@ public class RouteSegmentAdapter extends RecyclerView.Adapter<RouteSegmentAdapte
         }
         
         private void startLiveAnimation() {
-            stopAnimation();
+            live = true;
             
             // Determine if RTL (Arabic)
-            boolean isRtl = itemView.getContext().getResources().getConfiguration()
+            isRtl = itemView.getContext().getResources().getConfiguration()
                     .getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
             
-            final int[] frames = isRtl ? 
-                new int[]{R.drawable.lr3, R.drawable.lr2, R.drawable.lr1} :
-                new int[]{R.drawable.lt3, R.drawable.lt2, R.drawable.lt1};
-            
-            animationRunnable = new Runnable() {
-                @Override
-                public void run() {
-                    arrivalIcon.setImageResource(frames[currentAnimationFrame]);
-                    currentAnimationFrame = (currentAnimationFrame + 1) % 3;
-                    animationHandler.postDelayed(this, 500); // 0.5 seconds
-                }
-            };
-            
-            animationHandler.post(animationRunnable);
-        }
-        
-        private String formatAsTime(int minutesFromNow) {
-            java.util.Calendar cal = java.util.Calendar.getInstance();
-            cal.add(java.util.Calendar.MINUTE, minutesFromNow);
-            
-            java.text.SimpleDateFormat timeFormat = new java.text.SimpleDateFormat("h:mm a", 
-                    java.util.Locale.getDefault());
-            return timeFormat.format(cal.getTime());
+            // Rows that are bound before being attached register in onAttached()
+            if (itemView.isAttachedToWindow()) {
+                ArrivalAnimationTicker.register(host, this);
+            }
         }
 
         private String getDestinationName(RouteSegment segment, boolean isLastSegment) {
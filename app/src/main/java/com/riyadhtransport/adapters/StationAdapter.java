@@ -8,6 +8,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.riyadhtransport.R;
 import com.riyadhtransport.models.Station;
+import com.riyadhtransport.utils.StationSearchIndex;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +16,7 @@ public class StationAdapter extends RecyclerView.Adapter<StationAdapter.StationV
     
     private List<Station> stations;
     private List<Station> stationsFiltered;
+    private StationSearchIndex searchIndex;
     private OnStationClickListener listener;
     
     public interface OnStationClickListener {
@@ -24,12 +26,14 @@ public class StationAdapter extends RecyclerView.Adapter<StationAdapter.StationV
     public StationAdapter(OnStationClickListener listener) {
         this.stations = new ArrayList<>();
         this.stationsFiltered = new ArrayList<>();
+        this.searchIndex = StationSearchIndex.build(null);
         this.listener = listener;
     }
     
     public void setStations(List<Station> stations) {
         this.stations = stations;
         this.stationsFiltered = new ArrayList<>(stations);
+        this.searchIndex = StationSearchIndex.build(stations);
         notifyDataSetChanged();
     }
     
@@ -38,12 +42,7 @@ public class StationAdapter extends RecyclerView.Adapter<StationAdapter.StationV
         if (query.isEmpty()) {
             stationsFiltered.addAll(stations);
         } else {
-            String lowerQuery = query.toLowerCase();
-            for (Station station : stations) {
-                if (station.getDisplayName().toLowerCase().contains(lowerQuery)) {
-                    stationsFiltered.add(station);
-                }
-            }
+            stationsFiltered.addAll(searchIndex.search(query));
         }
         notifyDataSetChanged();
     }
@@ -1,6 +1,8 @@
 package com.riyadhtransport.api;
 
 import android.content.Context;
+import com.riyadhtransport.BuildConfig;
+import okhttp3.Dns;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
@@ -13,10 +15,18 @@ public class ApiClient {
     // Update this URL to point to your backend server
     // For testing with local server, use: http://10.0.2.2:5000/ (Android emulator)
     // For production, use your actual server URL
-    private static final String BASE_URL = "http://mainserver.inirl.net:5000/";
-    private static final String NOMINATIM_URL = "https://nominatim.openstreetmap.org/";
-    private static final String RPT_BASE_URL = "https://www.rpt.sa/";
+    static final String BASE_URL = "http://mainserver.inirl.net:5000/";
+    static final String NOMINATIM_URL = "https://nominatim.openstreetmap.org/";
+    static final String RPT_BASE_URL = "https://www.rpt.sa/";
     
+    // Shared by every client, so a host is resolved once however many clients use it.
+    // The 5 minutes are fixed, not the records' TTLs (see CachingDns).
+    private static volatile Dns resolver = Dns.SYSTEM;
+    private static final CachingDns dns = new CachingDns(
+            hostname -> resolver.lookup(hostname), 5 * 60 * 1000, 60 * 60 * 1000);
+    
+    private static OkHttpClient backendHttpClient = null;
+    private static OkHttpClient rptHttpClient = null;
     private static Retrofit retrofit = null;
     private static Retrofit nominatimRetrofit = null;
     private static Retrofit rptRetrofit = null;
@@ -27,91 +37,97 @@ public class ApiClient {
 
     public static void init(Context context) {
         appContext = context.getApplicationContext();
-        // Use Log.i for better visibility in logcat
-        android.util.Log.i("RiyadhTransport", "ApiClient.init() called");
-        android.util.Log.i("RiyadhTransport", "ApiClient: appContext=" + (appContext != null ? "NOT NULL" : "NULL"));
-        if (appContext != null) {
-            boolean isAr = LocaleHelper.isArabic(appContext);
-            android.util.Log.i("RiyadhTransport", "ApiClient.init: isArabic=" + isAr);
+        // Keep every call in debug builds; release builds sample
+        if (BuildConfig.DEBUG) {
+            NetworkTracer.setSampleRate(1.0);
         }
     }
     
-    public static Retrofit getClient() {
-        if (retrofit == null) {
-            // Create logging interceptor for debugging
+    /**
+     * Full body logging copies every response (including the large stations payload),
+     * so it is only attached in debug builds
+     */
+    private static void addDebugLogging(OkHttpClient.Builder builder) {
+        if (BuildConfig.DEBUG) {
             HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
             loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-            
+            builder.addInterceptor(loggingInterceptor);
+        }
+    }
+    
+    static CachingDns dns() {
+        return dns;
+    }
+    
+    /**
+     * Resolver behind every client's DNS cache. Tests pass one that fails, so nothing
+     * they start reaches the real hosts.
+     */
+    public static void setResolver(Dns newResolver) {
+        resolver = newResolver;
+    }
+    
+    /**
+     * The backend's OkHttpClient, whose connection pool every backend call shares
+     */
+    static synchronized OkHttpClient getBackendHttpClient() {
+        getClient();
+        return backendHttpClient;
+    }
+    
+    public static synchronized Retrofit getClient() {
+        if (retrofit == null) {
             // Create OkHttpClient with timeout settings and Arabic locale interceptor
-            OkHttpClient client = new OkHttpClient.Builder()
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
                     .addInterceptor(chain -> {
+                        // Add /ar/ prefix to our backend's endpoints when app is in Arabic
                         String url = chain.request().url().toString();
-                        android.util.Log.i("RiyadhTransport", "=== API Request Interceptor ===");
-                        android.util.Log.i("RiyadhTransport", "Original URL: " + url);
-                        android.util.Log.i("RiyadhTransport", "appContext: " + (appContext != null ? "NOT NULL" : "NULL"));
-                        
-                        // Add /ar/ prefix to endpoints when app is in Arabic
-                        if (appContext != null) {
-                            boolean isArabic = LocaleHelper.isArabic(appContext);
-                            android.util.Log.i("RiyadhTransport", "isArabic check result: " + isArabic);
-                            
-                            if (isArabic) {
-                                // Only modify if it's our backend and doesn't already have /ar/
-                                if (url.startsWith(BASE_URL) && !url.contains("/ar/")) {
-                                    String path = url.substring(BASE_URL.length());
-                                    String newUrl = BASE_URL + "ar/" + path;
-                                    android.util.Log.w("RiyadhTransport", "REWRITING URL: " + url + " -> " + newUrl);
-                                    return chain.proceed(
-                                            chain.request().newBuilder()
-                                                    .url(newUrl)
-                                                    .build()
-                                    );
-                                } else if (url.contains("/ar/")) {
-                                    android.util.Log.i("RiyadhTransport", "URL already has /ar/, skipping rewrite");
-                                }
-                            } else {
-                                android.util.Log.i("RiyadhTransport", "English mode - not rewriting URL");
-                            }
-                        } else {
-                            android.util.Log.e("RiyadhTransport", "ERROR: appContext is NULL!");
+                        if (appContext != null && LocaleHelper.isArabic(appContext)
+                                && url.startsWith(BASE_URL) && !url.contains("/ar/")) {
+                            String newUrl = BASE_URL + "ar/" + url.substring(BASE_URL.length());
+                            return chain.proceed(
+                                    chain.request().newBuilder()
+                                            .url(newUrl)
+                                            .build()
+                            );
                         }
-                        android.util.Log.i("RiyadhTransport", "=== End Interceptor ===");
                         return chain.proceed(chain.request());
                     })
-                    .addInterceptor(loggingInterceptor)
+                    .eventListenerFactory(NetworkTracer.factory("backend"))
+                    .dns(dns)
                     .connectTimeout(30, TimeUnit.SECONDS)
                     .readTimeout(30, TimeUnit.SECONDS)
-                    .writeTimeout(30, TimeUnit.SECONDS)
-                    .build();
+                    .writeTimeout(30, TimeUnit.SECONDS);
+            addDebugLogging(builder);
+            backendHttpClient = builder.build();
             
             // Create Retrofit instance
             retrofit = new Retrofit.Builder()
                     .baseUrl(BASE_URL)
-                    .client(client)
+                    .client(backendHttpClient)
+                    // Responses may be CBOR or JSON; request bodies are still JSON
+                    .addConverterFactory(CborConverterFactory.create())
                     .addConverterFactory(GsonConverterFactory.create())
                     .build();
         }
         return retrofit;
     }
     
-    public static TransportApiService getApiService() {
-        // Always recreate the client to ensure locale changes are picked up
-        android.util.Log.i("RiyadhTransport", "ApiClient.getApiService() called");
-        android.util.Log.i("RiyadhTransport", "ApiClient: appContext=" + (appContext != null ? "NOT NULL" : "NULL"));
-        if (appContext != null) {
-            boolean isAr = LocaleHelper.isArabic(appContext);
-            android.util.Log.i("RiyadhTransport", "ApiClient.getApiService: isArabic=" + isAr);
+    public static synchronized TransportApiService getApiService() {
+        // The locale interceptor reads the language on every request, so one client serves
+        // both languages and its connections (including warmed ones) are reused
+        if (apiService == null) {
+            apiService = getClient().create(TransportApiService.class);
         }
-        retrofit = null;
-        apiService = null;
-        apiService = getClient().create(TransportApiService.class);
         return apiService;
     }
 
-    private static Retrofit getNominatimClient() {
+    private static synchronized Retrofit getNominatimClient() {
         if (nominatimRetrofit == null) {
             // Create OkHttpClient with timeout settings
             OkHttpClient client = new OkHttpClient.Builder()
+                    .eventListenerFactory(NetworkTracer.factory("nominatim"))
+                    .dns(dns)
                     .connectTimeout(15, TimeUnit.SECONDS)
                     .readTimeout(15, TimeUnit.SECONDS)
                     .addInterceptor(chain -> {
@@ -135,7 +151,7 @@ public class ApiClient {
         return nominatimRetrofit;
     }
 
-    public static NominatimService getNominatimService() {
+    public static synchronized NominatimService getNominatimService() {
         if (nominatimService == null) {
             nominatimService = getNominatimClient().create(NominatimService.class);
         }
@@ -143,20 +159,26 @@ public class ApiClient {
     }
 
     // Method to update base URL if needed
-    public static void setBaseUrl(String url) {
+    public static synchronized void setBaseUrl(String url) {
         retrofit = null;
         apiService = null;
         // Will be recreated with new URL on next call
     }
     
-    private static Retrofit getRptClient() {
+    /**
+     * The RPT client's OkHttpClient, whose connection pool every RPT call shares
+     */
+    static synchronized OkHttpClient getRptHttpClient() {
+        getRptClient();
+        return rptHttpClient;
+    }
+    
+    private static synchronized Retrofit getRptClient() {
         if (rptRetrofit == null) {
-            // Create logging interceptor for debugging
-            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-            
             // Create OkHttpClient with timeout settings
-            OkHttpClient client = new OkHttpClient.Builder()
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                    .eventListenerFactory(NetworkTracer.factory("rpt"))
+                    .dns(dns)
                     .connectTimeout(30, TimeUnit.SECONDS)
                     .readTimeout(30, TimeUnit.SECONDS)
                     .addInterceptor(chain -> {
@@ -184,9 +206,9 @@ public class ApiClient {
                                         .header("sec-ch-ua-mobile", "?1")
                                         .build()
                         );
-                    })
-                    .addInterceptor(loggingInterceptor)
-                    .build();
+                    });
+            addDebugLogging(builder);
+            rptHttpClient = builder.build();
 
             // Create lenient Gson for parsing potentially malformed JSON
             com.google.gson.Gson gson = new com.google.gson.GsonBuilder()
@@ -196,14 +218,14 @@ public class ApiClient {
             // Create Retrofit instance for RPT
             rptRetrofit = new Retrofit.Builder()
                     .baseUrl(RPT_BASE_URL)
-                    .client(client)
+                    .client(rptHttpClient)
                     .addConverterFactory(GsonConverterFactory.create(gson))
                     .build();
         }
         return rptRetrofit;
     }
     
-    public static RptStationService getRptStationService() {
+    public static synchronized RptStationService getRptStationService() {
         if (rptStationService == null) {
             rptStationService = getRptClient().create(RptStationService.class);
         }
@@ -12,7 +12,7 @@ import java.util.concurrent.TimeUnit;
  */
 public class AppWriteClient {
     // AppWrite configuration
-    private static final String ENDPOINT = "https://fra.cloud.appwrite.io/v1/";
+    static final String ENDPOINT = "https://fra.cloud.appwrite.io/v1/";
     public static final String PROJECT_ID = "68f141dd000f83849c21";
     public static final String DATABASE_ID = "68f146de0013ba3e183a";
     
@@ -20,15 +20,18 @@ public class AppWriteClient {
     private static final String ALERTS_COLLECTION_ID_ENGLISH = "emptt";
     private static final String ALERTS_COLLECTION_ID_ARABIC = "arabic";
 
+    private static OkHttpClient httpClient = null;
     private static Retrofit retrofit = null;
     private static AppWriteApiService apiService = null;
 
     /**
      * Get Retrofit client for AppWrite
      */
-    private static Retrofit getClient() {
+    private static synchronized Retrofit getClient() {
         if (retrofit == null) {
-            OkHttpClient client = new OkHttpClient.Builder()
+            httpClient = new OkHttpClient.Builder()
+                    .eventListenerFactory(NetworkTracer.factory("appwrite"))
+                    .dns(ApiClient.dns())
                     .connectTimeout(30, TimeUnit.SECONDS)
                     .readTimeout(30, TimeUnit.SECONDS)
                     .writeTimeout(30, TimeUnit.SECONDS)
@@ -36,17 +39,25 @@ public class AppWriteClient {
 
             retrofit = new Retrofit.Builder()
                     .baseUrl(ENDPOINT)
-                    .client(client)
+                    .client(httpClient)
                     .addConverterFactory(GsonConverterFactory.create())
                     .build();
         }
         return retrofit;
     }
 
+    /**
+     * AppWrite's OkHttpClient, whose connection pool every AppWrite call shares
+     */
+    static synchronized OkHttpClient getHttpClient() {
+        getClient();
+        return httpClient;
+    }
+
     /**
      * Get AppWrite API service
      */
-    public static AppWriteApiService getApiService() {
+    public static synchronized AppWriteApiService getApiService() {
         if (apiService == null) {
             apiService = getClient().create(AppWriteApiService.class);
         }
@@ -0,0 +1,133 @@
+package com.riyadhtransport.api;
+
+import com.riyadhtransport.models.StationDeparture;
+import com.riyadhtransport.utils.ResponsePipeline;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import retrofit2.Call;
+
+/**
+ * The backend, RPT and AppWrite calls as futures (see {@link ApiFutures}), for code that
+ * composes several requests: chains, fan-out over route segments, prefetch. Results are
+ * delivered on the response pipeline's background pool unless another executor is set,
+ * so callers hop to the main thread themselves before touching views.
+ *
+ * <p>Each call takes the {@link Deadline} of the chain it belongs to and gets only the
+ * time left on it. All of these calls only read data, so transient failures are retried
+ * with backoff within the deadline and a shared retry budget.
+ */
+public class AsyncApi {
+    private static final long DEFAULT_TIMEOUT_MS = 15000;
+
+    // Up to 2 retries; retries may add at most 10% to the request rate once the 10 spare tokens are spent
+    private static final RetryPolicy retryPolicy = new RetryPolicy(3, 200, 1000, 0.1, 10);
+
+    private static volatile Executor executor = ResponsePipeline.executor();
+    private static volatile long timeoutMs = DEFAULT_TIMEOUT_MS;
+
+    /**
+     * Executor that completes the futures and runs their dependent stages
+     */
+    public static void setExecutor(Executor newExecutor) {
+        executor = newExecutor;
+    }
+
+    /**
+     * Deadline for calls made with {@link #body(Call)}
+     */
+    public static void setTimeoutMs(long newTimeoutMs) {
+        timeoutMs = newTimeoutMs;
+    }
+
+    /**
+     * Metro arrivals, with each attempt reported to {@code breaker} and given at most
+     * {@code attemptTimeoutMs} from when it is sent
+     */
+    public static CompletableFuture<Map<String, Object>> getMetroArrivals(Map<String, String> stationName,
+                                                                        CircuitBreaker breaker,
+                                                                        long attemptTimeoutMs,
+                                                                        Deadline deadline) {
+        return body(breaker.monitor(ApiClient.getApiService().getMetroArrivals(stationName)),
+                RequestScheduler.Priority.VISIBLE_REFRESH, attemptTimeoutMs, deadline);
+    }
+
+    /**
+     * Bus arrivals, with each attempt reported to {@code breaker} and given at most
+     * {@code attemptTimeoutMs} from when it is sent
+     */
+    public static CompletableFuture<Map<String, Object>> getBusArrivals(Map<String, String> stationName,
+                                                                      CircuitBreaker breaker,
+                                                                      long attemptTimeoutMs,
+                                                                      Deadline deadline) {
+        return body(breaker.monitor(ApiClient.getApiService().getBusArrivals(stationName)),
+                RequestScheduler.Priority.VISIBLE_REFRESH, attemptTimeoutMs, deadline);
+    }
+
+    public static CompletableFuture<Map<String, Object>> getStationId(Map<String, String> stationName,
+                                                                    Deadline deadline) {
+        return body(ApiClient.getApiService().getStationId(stationName), deadline);
+    }
+
+    public static CompletableFuture<Map<String, Object>> refineTerminus(Map<String, String> request,
+                                                                      Deadline deadline) {
+        return body(ApiClient.getApiService().refineTerminus(request), deadline);
+    }
+
+    public static CompletableFuture<List<StationDeparture>> getStationDepartures(Map<String, String> fields,
+                                                                               Deadline deadline) {
+        return body(ApiClient.getRptStationService().getStationDepartures(fields), deadline);
+    }
+
+    public static CompletableFuture<Map<String, Object>> listDocuments(String collectionId, List<String> queries,
+                                                                     Deadline deadline) {
+        return body(AppWriteClient.getApiService().listDocuments(
+                AppWriteClient.DATABASE_ID, collectionId, AppWriteClient.PROJECT_ID, queries), deadline);
+    }
+
+    /**
+     * Any other idempotent call, on its own deadline
+     */
+    public static <T> CompletableFuture<T> body(Call<T> call) {
+        return body(call, Deadline.after(timeoutMs));
+    }
+
+    /**
+     * Any other idempotent call. These calls refresh what is on screen, so they are
+     * scheduled as {@link RequestScheduler.Priority#VISIBLE_REFRESH}.
+     */
+    public static <T> CompletableFuture<T> body(Call<T> call, Deadline deadline) {
+        return body(call, RequestScheduler.Priority.VISIBLE_REFRESH, deadline);
+    }
+
+    /**
+     * Any other idempotent call at the given priority. Each attempt sends a fresh copy of
+     * {@code call} and is bounded by the time left on the deadline. That includes time
+     * spent waiting in the scheduler's queue, so a call can run out of time before it is
+     * sent when many requests are queued; steps that must not lose their time that way
+     * use {@link #body(Call, RequestScheduler.Priority, long, Deadline)}.
+     */
+    public static <T> CompletableFuture<T> body(Call<T> call, RequestScheduler.Priority priority,
+                                                Deadline deadline) {
+        return body(call, priority, 0, deadline);
+    }
+
+    /**
+     * Like {@link #body(Call, RequestScheduler.Priority, Deadline)}, but each attempt also
+     * gets at most {@code attemptTimeoutMs} (0 for no limit) once it is sent. OkHttp starts
+     * that timer when the scheduler dispatches the call, so queueing doesn't use it up.
+     */
+    public static <T> CompletableFuture<T> body(Call<T> call, RequestScheduler.Priority priority,
+                                                long attemptTimeoutMs, Deadline deadline) {
+        return retryPolicy.run(deadline, attemptDeadline -> {
+            Call<T> attempt = RequestScheduler.schedule(call.clone(), priority);
+            if (attemptTimeoutMs > 0) {
+                attempt.timeout().timeout(attemptTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            return ApiFutures.withTimeout(ApiFutures.body(attempt, executor),
+                    attemptDeadline.remainingMs(), TimeUnit.MILLISECONDS);
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package com.riyadhtransport.api;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.riyadhtransport.utils.Metrics;
+import java.io.IOException;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Opens connections to the backend, RPT and AppWrite hosts at startup, so the first
+ * route search, arrivals lookup and alerts fetch don't pay for DNS, TCP and TLS. Each
+ * host gets a HEAD request through its own client. That leaves an idle connection in
+ * the client's pool, and OkHttp keeps it for five minutes, and the DNS answer in
+ * {@link CachingDns}. Nominatim is only resolved, since place search may never be used.
+ */
+public class ConnectionWarmer {
+    private static final String TAG = "ConnectionWarmer";
+
+    private static boolean started = false;
+    private static boolean enabled = true;
+
+    /**
+     * Warm every host once per process, in the background. Call after
+     * {@link ApiClient#init}.
+     */
+    public static synchronized void warm() {
+        if (started || !enabled) {
+            return;
+        }
+        started = true;
+        // Building the clients loads TLS and platform classes, so keep it off the main thread
+        new Thread(() -> {
+            connect("backend", ApiClient.getBackendHttpClient(), ApiClient.BASE_URL);
+            connect("rpt", ApiClient.getRptHttpClient(), ApiClient.RPT_BASE_URL);
+            connect("appwrite", AppWriteClient.getHttpClient(), AppWriteClient.ENDPOINT);
+            ApiClient.dns().prefetch(HttpUrl.get(ApiClient.NOMINATIM_URL).host());
+        }, "connection-warmer").start();
+    }
+
+    /**
+     * Turn warming off, e.g. in tests that launch MainActivity
+     */
+    public static synchronized void setEnabled(boolean newEnabled) {
+        enabled = newEnabled;
+    }
+
+    private static void connect(String name, OkHttpClient client, String url) {
+        Metrics.Histogram connectMs = Metrics.histogram("warmup." + name + "_ms");
+        long startNanos = System.nanoTime();
+        Request request = new Request.Builder().url(url).head().build();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                // Any status will do; the connection is what we came for
+                response.close();
+                connectMs.recordSinceNanos(startNanos);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                Log.w(TAG, "Failed to warm " + name + ": " + e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,309 @@
+package com.riyadhtransport.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.riyadhtransport.utils.Metrics;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Lightweight per-call network tracing.
+ * Each call records its phase timings (DNS, connect, TLS, time to first byte, body),
+ * byte counts, cache status and outcome. Finished calls are sampled into a fixed-size
+ * in-memory ring buffer; failed and slow calls are always kept. Nothing is logged and
+ * no bodies are copied, so this is cheap enough to leave on in release builds.
+ * Every call's duration also goes to a {@link Metrics} histogram per client and path.
+ */
+public class NetworkTracer {
+    private static final int CAPACITY = 200;
+    // Calls slower than this are always kept regardless of sampling
+    private static final long SLOW_CALL_MS = 2000;
+
+    private static final TraceRecord[] ring = new TraceRecord[CAPACITY];
+    private static int next = 0;
+    private static int size = 0;
+    private static volatile double sampleRate = 0.1;
+
+    private static final AtomicLong callsSeen = new AtomicLong();
+    private static final AtomicLong callsRecorded = new AtomicLong();
+
+    /**
+     * EventListener factory for an OkHttpClient. {@code clientName} tags each record
+     * with the client it came from ("backend", "rpt", ...).
+     */
+    public static EventListener.Factory factory(String clientName) {
+        return call -> new CallTrace(clientName);
+    }
+
+    /**
+     * Fraction of successful calls kept, from 0 (failures and slow calls only) to 1 (every call)
+     */
+    public static void setSampleRate(double rate) {
+        sampleRate = Math.max(0, Math.min(1, rate));
+    }
+
+    /**
+     * Recorded calls, oldest first
+     */
+    public static synchronized List<TraceRecord> snapshot() {
+        List<TraceRecord> records = new ArrayList<>(size);
+        int start = (next - size + CAPACITY) % CAPACITY;
+        for (int i = 0; i < size; i++) {
+            records.add(ring[(start + i) % CAPACITY]);
+        }
+        return records;
+    }
+
+    public static synchronized void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = null;
+        }
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * Export the recorded calls as pretty-printed JSON for sharing from a debug build
+     */
+    public static String exportJson() {
+        TraceExport export = new TraceExport();
+        export.exportedAtMs = System.currentTimeMillis();
+        export.sampleRate = sampleRate;
+        export.callsSeen = callsSeen.get();
+        export.callsRecorded = callsRecorded.get();
+        export.records = snapshot();
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        return gson.toJson(export);
+    }
+
+    private static void finish(TraceRecord record) {
+        callsSeen.incrementAndGet();
+        // Every call feeds the metrics, before sampling; paths are the fixed endpoints
+        Metrics.histogram("http." + record.client + record.path + "_ms").record(record.totalMs);
+        if (!"ok".equals(record.outcome)) {
+            Metrics.counter("http." + record.client + ".errors").increment();
+        }
+        // Any answer from the server says something about the link; cache hits don't
+        boolean answered = "ok".equals(record.outcome) || "http_error".equals(record.outcome);
+        if (answered && !"hit".equals(record.cache)) {
+            NetworkQualityEstimator.onCall(record.tcpConnectMs, record.responseBytes,
+                    record.responseBodyMs);
+        }
+        boolean keep = !"ok".equals(record.outcome)
+                || record.totalMs >= SLOW_CALL_MS
+                || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        if (!keep) {
+            return;
+        }
+        callsRecorded.incrementAndGet();
+        synchronized (NetworkTracer.class) {
+            ring[next] = record;
+            next = (next + 1) % CAPACITY;
+            if (size < CAPACITY) {
+                size++;
+            }
+        }
+    }
+
+    /**
+     * One finished call. Durations are in milliseconds, -1 when the phase did not happen
+     * (e.g. no DNS or connect on a reused connection).
+     */
+    public static class TraceRecord {
+        public String client;
+        public long startedAtMs;
+        public String method;
+        public String host;
+        public String path;
+        public int status = -1;
+        // "ok", "http_error", "failed" or "canceled"
+        public String outcome;
+        public String error;
+        // "hit", "conditional_hit", "miss" or "none" when the client has no cache
+        public String cache = "none";
+        public boolean connectionReused = true;
+        public String protocol;
+
+        public long dnsMs = -1;
+        public long connectMs = -1;
+        // The TCP handshake alone, without TLS: one round trip
+        public long tcpConnectMs = -1;
+        public long tlsMs = -1;
+        public long ttfbMs = -1;
+        public long responseBodyMs = -1;
+        public long totalMs;
+
+        public long requestBytes;
+        public long responseBytes;
+    }
+
+    private static class TraceExport {
+        long exportedAtMs;
+        double sampleRate;
+        long callsSeen;
+        long callsRecorded;
+        List<TraceRecord> records;
+    }
+
+    /**
+     * Collects timestamps for a single call. OkHttp delivers a call's events
+     * sequentially, so no locking is needed until the record is published.
+     */
+    private static class CallTrace extends EventListener {
+        private final TraceRecord record = new TraceRecord();
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long tlsStart;
+        private long requestStart;
+        private long bodyStart;
+        private boolean finished;
+
+        CallTrace(String clientName) {
+            record.client = clientName;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            callStart = System.nanoTime();
+            record.startedAtMs = System.currentTimeMillis();
+            Request request = call.request();
+            record.method = request.method();
+            record.host = request.url().host();
+            // Path only; query strings may carry user input such as search text
+            record.path = request.url().encodedPath();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            record.dnsMs = elapsedMs(dnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+            record.connectionReused = false;
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            tlsStart = System.nanoTime();
+            record.tcpConnectMs = elapsedMs(connectStart);
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            record.tlsMs = elapsedMs(tlsStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                               Protocol protocol) {
+            record.connectMs = elapsedMs(connectStart);
+            if (record.tcpConnectMs < 0) {
+                // Plain HTTP: the whole connect is the TCP handshake
+                record.tcpConnectMs = record.connectMs;
+            }
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            Protocol protocol = connection.protocol();
+            record.protocol = protocol != null ? protocol.toString() : null;
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            requestStart = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            record.requestBytes = byteCount;
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            if (requestStart != 0) {
+                record.ttfbMs = elapsedMs(requestStart);
+            }
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            record.status = response.code();
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            bodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            record.responseBytes = byteCount;
+            record.responseBodyMs = elapsedMs(bodyStart);
+        }
+
+        @Override
+        public void cacheHit(Call call, Response response) {
+            record.cache = "hit";
+            record.status = response.code();
+        }
+
+        @Override
+        public void cacheConditionalHit(Call call, Response cachedResponse) {
+            record.cache = "conditional_hit";
+        }
+
+        @Override
+        public void cacheMiss(Call call) {
+            record.cache = "miss";
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            record.outcome = record.status >= 400 ? "http_error" : "ok";
+            publish();
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            record.outcome = call.isCanceled() ? "canceled" : "failed";
+            record.error = ioe.getClass().getSimpleName();
+            publish();
+        }
+
+        private void publish() {
+            // callEnd or callFailed fires once, but guard in case both are reported
+            if (finished) {
+                return;
+            }
+            finished = true;
+            record.totalMs = elapsedMs(callStart);
+            finish(record);
+        }
+
+        private static long elapsedMs(long startNanos) {
+            return (System.nanoTime() - startNanos) / 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.riyadhtransport.fragments;
+
+import androidx.fragment.app.Fragment;
+
+/**
+ * Base class for the main ViewPager2 tabs that starts network and location work only
+ * when the tab is first shown. FragmentStateAdapter only resumes the current page, so
+ * the first onResume after the view is created is when the tab becomes visible.
+ */
+public abstract class LazyTabFragment extends Fragment {
+    private boolean activated = false;
+
+    /**
+     * Called once per view, on the main thread, when the tab is first visible
+     */
+    protected abstract void onFirstVisible();
+
+    /**
+     * Whether {@link #onFirstVisible()} has run for the current view
+     */
+    protected boolean isActivated() {
+        return activated;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        if (!activated) {
+            activated = true;
+            onFirstVisible();
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        activated = false;
+    }
+}
@@ -15,7 +15,6 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import androidx.recyclerview.widget.RecyclerView;
@@ -27,8 +26,12 @@ import com.riyadhtransport.LineStationsActivity;
 import com.riyadhtransport.R;
 import com.riyadhtransport.adapters.LineAdapter;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.RequestScheduler;
 import com.riyadhtransport.models.Line;
 import com.riyadhtransport.utils.LineColorHelper;
+import com.riyadhtransport.utils.LocaleHelper;
+import com.riyadhtransport.utils.ResponsePipeline;
+import com.riyadhtransport.utils.Metrics;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -39,16 +42,25 @@ import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
-public class LinesFragment extends Fragment {
+public class LinesFragment extends LazyTabFragment {
 
     private static final String PREFS_NAME = "LinesCache";
     private static final long CACHE_DURATION = 7 * 24 * 60 * 60 * 1000L; // 1 week in milliseconds
 
+    private static final Metrics.Counter CACHE_HIT = Metrics.counter("lines.cache_hit");
+    private static final Metrics.Counter CACHE_MISS = Metrics.counter("lines.cache_miss");
+    private static final Metrics.Histogram LOAD_MS = Metrics.histogram("lines.load_ms");
+    private static final Metrics.Counter PREFETCH_USED = Metrics.counter("tabs.lines_prefetch_used");
+
+    // Cache parsed off the main thread by prefetch(), with the language it was read for
+    private static volatile PrefetchedLines prefetched;
+
     private TextInputEditText searchInput;
     private RecyclerView linesRecycler;
     private LineAdapter lineAdapter;
     private ProgressBar progressBar;
     private boolean linesLoaded = false;
+    private long fetchStartNanos;
 
     @Nullable
     @Override
@@ -84,13 +96,31 @@ public class LinesFragment extends Fragment {
             @Override
             public void afterTextChanged(Editable s) {}
         });
+    }
 
+    @Override
+    protected void onFirstVisible() {
         // Load lines data (with caching)
         if (!linesLoaded) {
             loadLines();
         }
     }
 
+    /**
+     * Read and parse the lines cache in the background so the tab opens without
+     * deserializing it on the main thread. Lines are not fetched from the network.
+     */
+    public static void prefetch(Context context) {
+        Context appContext = context.getApplicationContext();
+        String language = LocaleHelper.getLanguageCode(appContext);
+        new Thread(() -> {
+            List<Line> lines = readCache(appContext, language);
+            if (lines != null && !lines.isEmpty()) {
+                prefetched = new PrefetchedLines(language, lines);
+            }
+        }, "lines-prefetch").start();
+    }
+
     // MODIFIED: Removed background refresh logic
     private void loadLines() {
         // Check cache first
@@ -98,15 +128,18 @@ public class LinesFragment extends Fragment {
         if (cachedLines != null && !cachedLines.isEmpty()) {
             lineAdapter.setLines(cachedLines); // Show cached data immediately
             linesLoaded = true;
+            CACHE_HIT.increment();
             // We will NOT refresh in the background. We'll wait for the cache to expire.
         } else {
             // Cache miss or expired - fetch from API
+            CACHE_MISS.increment();
             fetchLinesFromApi();
         }
     }
 
     private void fetchLinesFromApi() {
         progressBar.setVisibility(View.VISIBLE);
+        fetchStartNanos = System.nanoTime();
         List<Line> allLines = new ArrayList<>();
 
         // Load metro lines
@@ -176,21 +209,16 @@ public class LinesFragment extends Fragment {
                 JsonObject requestBody = new JsonObject();
                 requestBody.addProperty("line", line.getId());
 
-                ApiClient.getApiService().viewMetro(requestBody).enqueue(new Callback<JsonObject>() {
+                // Summaries for every line at once; a tap on a line goes ahead of them
+                ResponsePipeline.enqueue(RequestScheduler.schedule(ApiClient.getApiService().viewMetro(requestBody),
+                                RequestScheduler.Priority.BACKGROUND_PREFETCH), "lines.metro_summary",
+                        LinesFragment::parseMetroStations, new ResponsePipeline.Consumer<List<String>>() {
                     @Override
-                    public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
-                        if (response.isSuccessful() && response.body() != null) {
-                            JsonObject data = response.body();
-                            List<String> stations = new ArrayList<>();
-                            if (data.has("stations")) {
-                                data.getAsJsonArray("stations").forEach(element ->
-                                        stations.add(element.getAsString()));
-                            }
-                            if (stations.size() >= 2) {
-                                String firstStation = stations.get(0);
-                                String lastStation = stations.get(stations.size() - 1);
-                                line.setRouteSummary(firstStation + " - " + lastStation);
-                            }
+                    public void onResult(List<String> stations) {
+                        if (stations != null && stations.size() >= 2) {
+                            String firstStation = stations.get(0);
+                            String lastStation = stations.get(stations.size() - 1);
+                            line.setRouteSummary(firstStation + " - " + lastStation);
                         }
                         if (counter.decrementAndGet() == 0) {
                             allLinesLoaded(allLines);
@@ -198,7 +226,7 @@ public class LinesFragment extends Fragment {
                     }
 
                     @Override
-                    public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
+                    public void onFailure(@NonNull Throwable t) {
                         if (counter.decrementAndGet() == 0) {
                             allLinesLoaded(allLines);
                         }
@@ -209,15 +237,12 @@ public class LinesFragment extends Fragment {
                 JsonObject requestBody = new JsonObject();
                 requestBody.addProperty("line", line.getId());
 
-                ApiClient.getApiService().viewBus(requestBody).enqueue(new Callback<JsonObject>() {
+                ResponsePipeline.enqueue(RequestScheduler.schedule(ApiClient.getApiService().viewBus(requestBody),
+                                RequestScheduler.Priority.BACKGROUND_PREFETCH), "lines.bus_summary",
+                        LinesFragment::parseBusDirections, new ResponsePipeline.Consumer<List<String>>() {
                     @Override
-                    public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
-                        if (response.isSuccessful() && response.body() != null) {
-                            JsonObject data = response.body();
-                            List<String> directions = new ArrayList<>();
-                            for (Map.Entry<String, com.google.gson.JsonElement> entry : data.entrySet()) {
-                                directions.add(entry.getKey());
-                            }
+                    public void onResult(List<String> directions) {
+                        if (directions != null && isAdded()) {
                             if (directions.size() >= 2) {
                                 line.setRouteSummary(directions.get(0) + " - " + directions.get(1));
                             } else if (directions.size() == 1) {
@@ -230,7 +255,7 @@ public class LinesFragment extends Fragment {
                     }
 
                     @Override
-                    public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
+                    public void onFailure(@NonNull Throwable t) {
                         if (counter.decrementAndGet() == 0) {
                             allLinesLoaded(allLines);
                         }
@@ -240,6 +265,36 @@ public class LinesFragment extends Fragment {
         }
     }
 
+    /**
+     * Station names of a viewmtr response, or null if it failed. Runs in the background.
+     */
+    private static List<String> parseMetroStations(Response<JsonObject> response) {
+        if (!response.isSuccessful() || response.body() == null) {
+            return null;
+        }
+        JsonObject data = response.body();
+        List<String> stations = new ArrayList<>();
+        if (data.has("stations")) {
+            data.getAsJsonArray("stations").forEach(element ->
+                    stations.add(element.getAsString()));
+        }
+        return stations;
+    }
+
+    /**
+     * Direction names of a viewbus response, or null if it failed. Runs in the background.
+     */
+    private static List<String> parseBusDirections(Response<JsonObject> response) {
+        if (!response.isSuccessful() || response.body() == null) {
+            return null;
+        }
+        List<String> directions = new ArrayList<>();
+        for (Map.Entry<String, com.google.gson.JsonElement> entry : response.body().entrySet()) {
+            directions.add(entry.getKey());
+        }
+        return directions;
+    }
+
     // MODIFIED: Removed isBackgroundUpdate flag
     private void allLinesLoaded(List<Line> allLines) {
         if (getActivity() != null) {
@@ -247,6 +302,7 @@ public class LinesFragment extends Fragment {
                 progressBar.setVisibility(View.GONE);
                 lineAdapter.setLines(allLines); // This will refresh the list with summaries
                 linesLoaded = true;
+                LOAD_MS.recordSinceNanos(fetchStartNanos);
                 saveToCache(allLines); // Save the fresh data
             });
         }
@@ -255,14 +311,30 @@ public class LinesFragment extends Fragment {
 
     private String getCacheKey(String baseName) {
         // Create language-specific cache keys
-        String language = com.riyadhtransport.utils.LocaleHelper.getLanguageCode(requireContext());
+        return getCacheKey(baseName, LocaleHelper.getLanguageCode(requireContext()));
+    }
+
+    private static String getCacheKey(String baseName, String language) {
         return baseName + "_" + language;
     }
 
     private List<Line> loadFromCache() {
-        SharedPreferences prefs = requireContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String keyLines = getCacheKey("cached_lines");
-        String keyTimestamp = getCacheKey("cache_timestamp");
+        String language = LocaleHelper.getLanguageCode(requireContext());
+        PrefetchedLines ready = prefetched;
+        if (ready != null) {
+            prefetched = null;
+            if (ready.language.equals(language)) {
+                PREFETCH_USED.increment();
+                return ready.lines;
+            }
+        }
+        return readCache(requireContext(), language);
+    }
+
+    private static List<Line> readCache(Context context, String language) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String keyLines = getCacheKey("cached_lines", language);
+        String keyTimestamp = getCacheKey("cache_timestamp", language);
 
         long timestamp = prefs.getLong(keyTimestamp, 0);
         long currentTime = System.currentTimeMillis();
@@ -290,17 +362,32 @@ public class LinesFragment extends Fragment {
         SharedPreferences prefs = requireContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         String keyLines = getCacheKey("cached_lines");
         String keyTimestamp = getCacheKey("cache_timestamp");
+        List<Line> snapshot = new ArrayList<>(lines);
 
-        Gson gson = new Gson();
-        String json = gson.toJson(lines);
+        // Serializing every line takes a few frames, so do it in the background
+        ResponsePipeline.submit("lines.save_cache", () -> {
+            Gson gson = new Gson();
+            String json = gson.toJson(snapshot);
 
-        prefs.edit()
-            .putString(keyLines, json)
-            .putLong(keyTimestamp, System.currentTimeMillis())
-            .apply();
+            prefs.edit()
+                .putString(keyLines, json)
+                .putLong(keyTimestamp, System.currentTimeMillis())
+                .apply();
+            return null;
+        }, new ResponsePipeline.Consumer<Void>() {
+            @Override
+            public void onResult(Void result) {
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                android.util.Log.e("LinesFragment", "Failed to cache lines", t);
+            }
+        });
     }
 
     public static void clearCache(Context context) {
+        prefetched = null;
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         prefs.edit().clear().apply();
     }
@@ -318,17 +405,12 @@ public class LinesFragment extends Fragment {
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("line", line.getId());
 
-        ApiClient.getApiService().viewMetro(requestBody).enqueue(new Callback<JsonObject>() {
+        ResponsePipeline.enqueue(RequestScheduler.schedule(ApiClient.getApiService().viewMetro(requestBody),
+                        RequestScheduler.Priority.INTERACTIVE), "lines.metro_details",
+                LinesFragment::parseMetroStations, new ResponsePipeline.Consumer<List<String>>() {
             @Override
-            public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    JsonObject data = response.body();
-                    List<String> stations = new ArrayList<>();
-                    if (data.has("stations")) {
-                        data.getAsJsonArray("stations").forEach(element ->
-                                stations.add(element.getAsString()));
-                    }
-
+            public void onResult(List<String> stations) {
+                if (stations != null && isAdded()) {
                     // Set route summary for metro: first - last station
                     // This is still useful in case the summary failed to load initially
                     if (stations.size() >= 2 && (line.getRouteSummary() == null || line.getRouteSummary().isEmpty())) {
@@ -342,7 +424,10 @@ public class LinesFragment extends Fragment {
             }
 
             @Override
-            public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
+            public void onFailure(@NonNull Throwable t) {
+                if (!isAdded()) {
+                    return;
+                }
                 Toast.makeText(requireContext(),
                         getString(R.string.error_network),
                         Toast.LENGTH_SHORT).show();
@@ -354,7 +439,7 @@ public class LinesFragment extends Fragment {
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("line", line.getId());
 
-        ApiClient.getApiService().viewBus(requestBody).enqueue(new Callback<JsonObject>() {
+        RequestScheduler.schedule(ApiClient.getApiService().viewBus(requestBody), RequestScheduler.Priority.INTERACTIVE).enqueue(new Callback<JsonObject>() {
             @Override
             public void onResponse(@NonNull Call<JsonObject> call, @NonNull Response<JsonObject> response) {
                 if (response.isSuccessful() && response.body() != null) {
@@ -443,4 +528,14 @@ public class LinesFragment extends Fragment {
         intent.putStringArrayListExtra("stations", new ArrayList<>(stations));
         startActivity(intent);
     }
+
+    private static class PrefetchedLines {
+        final String language;
+        final List<Line> lines;
+
+        PrefetchedLines(String language, List<Line> lines) {
+            this.language = language;
+            this.lines = lines;
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.riyadhtransport.fragments;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.Editable;
@@ -15,7 +16,6 @@ import android.widget.ProgressBar;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.textfield.TextInputEditText;
@@ -26,35 +26,50 @@ import com.riyadhtransport.R;
 import com.riyadhtransport.SearchLocationActivity;
 import com.riyadhtransport.adapters.RouteSegmentAdapter;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.NetworkQualityEstimator;
+import com.riyadhtransport.api.RequestScheduler;
 import com.riyadhtransport.models.Route;
 import com.riyadhtransport.models.RouteSegment;
 import com.riyadhtransport.utils.LocationHelper;
 import com.riyadhtransport.utils.JourneyTimeCalculator;
 import com.riyadhtransport.utils.AlertsManager;
+import com.riyadhtransport.utils.ArrivalAnimationTicker;
+import com.riyadhtransport.utils.Metrics;
+import com.riyadhtransport.utils.StartupTrace;
+import com.riyadhtransport.utils.StationRepository;
+import com.riyadhtransport.utils.StationSearchIndex;
+import com.riyadhtransport.utils.RouteOverlayLayer;
+import com.riyadhtransport.utils.ResponsePipeline;
+import com.riyadhtransport.utils.LineShapeRepository;
 import com.riyadhtransport.models.LineAlert;
+import com.riyadhtransport.models.LineShape;
 import com.riyadhtransport.adapters.AlertAdapter;
 import android.os.Handler;
 import android.os.Looper;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.Set;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
+import org.osmdroid.util.BoundingBox;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
-import org.osmdroid.views.overlay.Polyline;
 import android.graphics.Color;
-import android.graphics.DashPathEffect;
-import android.graphics.Paint;
 
-public class RouteFragment extends Fragment {
+public class RouteFragment extends LazyTabFragment {
     
     private static final String TAG = "RouteFragment";
     private static final long REFRESH_INTERVAL_MS = 60000; // 60 seconds
     
+    private static final Metrics.Counter REFRESHES = Metrics.counter("refresh.route");
+    private static final Metrics.Histogram SEARCH_MS = Metrics.histogram("route.search_ms");
+    
     private TextInputEditText startInput;
     private TextInputEditText endInput;
     private Button findRouteButton;
@@ -72,8 +87,10 @@ public class RouteFragment extends Fragment {
     private Map<String, Station> stationMap = new HashMap<>();
     
     private Route currentRoute;
+    private AlertsManager.AlertsListener alertsListener;
     private Handler refreshHandler;
     private Runnable refreshRunnable;
+    private CompletableFuture<Integer> journeyCalculation;
     
     private LinearLayout alertsContainer;
     private RecyclerView alertsRecycler;
@@ -123,30 +140,50 @@ public class RouteFragment extends Fragment {
         
         endInput.setFocusable(false);
         endInput.setOnClickListener(v -> openSearchActivity(SearchLocationActivity.REQUEST_SEARCH_END));
+    }
 
+    @Override
+    protected void onFirstVisible() {
         // Load stations for map route drawing (not for autocomplete)
         loadStations();
         
-        // Get current location
-        getCurrentLocation();
-        
-        // Load general alerts
-        loadGeneralAlerts();
+        // Location and alerts are not needed for the first frame
+        StartupTrace.afterFirstFrame(getView(), () -> {
+            if (!isAdded()) {
+                return;
+            }
+            // Get current location
+            getCurrentLocation();
+            
+            // Load general alerts
+            loadGeneralAlerts();
+        });
+    }
+
+    /**
+     * Warm the shared station list before the route tab is shown
+     */
+    public static void prefetch(Context context) {
+        StationRepository.getStations(context, new StationRepository.StationsCallback() {
+            @Override
+            public void onStationsLoaded(List<Station> stations, StationSearchIndex searchIndex) {}
+
+            @Override
+            public void onError(String message) {}
+        });
     }
     
     private void loadGeneralAlerts() {
+        // Keep the banner current when another screen refreshes the shared alerts
+        if (alertsListener == null) {
+            alertsListener = alerts -> showGeneralAlerts(alerts.getGeneral());
+            AlertsManager.addListener(alertsListener);
+        }
         AlertsManager.getGeneralAlerts(requireContext(), new AlertsManager.AlertsCallback() {
             @Override
             public void onSuccess(List<LineAlert> alerts) {
                 if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        if (!alerts.isEmpty()) {
-                            alertAdapter.setAlerts(alerts);
-                            alertsContainer.setVisibility(View.VISIBLE);
-                        } else {
-                            alertsContainer.setVisibility(View.GONE);
-                        }
-                    });
+                    getActivity().runOnUiThread(() -> showGeneralAlerts(alerts));
                 }
             }
             
@@ -160,33 +197,43 @@ public class RouteFragment extends Fragment {
             }
         });
     }
+
+    private void showGeneralAlerts(List<LineAlert> alerts) {
+        if (getView() == null) {
+            return;
+        }
+        if (!alerts.isEmpty()) {
+            alertAdapter.setAlerts(alerts);
+            alertsContainer.setVisibility(View.VISIBLE);
+        } else {
+            alertsContainer.setVisibility(View.GONE);
+        }
+    }
     
     private void loadStations() {
-        ApiClient.getApiService().getStations().enqueue(new Callback<List<Station>>() {
+        // Shared with SearchLocationActivity; served from memory or the disk snapshot when possible
+        StationRepository.getStations(requireContext(), new StationRepository.StationsCallback() {
             @Override
-            public void onResponse(@NonNull Call<List<Station>> call,
-                                   @NonNull Response<List<Station>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    allStations = response.body();
-
-                    // Build station map for route drawing
-                    for (Station station : allStations) {
-                        String name = station.getDisplayName();
-                        stationMap.put(name, station);
-                    }
-                    // Note: We don't set up autocomplete adapter here because
-                    // SearchLocationActivity handles the search UI
-                } else {
-                    Toast.makeText(requireContext(),
-                            R.string.error_network,
-                            Toast.LENGTH_SHORT).show();
+            public void onStationsLoaded(List<Station> stations, StationSearchIndex searchIndex) {
+                allStations = stations;
+
+                // Build station map for route drawing
+                stationMap.clear();
+                for (Station station : allStations) {
+                    String name = station.getDisplayName();
+                    stationMap.put(name, station);
                 }
+                // Note: We don't set up autocomplete adapter here because
+                // SearchLocationActivity handles the search UI
             }
 
             @Override
-            public void onFailure(@NonNull Call<List<Station>> call, @NonNull Throwable t) {
+            public void onError(String message) {
+                if (!isAdded()) {
+                    return;
+                }
                 Toast.makeText(requireContext(),
-                        getString(R.string.error_network) + ": " + t.getMessage(),
+                        getString(R.string.error_network) + ": " + message,
                         Toast.LENGTH_SHORT).show();
             }
         });
@@ -286,43 +333,42 @@ public class RouteFragment extends Fragment {
         requestBody.put("start_lng", startLng);
         requestBody.put("end_lat", endLat);
         requestBody.put("end_lng", endLng);
+        long startNanos = System.nanoTime();
 
-        ApiClient.getApiService().findRouteFromCoordinates(requestBody)
-                .enqueue(new Callback<Map<String, Object>>() {
+        // The route is converted in the background; only the parsed Route reaches the UI thread
+        ResponsePipeline.enqueue(RequestScheduler.schedule(
+                        ApiClient.getApiService().findRouteFromCoordinates(requestBody), RequestScheduler.Priority.INTERACTIVE),
+                "route.search", RouteFragment::parseRouteResponse,
+                new ResponsePipeline.Consumer<RouteResult>() {
             @Override
-            public void onResponse(@NonNull Call<Map<String, Object>> call,
-                                   @NonNull Response<Map<String, Object>> response) {
+            public void onResult(RouteResult result) {
+                if (!isAdded()) {
+                    return;
+                }
                 progressBar.setVisibility(View.GONE);
-                if (response.isSuccessful() && response.body() != null) {
-                    Map<String, Object> responseBody = response.body();
-
-                    if (responseBody.containsKey("routes")) {
-                        List<Map<String, Object>> routes =
-                                (List<Map<String, Object>>) responseBody.get("routes");
-
-                        if (routes != null && !routes.isEmpty()) {
-                            Map<String, Object> route = routes.get(0);
-                            displayRoute(route);
-                        } else {
-                            Toast.makeText(requireContext(),
-                                    R.string.no_route_found,
-                                    Toast.LENGTH_SHORT).show();
-                        }
-                    } else if (responseBody.containsKey("error")) {
-                        String error = (String) responseBody.get("error");
-                        Toast.makeText(requireContext(),
-                                getString(R.string.error) + ": " + error,
-                                Toast.LENGTH_SHORT).show();
-                    }
-                } else {
+                if (result.failed) {
                     Toast.makeText(requireContext(),
                             R.string.error_failed_route,
                             Toast.LENGTH_SHORT).show();
+                } else if (result.error != null) {
+                    Toast.makeText(requireContext(),
+                            getString(R.string.error) + ": " + result.error,
+                            Toast.LENGTH_SHORT).show();
+                } else if (result.route != null) {
+                    displayRoute(result.route);
+                    SEARCH_MS.recordSinceNanos(startNanos);
+                } else if (result.noRoute) {
+                    Toast.makeText(requireContext(),
+                            R.string.no_route_found,
+                            Toast.LENGTH_SHORT).show();
                 }
             }
 
             @Override
-            public void onFailure(@NonNull Call<Map<String, Object>> call, @NonNull Throwable t) {
+            public void onFailure(@NonNull Throwable t) {
+                if (!isAdded()) {
+                    return;
+                }
                 progressBar.setVisibility(View.GONE);
                 Toast.makeText(requireContext(),
                         getString(R.string.error_network) + ": " + t.getMessage(),
@@ -331,29 +377,54 @@ public class RouteFragment extends Fragment {
         });
     }
 
-    private void displayRoute(Map<String, Object> route) {
-        try {
-            // Parse route segments
-            Gson gson = new Gson();
-            String json = gson.toJson(route);
-            Route routeObj = gson.fromJson(json, Route.class);
+    /**
+     * Outcome of a route search, built off the main thread
+     */
+    private static class RouteResult {
+        Route route;
+        String error;
+        boolean noRoute;
+        boolean failed;
+    }
+
+    private static RouteResult parseRouteResponse(Response<Map<String, Object>> response) {
+        RouteResult result = new RouteResult();
+        Map<String, Object> responseBody = response.body();
+        if (!response.isSuccessful() || responseBody == null) {
+            result.failed = true;
+            return result;
+        }
 
-            if (routeObj != null && routeObj.getSegments() != null) {
-                currentRoute = routeObj;
-                segmentAdapter.setSegments(routeObj.getSegments());
-                routeDetailsContainer.setVisibility(View.VISIBLE);
+        if (responseBody.containsKey("routes")) {
+            List<Map<String, Object>> routes =
+                    (List<Map<String, Object>>) responseBody.get("routes");
 
-                // Draw route on map
-                drawRouteOnMap(routeObj);
-                
-                // Start live arrival updates
-                setupAutoRefresh();
+            if (routes != null && !routes.isEmpty()) {
+                // Parse route segments straight from the parsed map
+                Gson gson = new Gson();
+                Route routeObj = gson.fromJson(gson.toJsonTree(routes.get(0)), Route.class);
+                if (routeObj != null && routeObj.getSegments() != null) {
+                    result.route = routeObj;
+                }
+            } else {
+                result.noRoute = true;
             }
-        } catch (Exception e) {
-            Toast.makeText(requireContext(),
-                    getString(R.string.error) + ": " + e.getMessage(),
-                    Toast.LENGTH_SHORT).show();
+        } else if (responseBody.containsKey("error")) {
+            result.error = String.valueOf(responseBody.get("error"));
         }
+        return result;
+    }
+
+    private void displayRoute(Route routeObj) {
+        currentRoute = routeObj;
+        segmentAdapter.setSegments(routeObj.getSegments());
+        routeDetailsContainer.setVisibility(View.VISIBLE);
+
+        // Draw route on map
+        drawRouteOnMap(routeObj);
+
+        // Start live arrival updates
+        setupAutoRefresh();
     }
     
     private void setupAutoRefresh() {
@@ -367,7 +438,7 @@ public class RouteFragment extends Fragment {
             @Override
             public void run() {
                 refreshLiveData();
-                refreshHandler.postDelayed(this, REFRESH_INTERVAL_MS);
+                refreshHandler.postDelayed(this, NetworkQualityEstimator.scaleInterval(REFRESH_INTERVAL_MS));
             }
         };
         
@@ -379,8 +450,13 @@ public class RouteFragment extends Fragment {
         if (currentRoute == null) return;
         
         android.util.Log.d(TAG, "Refreshing live arrival data...");
+        REFRESHES.increment();
         
-        JourneyTimeCalculator.calculateLiveJourneyTime(currentRoute, 
+        // A slow refresh must not land after a newer one
+        if (journeyCalculation != null) {
+            journeyCalculation.cancel(true);
+        }
+        journeyCalculation = JourneyTimeCalculator.calculateLiveJourneyTime(currentRoute, 
             new JourneyTimeCalculator.CalculationCallback() {
                 @Override
                 public void onComplete(int newTotalMinutes) {
@@ -399,6 +475,10 @@ public class RouteFragment extends Fragment {
             });
     }
     private void drawRouteOnMap(Route route) {
+        drawRouteOnMap(route, true);
+    }
+
+    private void drawRouteOnMap(Route route, boolean fitToRoute) {
         android.util.Log.d(TAG, "drawRouteOnMap: Starting to draw route with " + 
             (route != null && route.getSegments() != null ? route.getSegments().size() : 0) + " segments");
         
@@ -415,69 +495,84 @@ public class RouteFragment extends Fragment {
             return;
         }
 
-        android.util.Log.d(TAG, "drawRouteOnMap: MapView found, clearing existing overlays");
-        
-        // Clear existing route overlays (keep location overlay)
-        mapView.getOverlays().removeIf(overlay -> overlay instanceof Polyline);
+        RouteOverlayLayer routeLayer = mainActivity.getRouteLayer();
 
-        // Draw each segment
+        // Resolve each segment's points
+        List<RouteOverlayLayer.Segment> shapes = new ArrayList<>();
+        Set<String> missingShapes = new HashSet<>();
         for (RouteSegment segment : route.getSegments()) {
-            Polyline line = new Polyline();
             List<GeoPoint> points = new ArrayList<>();
+            if (!addShapePoints(segment, points)) {
+                if (!segment.isWalking() && segment.getLine() != null) {
+                    missingShapes.add(LineShapeRepository.key(segment.getType(), segment.getLine()));
+                }
+                addSegmentPoints(segment, points);
+            }
+            if (points.isEmpty()) {
+                android.util.Log.w(TAG, "drawRouteOnMap: No points for segment type: " + segment.getType());
+                continue;
+            }
 
-            // Get segment coordinates based on type
             if (segment.isWalking()) {
                 // Walking segment - dotted gray line (matching frontend walk color)
-                line.setColor(Color.parseColor("#6c757d"));
-                line.getPaint().setStrokeWidth(12f); // Increased width for visibility
-                line.getPaint().setStyle(Paint.Style.STROKE);
-                line.getPaint().setStrokeCap(Paint.Cap.ROUND);
-                // Dash pattern: 20px dash, 10px gap
-                line.getPaint().setPathEffect(new DashPathEffect(new float[]{20, 10}, 0));
-
-                // Add start and end points for walking
-                // Note: You may need to parse the from/to objects to get coordinates
-                addSegmentPoints(segment, points);
-
+                shapes.add(RouteOverlayLayer.Segment.walking(points));
             } else if (segment.isMetro()) {
                 // Metro segment - color based on line (matching frontend colors)
                 int lineColor = com.riyadhtransport.utils.LineColorHelper.getMetroLineColor(
                         requireContext(), segment.getLine());
-                line.setColor(lineColor);
-                line.getPaint().setStrokeWidth(10f);
-
-                // Add all station points for metro
-                addSegmentPoints(segment, points);
-
+                shapes.add(RouteOverlayLayer.Segment.transit(points, lineColor));
             } else if (segment.isBus()) {
                 // Bus segment - green line (matching frontend bus color)
-                line.setColor(Color.parseColor("#18a034"));
-                line.getPaint().setStrokeWidth(10f);
-
-                // Add all station points for bus
-                addSegmentPoints(segment, points);
-            }
-
-            if (!points.isEmpty()) {
-                android.util.Log.d(TAG, "drawRouteOnMap: Adding polyline with " + points.size() + " points for segment type: " + segment.getType());
-                line.setPoints(points);
-                mapView.getOverlays().add(line);
-            } else {
-                android.util.Log.w(TAG, "drawRouteOnMap: No points for segment type: " + segment.getType());
+                shapes.add(RouteOverlayLayer.Segment.transit(points, Color.parseColor("#18a034")));
             }
         }
 
-        android.util.Log.d(TAG, "drawRouteOnMap: Total overlays on map: " + mapView.getOverlays().size());
-        mapView.invalidate();
+        routeLayer.setRoute(shapes);
+        android.util.Log.d(TAG, "drawRouteOnMap: Drew " + shapes.size() + " segments");
 
         // Zoom to show the entire route
-        if (!route.getSegments().isEmpty()) {
-            zoomToRoute(mapView, route);
+        BoundingBox bounds = routeLayer.getBounds();
+        if (bounds != null && fitToRoute) {
+            zoomToRoute(mapView, bounds);
+        }
+
+        // Redraw along the real line shapes once they are loaded, without moving the map
+        if (!missingShapes.isEmpty()) {
+            LineShapeRepository.loadShapes(requireContext(), missingShapes, () -> {
+                if (isAdded() && currentRoute == route) {
+                    drawRouteOnMap(route, false);
+                }
+            });
         }
         
         android.util.Log.d(TAG, "drawRouteOnMap: Complete");
     }
 
+    /**
+     * Add a transit segment's points along its line shape, if the shape is loaded and
+     * has both the boarding and alighting station
+     */
+    private boolean addShapePoints(RouteSegment segment, List<GeoPoint> points) {
+        List<String> stations = segment.getStations();
+        if (segment.isWalking() || segment.getLine() == null || stations == null || stations.size() < 2) {
+            return false;
+        }
+        List<LineShape> shapes = LineShapeRepository.getCachedShapes(segment.getType(), segment.getLine());
+        if (shapes == null) {
+            return false;
+        }
+        LineShape.Slice slice = LineShape.slice(shapes,
+                cleanStationNameForLookup(stations.get(0)),
+                cleanStationNameForLookup(stations.get(stations.size() - 1)));
+        if (slice == null) {
+            return false;
+        }
+        for (int i = 0; i < slice.latitudes.length; i++) {
+            points.add(new GeoPoint(slice.latitudes[i], slice.longitudes[i]));
+        }
+        return true;
+    }
+
     private void addSegmentPoints(RouteSegment segment, List<GeoPoint> points) {
         if (segment.isWalking()) {
             // For walking segments, use from/to coordinates
@@ -567,45 +662,22 @@ public class RouteFragment extends Fragment {
         return cleaned;
     }
 
-    private void zoomToRoute(MapView mapView, Route route) {
-        double minLat = 90, maxLat = -90, minLon = 180, maxLon = -180;
-
-        for (RouteSegment segment : route.getSegments()) {
-            if (segment.getStations() != null) {
-                for (String stationName : segment.getStations()) {
-                    Station station = stationMap.get(stationName);
-                    if (station != null) {
-                        double lat = station.getLatitude();
-                        double lon = station.getLongitude();
-
-                        minLat = Math.min(minLat, lat);
-                        maxLat = Math.max(maxLat, lat);
-                        minLon = Math.min(minLon, lon);
-                        maxLon = Math.max(maxLon, lon);
-                    }
-                }
-            }
-        }
-
-        if (minLat != 90) {
-            // Calculate center and zoom
-            double centerLat = (minLat + maxLat) / 2;
-            double centerLon = (minLon + maxLon) / 2;
+    private void zoomToRoute(MapView mapView, BoundingBox bounds) {
+        // Calculate center and zoom
+        double centerLat = (bounds.getLatNorth() + bounds.getLatSouth()) / 2;
+        double centerLon = (bounds.getLonEast() + bounds.getLonWest()) / 2;
 
-            mapView.getController().setCenter(new GeoPoint(centerLat, centerLon));
+        mapView.getController().setCenter(new GeoPoint(centerLat, centerLon));
 
-            // Calculate appropriate zoom level based on bounds
-            double latDiff = maxLat - minLat;
-            double lonDiff = maxLon - minLon;
-            double maxDiff = Math.max(latDiff, lonDiff);
+        // Calculate appropriate zoom level based on bounds
+        double maxDiff = Math.max(bounds.getLatitudeSpan(), bounds.getLongitudeSpan());
 
-            int zoomLevel = 15; // Default
-            if (maxDiff > 0.1) zoomLevel = 12;
-            else if (maxDiff > 0.05) zoomLevel = 13;
-            else if (maxDiff > 0.02) zoomLevel = 14;
+        int zoomLevel = 15; // Default
+        if (maxDiff > 0.1) zoomLevel = 12;
+        else if (maxDiff > 0.05) zoomLevel = 13;
+        else if (maxDiff > 0.02) zoomLevel = 14;
 
-            mapView.getController().setZoom((double) zoomLevel);
-        }
+        mapView.getController().setZoom((double) zoomLevel);
     }
     
     // Public methods for setting locations from map tap
@@ -628,6 +700,7 @@ public class RouteFragment extends Fragment {
     @Override
     public void onResume() {
         super.onResume();
+        ArrivalAnimationTicker.resume(routeSegmentsRecycler);
         if (refreshHandler != null && refreshRunnable != null && currentRoute != null) {
             refreshHandler.post(refreshRunnable);
         }
@@ -636,6 +709,7 @@ public class RouteFragment extends Fragment {
     @Override
     public void onPause() {
         super.onPause();
+        ArrivalAnimationTicker.pause(routeSegmentsRecycler);
         if (refreshHandler != null && refreshRunnable != null) {
             refreshHandler.removeCallbacks(refreshRunnable);
         }
@@ -644,6 +718,15 @@ public class RouteFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        // RecyclerView doesn't detach its rows when the screen goes away
+        ArrivalAnimationTicker.release(routeSegmentsRecycler);
+        if (journeyCalculation != null) {
+            journeyCalculation.cancel(true);
+        }
+        if (alertsListener != null) {
+            AlertsManager.removeListener(alertsListener);
+            alertsListener = null;
+        }
         if (refreshHandler != null && refreshRunnable != null) {
             refreshHandler.removeCallbacks(refreshRunnable);
         }
@@ -1,5 +1,6 @@
 package com.riyadhtransport.fragments;
 
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.Editable;
@@ -11,7 +12,6 @@ import android.widget.ProgressBar;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.textfield.TextInputEditText;
@@ -19,6 +19,7 @@ import com.riyadhtransport.R;
 import com.riyadhtransport.StationLinesActivity;
 import com.riyadhtransport.adapters.StationAdapter;
 import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.RequestScheduler;
 import com.riyadhtransport.models.Station;
 import java.util.ArrayList;
 import java.util.List;
@@ -26,10 +27,20 @@ import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 import com.riyadhtransport.utils.LocationHelper;
+import com.riyadhtransport.utils.Metrics;
 import java.util.HashMap;
 import java.util.Map;
 
-public class StationsFragment extends Fragment {
+public class StationsFragment extends LazyTabFragment {
+
+    // Prefetched results older than this are fetched again when the tab opens
+    private static final long PREFETCH_MAX_AGE_MS = 2 * 60 * 1000L; // 2 minutes
+
+    private static final Metrics.Counter PREFETCH_USED = Metrics.counter("tabs.stations_prefetch_used");
+
+    // Nearby stations fetched by prefetch() before the tab was opened (main thread only)
+    private static List<Station> prefetchedNearby;
+    private static long prefetchedAtMs;
     
     private TextInputEditText searchInput;
     private RecyclerView stationsRecycler;
@@ -38,6 +49,8 @@ public class StationsFragment extends Fragment {
     private LocationHelper locationHelper;
     private double currentLat = 0;
     private double currentLng = 0;
+    // Set once a nearby search has started for this view, e.g. from a map tap
+    private boolean nearbyRequested = false;
     
     @Nullable
     @Override
@@ -79,10 +92,69 @@ public class StationsFragment extends Fragment {
             @Override
             public void afterTextChanged(Editable s) {}
         });
-        
+    }
+
+    @Override
+    protected void onFirstVisible() {
+        if (nearbyRequested) {
+            return;
+        }
+        if (prefetchedNearby != null
+                && System.currentTimeMillis() - prefetchedAtMs < PREFETCH_MAX_AGE_MS) {
+            PREFETCH_USED.increment();
+            stationAdapter.setStations(prefetchedNearby);
+            prefetchedNearby = null;
+            return;
+        }
         // Load nearby stations based on GPS location
         loadNearbyStations();
     }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        nearbyRequested = false;
+    }
+
+    /**
+     * Fetch the stations near the current location before the tab is opened.
+     * Does nothing without location permission; failures are left for the tab to retry.
+     */
+    public static void prefetch(Context context) {
+        if (!LocationHelper.hasLocationPermission(context)) {
+            return;
+        }
+        new LocationHelper(context.getApplicationContext()).getCurrentLocation(new LocationHelper.LocationCallback() {
+            @Override
+            public void onLocationReceived(double latitude, double longitude) {
+                RequestScheduler.prefetch(ApiClient.getApiService().getNearbyStations(nearbyRequest(latitude, longitude)))
+                        .enqueue(new Callback<List<Station>>() {
+                    @Override
+                    public void onResponse(@NonNull Call<List<Station>> call,
+                                           @NonNull Response<List<Station>> response) {
+                        if (response.isSuccessful() && response.body() != null) {
+                            prefetchedNearby = response.body();
+                            prefetchedAtMs = System.currentTimeMillis();
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Call<List<Station>> call, @NonNull Throwable t) {}
+                });
+            }
+
+            @Override
+            public void onLocationError(String error) {}
+        });
+    }
+
+    private static Map<String, Object> nearbyRequest(double latitude, double longitude) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("lat", latitude);
+        body.put("lng", longitude);
+        body.put("radius", 1.5); // 1.5 km radius
+        return body;
+    }
     
     private void loadNearbyStations() {
         if (!LocationHelper.hasLocationPermission(requireContext())) {
@@ -113,13 +185,11 @@ public class StationsFragment extends Fragment {
     }
 
     public void fetchNearbyStations(double latitude, double longitude) {
+        nearbyRequested = true;
         progressBar.setVisibility(View.VISIBLE);
-        Map<String, Object> body = new HashMap<>();
-        body.put("lat", latitude);
-        body.put("lng", longitude);
-        body.put("radius", 1.5); // 1.5 km radius
 
-        ApiClient.getApiService().getNearbyStations(body).enqueue(new Callback<List<Station>>() {
+        RequestScheduler.schedule(ApiClient.getApiService().getNearbyStations(nearbyRequest(latitude, longitude)),
+                RequestScheduler.Priority.INTERACTIVE).enqueue(new Callback<List<Station>>() {
             @Override
             public void onResponse(@NonNull Call<List<Station>> call, 
                                    @NonNull Response<List<Station>> response) {
@@ -147,7 +217,8 @@ public class StationsFragment extends Fragment {
         Map<String, String> requestBody = new HashMap<>();
         requestBody.put("station_name", stationName);
         
-        ApiClient.getApiService().searchStation(requestBody).enqueue(new Callback<Map<String, Object>>() {
+        RequestScheduler.schedule(ApiClient.getApiService().searchStation(requestBody), RequestScheduler.Priority.INTERACTIVE)
+                .enqueue(new Callback<Map<String, Object>>() {
             @Override
             public void onResponse(@NonNull Call<Map<String, Object>> call,
                                    @NonNull Response<Map<String, Object>> response) {
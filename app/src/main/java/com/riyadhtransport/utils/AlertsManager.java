@@ -1,28 +1,32 @@
 package com.riyadhtransport.utils;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.util.Log;
-import androidx.annotation.NonNull;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import com.riyadhtransport.api.AppWriteClient;
 import com.riyadhtransport.models.LineAlert;
 
-import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
+/**
+ * Service alerts from AppWrite, shared by every screen that shows them.
+ * The last fetch is kept in memory as an {@link AlertIndex} and reused for a minute, so
+ * moving between screens does not download the collection again; concurrent requests
+ * for the same collection share one fetch. Listeners hear about every successful fetch. The last alerts are also
+ * kept on disk by {@link AlertsSync} as a fallback when the network fails.
+ */
 public class AlertsManager {
     private static final String TAG = "AlertsManager";
-    private static final String PREFS_NAME = "AlertsData";
-    private static final String KEY_ALERTS = "alerts_list";
-    private static final String KEY_LAST_UPDATE = "last_update";
-    private static final long CACHE_DURATION_MS = 5 * 60 * 1000; // 5 minutes
+    // Short, so alerts deleted in AppWrite disappear soon after
+    private static final long FRESH_MS = 60 * 1000; // 1 minute
+
+    private static final Metrics.Counter FETCHED = Metrics.counter("alerts.fetched");
+    private static final Metrics.Counter MEMORY_HIT = Metrics.counter("alerts.memory_hit");
+    private static final Metrics.Counter CACHE_FALLBACK = Metrics.counter("alerts.cache_fallback");
+    private static final Metrics.Histogram FETCH_MS = Metrics.histogram("alerts.fetch_ms");
 
     /**
      * Callback interface for alert fetching
@@ -32,110 +36,59 @@ public class AlertsManager {
         void onError(String message);
     }
 
-    // NEW (Fix 4): Add the missing handleApiError method
-    private static void handleApiError(Context context, AlertsCallback callback, String errorMessage) {
-        // Try to use cached alerts as fallback
-        List<LineAlert> cachedAlerts = getCachedAlerts(context);
-        if (!cachedAlerts.isEmpty()) {
-            Log.d(TAG, "Using cached alerts as fallback");
-            callback.onSuccess(cachedAlerts);
-        } else {
-            callback.onError("Failed to fetch alerts: " + errorMessage);
-        }
-    }
-
     /**
-     * Get alerts from cache or fetch from API
+     * Told about every successful fetch; called on the main thread
      */
-    public static void getAlerts(Context context, AlertsCallback callback) {
-        // Always fetch from API to ensure deleted alerts are removed
-        // Cache is used only as fallback on error
-        fetchAlertsFromApi(context, callback);
+    public interface AlertsListener {
+        void onAlertsUpdated(AlertIndex alerts);
     }
 
-    /**
-     * Fetch alerts from AppWrite using REST API
-     */
-    private static void fetchAlertsFromApi(Context context, AlertsCallback callback) {
-        Log.d(TAG, "Fetching alerts from AppWrite REST API...");
+    private interface IndexCallback {
+        void onLoaded(AlertIndex alerts);
+        void onError(String message);
+    }
 
-        // Get collection ID based on current language
-        String collectionId = AppWriteClient.getAlertsCollectionId(context);
+    // Main thread only
+    private static AlertIndex index;
+    private static String indexCollectionId;
+    private static long fetchedAtMs;
+    // Callbacks waiting for each collection being fetched; one collection per language
+    private static final Map<String, List<IndexCallback>> waiting = new HashMap<>();
+    private static final List<AlertsListener> listeners = new ArrayList<>();
+
+    public static void addListener(AlertsListener listener) {
+        listeners.add(listener);
+    }
 
-        // Call AppWrite REST API using Retrofit
-        AppWriteClient.getApiService().listDocuments(
-                AppWriteClient.DATABASE_ID,
-                collectionId,
-                AppWriteClient.PROJECT_ID
-        ).enqueue(new Callback<Map<String, Object>>() {
+    public static void removeListener(AlertsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Get all alerts. Call on the main thread.
+     */
+    public static void getAlerts(Context context, AlertsCallback callback) {
+        getIndex(context, new IndexCallback() {
             @Override
-            public void onResponse(@NonNull Call<Map<String, Object>> call, @NonNull Response<Map<String, Object>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    try {
-                        Map<String, Object> responseBody = response.body();
-                        List<LineAlert> alerts = new ArrayList<>();
-
-                        // Parse documents from AppWrite response
-                        Object documentsObj = responseBody.get("documents");
-                        if (documentsObj instanceof List) {
-                            List<?> documentsList = (List<?>) documentsObj;
-
-                            for (Object docObj : documentsList) {
-                                if (docObj instanceof Map) {
-                                    Map<String, Object> doc = (Map<String, Object>) docObj;
-
-                                    String title = doc.containsKey("title") ? doc.get("title").toString() : "";
-                                    String message = doc.containsKey("message") ? doc.get("message").toString() : "";
-                                    String createdAt = doc.containsKey("$createdAt") ? doc.get("$createdAt").toString() : "";
-
-                                    if (!title.isEmpty()) {
-                                        alerts.add(new LineAlert(title, message, createdAt));
-                                    }
-                                }
-                            }
-                        }
-
-                        Log.d(TAG, "Successfully fetched " + alerts.size() + " alerts from AppWrite");
-
-                        // Cache the alerts
-                        cacheAlerts(context, alerts);
-
-                        // Return success
-                        callback.onSuccess(alerts);
-
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing AppWrite response: " + e.getMessage());
-                        handleApiError(context, callback, e.getMessage());
-                    }
-                } else {
-                    Log.e(TAG, "AppWrite API error: " + response.code());
-                    handleApiError(context, callback, "API returned error code: " + response.code());
-                }
+            public void onLoaded(AlertIndex alerts) {
+                callback.onSuccess(alerts.getAll());
             }
 
             @Override
-            public void onFailure(@NonNull Call<Map<String, Object>> call, @NonNull Throwable t) {
-                Log.e(TAG, "Network error fetching alerts from AppWrite: " + t.getMessage());
-                handleApiError(context, callback, t.getMessage());
+            public void onError(String message) {
+                callback.onError(message);
             }
         });
     }
 
-
     /**
      * Get line-specific alerts for a given line number
      */
     public static void getAlertsForLine(Context context, String lineNumber, AlertsCallback callback) {
-        getAlerts(context, new AlertsCallback() {
+        getIndex(context, new IndexCallback() {
             @Override
-            public void onSuccess(List<LineAlert> alerts) {
-                List<LineAlert> lineAlerts = new ArrayList<>();
-                for (LineAlert alert : alerts) {
-                    if (alert.appliesToLine(lineNumber)) {
-                        lineAlerts.add(alert);
-                    }
-                }
-                callback.onSuccess(lineAlerts);
+            public void onLoaded(AlertIndex alerts) {
+                callback.onSuccess(alerts.forLine(lineNumber));
             }
 
             @Override
@@ -146,19 +99,13 @@ public class AlertsManager {
     }
 
     /**
-     * Get general alerts (not line-specific)
+     * Get alerts for any of the given line numbers, each alert once
      */
-    public static void getGeneralAlerts(Context context, AlertsCallback callback) {
-        getAlerts(context, new AlertsCallback() {
+    public static void getAlertsForLines(Context context, Collection<String> lineNumbers, AlertsCallback callback) {
+        getIndex(context, new IndexCallback() {
             @Override
-            public void onSuccess(List<LineAlert> alerts) {
-                List<LineAlert> generalAlerts = new ArrayList<>();
-                for (LineAlert alert : alerts) {
-                    if (alert.isGeneralAlert()) {
-                        generalAlerts.add(alert);
-                    }
-                }
-                callback.onSuccess(generalAlerts);
+            public void onLoaded(AlertIndex alerts) {
+                callback.onSuccess(alerts.forLines(lineNumbers));
             }
 
             @Override
@@ -169,52 +116,115 @@ public class AlertsManager {
     }
 
     /**
-     * Cache alerts to SharedPreferences
+     * Get general alerts (not line-specific)
      */
-    private static void cacheAlerts(Context context, List<LineAlert> alerts) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        Gson gson = new Gson();
-        String json = gson.toJson(alerts);
-        prefs.edit()
-            .putString(KEY_ALERTS, json)
-            .putLong(KEY_LAST_UPDATE, System.currentTimeMillis())
-            .apply();
+    public static void getGeneralAlerts(Context context, AlertsCallback callback) {
+        getIndex(context, new IndexCallback() {
+            @Override
+            public void onLoaded(AlertIndex alerts) {
+                callback.onSuccess(alerts.getGeneral());
+            }
+
+            @Override
+            public void onError(String message) {
+                callback.onError(message);
+            }
+        });
     }
 
-    /**
-     * Get cached alerts from SharedPreferences
-     */
-    private static List<LineAlert> getCachedAlerts(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        String json = prefs.getString(KEY_ALERTS, null);
+    private static void getIndex(Context context, IndexCallback callback) {
+        // Get collection ID based on current language
+        String collectionId = AppWriteClient.getAlertsCollectionId(context);
+        if (index != null && collectionId.equals(indexCollectionId)
+                && System.currentTimeMillis() - fetchedAtMs < FRESH_MS) {
+            MEMORY_HIT.increment();
+            callback.onLoaded(index);
+            return;
+        }
 
-        if (json == null) {
-            return new ArrayList<>();
+        List<IndexCallback> callbacks = waiting.get(collectionId);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return;
         }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        waiting.put(collectionId, callbacks);
+        fetchAlertsFromApi(context.getApplicationContext(), collectionId);
+    }
 
-        try {
-            Gson gson = new Gson();
-            Type listType = new TypeToken<ArrayList<LineAlert>>(){}.getType();
-            return gson.fromJson(json, listType);
-        } catch (Exception e) {
-            Log.e(TAG, "Error parsing cached alerts: " + e.getMessage());
-            return new ArrayList<>();
+    private static void publish(String collectionId, AlertIndex alerts) {
+        index = alerts;
+        indexCollectionId = collectionId;
+        fetchedAtMs = System.currentTimeMillis();
+        List<IndexCallback> callbacks = finishFetch(collectionId);
+        for (IndexCallback callback : callbacks) {
+            callback.onLoaded(alerts);
+        }
+        for (AlertsListener listener : new ArrayList<>(listeners)) {
+            listener.onAlertsUpdated(alerts);
+        }
+    }
+
+    private static void handleApiError(Context context, String collectionId, String errorMessage) {
+        List<IndexCallback> callbacks = finishFetch(collectionId);
+        // Fall back to the last alerts in memory, then to the ones saved on disk
+        AlertIndex fallback = null;
+        if (index != null && collectionId.equals(indexCollectionId)) {
+            fallback = index;
+        } else {
+            List<LineAlert> cachedAlerts = AlertsSync.getStoredAlerts(context, collectionId);
+            if (!cachedAlerts.isEmpty()) {
+                fallback = AlertIndex.build(cachedAlerts);
+            }
+        }
+        if (fallback != null) {
+            Log.d(TAG, "Using cached alerts as fallback");
+            CACHE_FALLBACK.increment();
+        }
+        for (IndexCallback callback : callbacks) {
+            if (fallback != null) {
+                callback.onLoaded(fallback);
+            } else {
+                callback.onError("Failed to fetch alerts: " + errorMessage);
+            }
         }
     }
 
+    private static List<IndexCallback> finishFetch(String collectionId) {
+        List<IndexCallback> callbacks = waiting.remove(collectionId);
+        return callbacks != null ? callbacks : new ArrayList<>();
+    }
+
     /**
-     * Get last update time from SharedPreferences
+     * Sync the alerts collection with AppWrite, downloading only what changed
      */
-    private static long getLastUpdateTime(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        return prefs.getLong(KEY_LAST_UPDATE, 0);
+    private static void fetchAlertsFromApi(Context context, String collectionId) {
+        Log.d(TAG, "Syncing alerts from AppWrite REST API...");
+        long startNanos = System.nanoTime();
+
+        AlertsSync.sync(context, collectionId, new AlertsSync.SyncCallback() {
+            @Override
+            public void onSynced(List<LineAlert> alerts) {
+                Log.d(TAG, "Successfully synced " + alerts.size() + " alerts from AppWrite");
+                FETCHED.increment();
+                FETCH_MS.recordSinceNanos(startNanos);
+                publish(collectionId, AlertIndex.build(alerts));
+            }
+
+            @Override
+            public void onError(String message) {
+                handleApiError(context, collectionId, message);
+            }
+        });
     }
 
     /**
      * Clear cached alerts
      */
     public static void clearCache(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        prefs.edit().clear().apply();
+        AlertsSync.clear(context);
+        index = null;
+        indexCollectionId = null;
     }
 }
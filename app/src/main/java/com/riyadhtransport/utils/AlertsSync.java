@@ -0,0 +1,275 @@
+package com.riyadhtransport.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.google.gson.Gson;
+import com.riyadhtransport.api.ApiFutures;
+import com.riyadhtransport.api.AppWriteQuery;
+import com.riyadhtransport.api.AsyncApi;
+import com.riyadhtransport.api.Deadline;
+import com.riyadhtransport.models.LineAlert;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a local copy of an AppWrite alerts collection in step with the server.
+ * Each sync pages through only the documents whose {@code $updatedAt} is at or after the
+ * newest one seen last time. It then checks whether any documents were deleted, using the
+ * collection total and, only when that doesn't match, a listing of ids. The first sync
+ * pages through the whole collection, so large collections are never cut off at the
+ * default page size. The copy and its watermark are kept in SharedPreferences.
+ */
+public class AlertsSync {
+    private static final String TAG = "AlertsSync";
+    private static final String PREFS_NAME = "AlertsData";
+    private static final String KEY_STATE_PREFIX = "sync_";
+    private static final int PAGE_SIZE = AppWriteQuery.MAX_LIMIT;
+    // For the whole sync, every page and retry included
+    private static final long DEADLINE_MS = 30000;
+
+    private static final Metrics.Counter PAGES = Metrics.counter("alerts.sync_pages");
+    private static final Metrics.Counter CHANGED = Metrics.counter("alerts.sync_changed");
+    private static final Metrics.Counter DELETED = Metrics.counter("alerts.sync_deleted");
+
+    /**
+     * Callback interface for a sync; always called on the main thread
+     */
+    public interface SyncCallback {
+        void onSynced(List<LineAlert> alerts);
+        void onError(String message);
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "alerts-sync");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Sync thread only
+    private static final Map<String, State> states = new HashMap<>();
+
+    /**
+     * Bring the local copy of a collection up to date and return its alerts
+     */
+    public static void sync(Context context, String collectionId, SyncCallback callback) {
+        Context appContext = context.getApplicationContext();
+        executor.execute(() -> {
+            List<LineAlert> alerts;
+            try {
+                alerts = syncNow(appContext, collectionId);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Failed to sync alerts: " + e.getMessage());
+                mainHandler.post(() -> callback.onError(e.getMessage()));
+                return;
+            }
+            mainHandler.post(() -> callback.onSynced(alerts));
+        });
+    }
+
+    /**
+     * Alerts from the last successful sync of a collection, or an empty list
+     */
+    public static List<LineAlert> getStoredAlerts(Context context, String collectionId) {
+        State state = readState(context, collectionId);
+        return state != null ? toAlerts(state.documents) : new ArrayList<>();
+    }
+
+    /**
+     * Forget every local copy, so the next sync downloads everything
+     */
+    public static void clear(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+        executor.execute(states::clear);
+    }
+
+    private static List<LineAlert> syncNow(Context context, String collectionId) throws IOException {
+        State state = states.get(collectionId);
+        if (state == null) {
+            state = readState(context, collectionId);
+        }
+        boolean firstSync = state == null;
+        // Work on a copy, so a failed sync leaves the last good copy in place
+        Map<String, LineAlert> documents = firstSync ? new HashMap<>() : new HashMap<>(state.documents);
+        String watermark = firstSync ? null : state.watermark;
+        Deadline deadline = Deadline.after(DEADLINE_MS);
+
+        // Documents changed since the last sync, oldest change first. The watermark is
+        // inclusive so a document saved in the same millisecond is not missed.
+        String newWatermark = watermark;
+        String cursor = null;
+        Page page;
+        do {
+            List<String> queries = new ArrayList<>();
+            if (watermark != null) {
+                queries.add(AppWriteQuery.greaterThanEqual("$updatedAt", watermark));
+            }
+            queries.add(AppWriteQuery.orderAsc("$updatedAt"));
+            queries.add(AppWriteQuery.limit(PAGE_SIZE));
+            if (cursor != null) {
+                queries.add(AppWriteQuery.cursorAfter(cursor));
+            }
+            page = fetchPage(collectionId, queries, deadline);
+            for (Map<String, Object> document : page.documents) {
+                LineAlert alert = parseDocument(document);
+                if (alert == null) {
+                    continue;
+                }
+                documents.put(alert.getId(), alert);
+                cursor = alert.getId();
+                if (alert.getUpdatedAt() != null
+                        && (newWatermark == null || alert.getUpdatedAt().compareTo(newWatermark) > 0)) {
+                    newWatermark = alert.getUpdatedAt();
+                }
+            }
+            CHANGED.add(page.documents.size());
+        } while (page.documents.size() == PAGE_SIZE && cursor != null);
+
+        // Every document on the server is now in the copy, so any extra ones were deleted
+        if (!firstSync) {
+            removeDeleted(collectionId, documents, deadline);
+        }
+
+        State synced = new State();
+        synced.watermark = newWatermark;
+        synced.documents = documents;
+        states.put(collectionId, synced);
+        writeState(context, collectionId, synced);
+        return toAlerts(documents);
+    }
+
+    private static void removeDeleted(String collectionId, Map<String, LineAlert> documents,
+                                      Deadline deadline) throws IOException {
+        Set<String> ids = new HashSet<>();
+        String cursor = null;
+        Page page;
+        do {
+            List<String> queries = new ArrayList<>();
+            queries.add(AppWriteQuery.select("$id"));
+            queries.add(AppWriteQuery.limit(PAGE_SIZE));
+            if (cursor != null) {
+                queries.add(AppWriteQuery.cursorAfter(cursor));
+            }
+            page = fetchPage(collectionId, queries, deadline);
+            if (cursor == null && page.total == documents.size()) {
+                // Same count as the copy: nothing was deleted
+                return;
+            }
+            for (Map<String, Object> document : page.documents) {
+                Object id = document.get("$id");
+                if (id != null) {
+                    ids.add(id.toString());
+                    cursor = id.toString();
+                }
+            }
+        } while (page.documents.size() == PAGE_SIZE && cursor != null);
+
+        int before = documents.size();
+        documents.keySet().retainAll(ids);
+        DELETED.add(before - documents.size());
+    }
+
+    private static Page fetchPage(String collectionId, List<String> queries, Deadline deadline)
+            throws IOException {
+        Map<String, Object> body;
+        try {
+            // Retried on transient errors within the sync's deadline
+            body = AsyncApi.listDocuments(collectionId, queries, deadline).get();
+        } catch (ExecutionException e) {
+            Throwable cause = ApiFutures.unwrap(e.getCause());
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+        PAGES.increment();
+
+        Page page = new Page();
+        Object total = body.get("total");
+        page.total = total instanceof Number ? ((Number) total).longValue() : -1;
+        Object documentsObj = body.get("documents");
+        if (documentsObj instanceof List) {
+            for (Object docObj : (List<?>) documentsObj) {
+                if (docObj instanceof Map) {
+                    page.documents.add((Map<String, Object>) docObj);
+                }
+            }
+        }
+        return page;
+    }
+
+    private static LineAlert parseDocument(Map<String, Object> doc) {
+        Object id = doc.get("$id");
+        if (id == null) {
+            return null;
+        }
+        String title = doc.containsKey("title") ? String.valueOf(doc.get("title")) : "";
+        String message = doc.containsKey("message") ? String.valueOf(doc.get("message")) : "";
+        String createdAt = doc.containsKey("$createdAt") ? String.valueOf(doc.get("$createdAt")) : "";
+        LineAlert alert = new LineAlert(title, message, createdAt);
+        alert.setId(id.toString());
+        if (doc.get("$updatedAt") != null) {
+            alert.setUpdatedAt(doc.get("$updatedAt").toString());
+        }
+        return alert;
+    }
+
+    /**
+     * Alerts with a title, oldest first like the collection's own order
+     */
+    private static List<LineAlert> toAlerts(Map<String, LineAlert> documents) {
+        List<LineAlert> alerts = new ArrayList<>();
+        for (LineAlert alert : documents.values()) {
+            if (alert.getTitle() != null && !alert.getTitle().isEmpty()) {
+                alerts.add(alert);
+            }
+        }
+        Collections.sort(alerts, (a, b) -> String.valueOf(a.getCreatedAt()).compareTo(String.valueOf(b.getCreatedAt())));
+        return alerts;
+    }
+
+    private static State readState(Context context, String collectionId) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String json = prefs.getString(KEY_STATE_PREFIX + collectionId, null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            State state = new Gson().fromJson(json, State.class);
+            return state != null && state.documents != null ? state : null;
+        } catch (Exception e) {
+            Log.e(TAG, "Error parsing stored alerts: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeState(Context context, String collectionId, State state) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit()
+            .putString(KEY_STATE_PREFIX + collectionId, new Gson().toJson(state))
+            .apply();
+    }
+
+    private static class State {
+        // Newest $updatedAt seen; the next sync asks only for documents from here on
+        String watermark;
+        Map<String, LineAlert> documents;
+    }
+
+    private static class Page {
+        long total;
+        final List<Map<String, Object>> documents = new ArrayList<>();
+    }
+}
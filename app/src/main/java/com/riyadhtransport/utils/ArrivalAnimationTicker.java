@@ -0,0 +1,143 @@
+package com.riyadhtransport.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.riyadhtransport.R;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared frame clock for the animated "live" arrival icon.
+ * Rows register while they are attached and showing live data, so a whole screen of
+ * live arrivals costs one main-thread callback every 500 ms instead of one per row.
+ * Rows belong to a host, the RecyclerView showing them, which is paused and resumed
+ * with its screen and released when the screen is destroyed.
+ * All methods must be called on the main thread.
+ */
+public class ArrivalAnimationTicker {
+    private static final long FRAME_INTERVAL_MS = 500;
+    public static final int FRAME_COUNT = 3;
+
+    public interface FrameListener {
+        void onFrame(int frame);
+    }
+
+    private static final int[] FRAMES_LTR = {R.drawable.lt3, R.drawable.lt2, R.drawable.lt1};
+    private static final int[] FRAMES_RTL = {R.drawable.lr3, R.drawable.lr2, R.drawable.lr1};
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    // Each row and its host, in registration order
+    private static final Map<FrameListener, Object> listeners = new LinkedHashMap<>();
+    private static final Set<Object> pausedHosts = Collections.newSetFromMap(new IdentityHashMap<>());
+    private static FrameListener[] snapshot = new FrameListener[0];
+    private static boolean snapshotDirty = false;
+    private static int currentFrame = 0;
+    private static boolean scheduled = false;
+
+    private static final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            scheduled = false;
+            if (!hasRunningRows()) {
+                return;
+            }
+
+            currentFrame = (currentFrame + 1) % FRAME_COUNT;
+            if (snapshotDirty) {
+                snapshot = listeners.keySet().toArray(new FrameListener[0]);
+                snapshotDirty = false;
+            }
+            // Iterate over a snapshot so listeners may unregister from inside onFrame
+            for (FrameListener listener : snapshot) {
+                Object host = listeners.get(listener);
+                if (host != null && !pausedHosts.contains(host)) {
+                    listener.onFrame(currentFrame);
+                }
+            }
+            schedule();
+        }
+    };
+
+    /**
+     * Start delivering frames to a row. The row immediately receives the current frame
+     * so it is in step with every other live row on screen.
+     */
+    public static void register(Object host, FrameListener listener) {
+        if (listeners.put(listener, host) == null) {
+            snapshotDirty = true;
+        }
+        listener.onFrame(currentFrame);
+        schedule();
+    }
+
+    /**
+     * Stop delivering frames to a row. Safe to call for rows that were never registered.
+     */
+    public static void unregister(FrameListener listener) {
+        if (listeners.remove(listener) != null) {
+            snapshotDirty = true;
+        }
+        stopIfIdle();
+    }
+
+    /**
+     * Stop a host's rows while its screen is not visible. Its rows stay registered.
+     */
+    public static void pause(Object host) {
+        pausedHosts.add(host);
+        stopIfIdle();
+    }
+
+    /**
+     * Resume a host's rows when its screen becomes visible again.
+     */
+    public static void resume(Object host) {
+        pausedHosts.remove(host);
+        schedule();
+    }
+
+    /**
+     * Drop every row of a host whose screen is being destroyed. RecyclerView doesn't
+     * detach or recycle its rows then, so they would otherwise stay registered.
+     */
+    public static void release(Object host) {
+        if (listeners.values().removeIf(registered -> registered == host)) {
+            snapshotDirty = true;
+        }
+        pausedHosts.remove(host);
+        stopIfIdle();
+    }
+
+    /**
+     * Drawable for a frame, mirrored for RTL layouts
+     */
+    public static int getFrameResource(int frame, boolean isRtl) {
+        return (isRtl ? FRAMES_RTL : FRAMES_LTR)[frame];
+    }
+
+    private static boolean hasRunningRows() {
+        for (Object host : listeners.values()) {
+            if (!pausedHosts.contains(host)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void stopIfIdle() {
+        if (!hasRunningRows()) {
+            handler.removeCallbacks(tick);
+            scheduled = false;
+        }
+    }
+
+    private static void schedule() {
+        if (!scheduled && hasRunningRows()) {
+            handler.postDelayed(tick, FRAME_INTERVAL_MS);
+            scheduled = true;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.riyadhtransport.utils;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+import com.riyadhtransport.R;
+import com.riyadhtransport.api.NetworkTracer;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Hidden overlay showing live {@link Metrics} over the current screen, for QA on a device.
+ * Long-pressing the trigger view toggles it; tapping the overlay shares a JSON snapshot
+ * and long-pressing it resets the metrics.
+ */
+public class DebugOverlay {
+    private static final String VIEW_TAG = "metrics_overlay";
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    private static boolean gaugesRegistered = false;
+
+    /**
+     * Make {@code trigger} toggle the overlay on long-press
+     */
+    public static void install(Activity activity, View trigger) {
+        registerGauges();
+        trigger.setOnLongClickListener(v -> {
+            toggle(activity);
+            return true;
+        });
+    }
+
+    public static void toggle(Activity activity) {
+        ViewGroup root = activity.findViewById(android.R.id.content);
+        View existing = root.findViewWithTag(VIEW_TAG);
+        if (existing != null) {
+            root.removeView(existing);
+            return;
+        }
+
+        TextView overlay = new TextView(activity);
+        overlay.setTag(VIEW_TAG);
+        overlay.setTypeface(Typeface.MONOSPACE);
+        overlay.setTextSize(TypedValue.COMPLEX_UNIT_SP, 10);
+        overlay.setTextColor(Color.WHITE);
+        overlay.setBackgroundColor(0xCC000000);
+        int padding = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 8,
+                activity.getResources().getDisplayMetrics());
+        overlay.setPadding(padding, padding, padding, padding);
+        // Metric names are ASCII; keep the layout left-to-right in Arabic too
+        overlay.setTextDirection(View.TEXT_DIRECTION_LTR);
+
+        Handler handler = new Handler(Looper.getMainLooper());
+        Runnable refresh = new Runnable() {
+            @Override
+            public void run() {
+                overlay.setText(format(Metrics.snapshot()));
+                handler.postDelayed(this, REFRESH_INTERVAL_MS);
+            }
+        };
+        overlay.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View v) {
+                handler.post(refresh);
+            }
+
+            @Override
+            public void onViewDetachedFromWindow(View v) {
+                handler.removeCallbacks(refresh);
+            }
+        });
+
+        overlay.setOnClickListener(v -> share(activity));
+        overlay.setOnLongClickListener(v -> {
+            Metrics.reset();
+            Toast.makeText(activity, R.string.metrics_reset, Toast.LENGTH_SHORT).show();
+            return true;
+        });
+
+        root.addView(overlay, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.TOP));
+    }
+
+    private static void share(Activity activity) {
+        Intent share = new Intent(Intent.ACTION_SEND);
+        share.setType("application/json");
+        share.putExtra(Intent.EXTRA_SUBJECT, "metrics.json");
+        share.putExtra(Intent.EXTRA_TEXT, Metrics.exportJson());
+        activity.startActivity(Intent.createChooser(share, activity.getString(R.string.export_metrics)));
+    }
+
+    private static synchronized void registerGauges() {
+        if (gaugesRegistered) {
+            return;
+        }
+        gaugesRegistered = true;
+        Runtime runtime = Runtime.getRuntime();
+        Metrics.gauge("runtime.heap_used_kb", () -> (runtime.totalMemory() - runtime.freeMemory()) / 1024);
+        Metrics.gauge("runtime.heap_max_kb", () -> runtime.maxMemory() / 1024);
+        Metrics.gauge("network.trace_records", () -> NetworkTracer.snapshot().size());
+    }
+
+    private static String format(Metrics.Snapshot snapshot) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Long> entry : snapshot.counters.entrySet()) {
+            text.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> entry : snapshot.gauges.entrySet()) {
+            text.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Metrics.HistogramSummary> entry : snapshot.histograms.entrySet()) {
+            Metrics.HistogramSummary h = entry.getValue();
+            text.append(String.format(Locale.ROOT, "%s n=%d p50=%d p95=%d p99=%d max=%d\n",
+                    entry.getKey(), h.count, h.p50, h.p95, h.p99, h.max));
+        }
+        return text.toString().trim();
+    }
+}
@@ -0,0 +1,49 @@
+package com.riyadhtransport.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Looper;
+
+/**
+ * Runs speculative work when the main thread is idle and predicts which tab the user
+ * opens next from how often each tab has been opened before.
+ */
+public class IdlePrefetcher {
+    private static final String PREFS_NAME = "TabUsage";
+    private static final String KEY_PREFIX = "tab_opened_";
+
+    /**
+     * Run {@code task} once, the next time the main thread's queue is empty.
+     * Call on the main thread.
+     */
+    public static void runWhenIdle(Runnable task) {
+        Looper.myQueue().addIdleHandler(() -> {
+            task.run();
+            return false;
+        });
+    }
+
+    public static void recordTabOpened(Context context, int position) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String key = KEY_PREFIX + position;
+        prefs.edit().putInt(key, prefs.getInt(key, 0) + 1).apply();
+    }
+
+    /**
+     * The tab other than {@code currentTab} opened most often, or the next tab over
+     * when there is no history yet
+     */
+    public static int likelyNextTab(Context context, int currentTab, int tabCount) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int best = (currentTab + 1) % tabCount;
+        int bestCount = 0;
+        for (int tab = 0; tab < tabCount; tab++) {
+            int count = prefs.getInt(KEY_PREFIX + tab, 0);
+            if (tab != currentTab && count > bestCount) {
+                best = tab;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+}
@@ -1,229 +1,103 @@
 package com.riyadhtransport.utils;
 
 import android.util.Log;
+import com.riyadhtransport.api.ApiFutures;
 import com.riyadhtransport.models.Arrival;
 import com.riyadhtransport.models.Route;
 import com.riyadhtransport.models.RouteSegment;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
 
 public class JourneyTimeCalculator {
     private static final String TAG = "JourneyTimeCalculator";
-    
+    private static final Metrics.Histogram LIVE_TIME_MS = Metrics.histogram("journey.live_time_ms");
+
     public interface CalculationCallback {
         void onComplete(int newTotalMinutes);
         void onError(String message);
     }
-    
+
     /**
-     * Calculate the new total journey time with live arrival data
+     * Calculate the new total journey time with live arrival data. Arrivals for every
+     * transit segment are fetched in parallel, then {@link JourneyTimeline#compute} walks
+     * the segments in order on the main thread. Cancel the returned future to stop the
+     * fetches; the callback is then not called.
      */
-    public static void calculateLiveJourneyTime(Route route, CalculationCallback callback) {
+    public static CompletableFuture<Integer> calculateLiveJourneyTime(Route route, CalculationCallback callback) {
         if (route == null || route.getSegments() == null || route.getSegments().isEmpty()) {
             callback.onError("Invalid route");
-            return;
+            return CompletableFuture.completedFuture(null);
         }
-        
+
         List<RouteSegment> segments = route.getSegments();
-        AtomicInteger cumulativeTravelTime = new AtomicInteger(0);
-        AtomicInteger newTotalJourneyTime = new AtomicInteger(0);
-        AtomicInteger processedSegments = new AtomicInteger(0);
-        AtomicInteger totalSegments = new AtomicInteger(segments.size());
-        
         Log.d(TAG, "Starting journey calculation for " + segments.size() + " segments");
-        
-        // Process each segment
+        long startNanos = System.nanoTime();
+
+        // Fan out: one arrivals fetch per transit segment, null where there is none
+        List<CompletableFuture<List<Arrival>>> fetches = new ArrayList<>(segments.size());
         for (int i = 0; i < segments.size(); i++) {
-            RouteSegment segment = segments.get(i);
-            int segmentIndex = i;
-            boolean isLastSegment = (i == segments.size() - 1);
-            
-            processSegment(segment, segmentIndex, isLastSegment, cumulativeTravelTime, 
-                          newTotalJourneyTime, () -> {
-                int processed = processedSegments.incrementAndGet();
-                Log.d(TAG, "Processed segment " + processed + "/" + totalSegments.get());
-                
-                if (processed >= totalSegments.get()) {
-                    int finalTime = newTotalJourneyTime.get();
-                    Log.d(TAG, "Journey calculation complete: " + finalTime + " minutes");
-                    callback.onComplete(finalTime);
-                }
-            });
-        }
-    }
-    
-    /**
-     * Process a single segment
-     */
-    private static void processSegment(RouteSegment segment, int index, boolean isLastSegment,
-                                       AtomicInteger cumulativeTravelTime,
-                                       AtomicInteger newTotalJourneyTime,
-                                       Runnable onComplete) {
-        // Calculate segment ride time in minutes
-        int segmentRideMinutes = (int) Math.ceil(segment.getDuration() / 60.0);
-        
-        Log.d(TAG, "Processing segment " + index + " (type: " + segment.getType() + 
-              ", duration: " + segmentRideMinutes + " min)");
-        
-        // Handle walking segments
-        if (segment.isWalking()) {
-            Log.d(TAG, "Walking segment: adding " + segmentRideMinutes + " minutes to both counters");
-            cumulativeTravelTime.addAndGet(segmentRideMinutes);
-            newTotalJourneyTime.addAndGet(segmentRideMinutes);
-            
-            segment.setArrivalStatus("hidden");
-            segment.setWaitMinutes(null);
-            
-            onComplete.run();
-            return;
+            fetches.add(fetchArrivals(segments.get(i), i));
         }
-        
-        // Handle transit segments (bus/metro)
-        if (segment.isBus() || segment.isMetro()) {
-            segment.setArrivalStatus("checking");
-            
-            // Get station name
-            String stationName = null;
-            if (segment.getStations() != null && !segment.getStations().isEmpty()) {
-                stationName = cleanStationName(segment.getStations().get(0));
-            }
-            
-            if (stationName == null || stationName.isEmpty()) {
-                Log.w(TAG, "No station name for segment " + index + ", using static time");
-                useStaticTime(segment, segmentRideMinutes, cumulativeTravelTime, 
-                             newTotalJourneyTime, onComplete);
+
+        // Fan in, then compute the timeline where the segments are shown
+        CompletableFuture<List<List<Arrival>>> all = ApiFutures.allAsList(fetches);
+        CompletableFuture<Integer> total = new CompletableFuture<>();
+        all.whenComplete((arrivalsPerSegment, error) -> {
+            if (all.isCancelled()) {
                 return;
             }
-            
-            // Get destination station for matching
-            String destinationStation = null;
-            if (segment.getStations() != null && segment.getStations().size() > 1) {
-                destinationStation = cleanStationName(segment.getStations().get(segment.getStations().size() - 1));
+            MainThreadBudget.post("journey.compute", () -> {
+                if (total.isCancelled()) {
+                    return;
+                }
+                if (error != null) {
+                    callback.onError(ApiFutures.unwrap(error).getMessage());
+                    total.completeExceptionally(error);
+                    return;
+                }
+                int finalTime = JourneyTimeline.compute(segments, arrivalsPerSegment);
+                Log.d(TAG, "Journey calculation complete: " + finalTime + " minutes");
+                LIVE_TIME_MS.recordSinceNanos(startNanos);
+                callback.onComplete(finalTime);
+                total.complete(finalTime);
+            });
+        });
+        total.whenComplete((minutes, error) -> {
+            if (total.isCancelled()) {
+                all.cancel(true);
             }
-            
-            int currentCumulativeTime = cumulativeTravelTime.get();
-            
-            Log.d(TAG, "Fetching live arrivals for " + stationName + 
-                  " (cumulative time: " + currentCumulativeTime + " min)");
-            
-            // Fetch live arrivals
-            LiveArrivalManager.getLiveArrivals(
-                stationName, 
-                segment.getType(), 
-                segment.getLine(),
-                destinationStation,
-                new LiveArrivalManager.ArrivalCallback() {
-                    @Override
-                    public void onSuccess(List<Arrival> arrivals) {
-                        Log.d(TAG, "Got " + arrivals.size() + " arrivals for segment " + index);
-                        
-                        // Find valid arrival
-                        Arrival validArrival = LiveArrivalManager.findValidArrival(
-                            arrivals, 
-                            segment.getLine(), 
-                            destinationStation,
-                            currentCumulativeTime
-                        );
-                        
-                        if (validArrival == null) {
-                            Log.w(TAG, "No valid arrival found, using static time");
-                            useStaticTime(segment, segmentRideMinutes, cumulativeTravelTime,
-                                        newTotalJourneyTime, onComplete);
-                        } else {
-                            Log.d(TAG, "Valid arrival found: " + validArrival.getMinutesUntil() + 
-                                  " min until departure");
-                            
-                            // Calculate wait time
-                            int waitMinutes = validArrival.getMinutesUntil() - currentCumulativeTime;
-                            
-                            // Update segment with live data
-                            segment.setWaitMinutes(waitMinutes);
-                            segment.setNextArrivalMinutes(validArrival.getMinutesUntil());
-                            segment.setRefinedTerminus(validArrival.getDestination());
-                            
-                            // Collect upcoming arrivals for display (absolute times, not relative to cumulative)
-                            List<Integer> upcomingArrivals = new ArrayList<>();
-                            for (Arrival arr : arrivals) {
-                                // Show all arrivals that haven't departed yet (minutesUntil >= 0)
-                                if (arr.getMinutesUntil() >= 0) {
-                                    upcomingArrivals.add(arr.getMinutesUntil());
-                                    if (upcomingArrivals.size() >= 3) break;
-                                }
-                            }
-                            
-                            Log.d(TAG, "Collected " + upcomingArrivals.size() + " upcoming arrivals for display");
-                            segment.setUpcomingArrivals(upcomingArrivals);
-                            
-                            // Determine status based on arrival time
-                            if (validArrival.getMinutesUntil() >= 59) {
-                                segment.setArrivalStatus("normal");
-                            } else {
-                                segment.setArrivalStatus("live");
-                            }
-                            
-                            // Add wait time + ride time to new total
-                            newTotalJourneyTime.addAndGet(waitMinutes + segmentRideMinutes);
-                            
-                            // Add only ride time to cumulative (user boards after waiting)
-                            cumulativeTravelTime.addAndGet(segmentRideMinutes);
-                            
-                            Log.d(TAG, "Segment " + index + " complete: wait=" + waitMinutes + 
-                                  " min, ride=" + segmentRideMinutes + " min");
-                            
-                            onComplete.run();
-                        }
-                    }
-                    
-                    @Override
-                    public void onError(String message) {
-                        Log.e(TAG, "Error getting arrivals: " + message);
-                        useStaticTime(segment, segmentRideMinutes, cumulativeTravelTime,
-                                    newTotalJourneyTime, onComplete);
-                    }
-                });
-        } else {
-            // Unknown segment type, use static time
-            useStaticTime(segment, segmentRideMinutes, cumulativeTravelTime,
-                         newTotalJourneyTime, onComplete);
-        }
+        });
+        return total;
     }
-    
-    /**
-     * Use static time when live data is unavailable or connection is missed
-     */
-    private static void useStaticTime(RouteSegment segment, int segmentRideMinutes,
-                                      AtomicInteger cumulativeTravelTime,
-                                      AtomicInteger newTotalJourneyTime,
-                                      Runnable onComplete) {
-        Log.d(TAG, "Using static time: " + segmentRideMinutes + " minutes");
-        
-        segment.setArrivalStatus("hidden");
-        segment.setWaitMinutes(null);
-        
-        cumulativeTravelTime.addAndGet(segmentRideMinutes);
-        newTotalJourneyTime.addAndGet(segmentRideMinutes);
-        
-        onComplete.run();
-    }
-    
+
     /**
-     * Clean station name by removing type suffixes like "(Bus)" or "(Metro)"
+     * Live arrivals for a segment's boarding station, or null when the segment has none
+     * or they can't be fetched, so it falls back to its static time
      */
-    private static String cleanStationName(String stationName) {
-        if (stationName == null) {
-            return null;
-        }
-        
-        // Remove common suffixes
-        stationName = stationName.trim();
-        if (stationName.endsWith(" (Bus)")) {
-            return stationName.substring(0, stationName.length() - 6).trim();
+    private static CompletableFuture<List<Arrival>> fetchArrivals(RouteSegment segment, int index) {
+        if (!segment.isBus() && !segment.isMetro()) {
+            return CompletableFuture.completedFuture(null);
         }
-        if (stationName.endsWith(" (Metro)")) {
-            return stationName.substring(0, stationName.length() - 8).trim();
+        segment.setArrivalStatus("checking");
+
+        String stationName = JourneyTimeline.boardingStation(segment);
+        if (stationName == null || stationName.isEmpty()) {
+            Log.w(TAG, "No station name for segment " + index + ", using static time");
+            return CompletableFuture.completedFuture(null);
         }
-        
-        return stationName;
+
+        Log.d(TAG, "Fetching live arrivals for " + stationName + " (segment " + index + ")");
+        CompletableFuture<List<Arrival>> arrivals = ApiFutures.map(
+                LiveArrivalManager.liveArrivals(stationName, segment.getType(), segment.getLine(),
+                        JourneyTimeline.destinationStation(segment)),
+                list -> {
+                    Log.d(TAG, "Got " + list.size() + " arrivals for segment " + index);
+                    return list;
+                });
+        return ApiFutures.recover(arrivals, error -> {
+            Log.e(TAG, "Error getting arrivals: " + error.getMessage());
+            return null;
+        });
     }
 }
@@ -1,113 +1,49 @@
 package com.riyadhtransport.utils;
 
 import android.content.Context;
-import android.graphics.Color;
+import android.content.res.Configuration;
 import com.riyadhtransport.R;
 
 public class LineColorHelper {
-    
-    public static int getMetroLineColor(Context context, String lineNumber) {
-        if (lineNumber == null) {
-            return context.getColor(R.color.colorPrimary);
-        }
-        
-        // Handle cases where backend returns "Line Blue Line", "Line Orange Line", etc.
-        String cleanLine = lineNumber.trim();
-        if (cleanLine.startsWith("Line ")) {
-            cleanLine = cleanLine.substring(5).trim();
-        }
+    private static final int[] METRO_COLORS = {
+        R.color.metro_line_1, // Blue
+        R.color.metro_line_2, // Red
+        R.color.metro_line_3, // Orange
+        R.color.metro_line_4, // Yellow
+        R.color.metro_line_5, // Green
+        R.color.metro_line_6  // Purple
+    };
+    private static final int[] METRO_NAMES = {
+        R.string.blue_line,
+        R.string.red_line,
+        R.string.orange_line,
+        R.string.yellow_line,
+        R.string.green_line,
+        R.string.purple_line
+    };
 
-        // Check for color names
-        if (cleanLine.equalsIgnoreCase("Blue Line") || cleanLine.equals("1")) {
-            return context.getColor(R.color.metro_line_1);
-        } else if (cleanLine.equalsIgnoreCase("Red Line") || cleanLine.equals("2")) {
-            return context.getColor(R.color.metro_line_2);
-        } else if (cleanLine.equalsIgnoreCase("Orange Line") || cleanLine.equals("3")) {
-            return context.getColor(R.color.metro_line_3);
-        } else if (cleanLine.equalsIgnoreCase("Yellow Line") || cleanLine.equals("4")) {
-            return context.getColor(R.color.metro_line_4);
-        } else if (cleanLine.equalsIgnoreCase("Green Line") || cleanLine.equals("5")) {
-            return context.getColor(R.color.metro_line_5);
-        } else if (cleanLine.equalsIgnoreCase("Purple Line") || cleanLine.equals("6")) {
-            return context.getColor(R.color.metro_line_6);
-        } else if (cleanLine.equalsIgnoreCase("المسار الأحمر") || cleanLine.equals("2")) {
-            return context.getColor(R.color.metro_line_2);
-        } else if (cleanLine.equalsIgnoreCase("المسار الأزرق") || cleanLine.equals("1")) {
-            return context.getColor(R.color.metro_line_1);
-        } else if (cleanLine.equalsIgnoreCase("المسار البرتقالي") || cleanLine.equals("3")) {
-            return context.getColor(R.color.metro_line_3);
-        } else if (cleanLine.equalsIgnoreCase("المسار الأصفر") || cleanLine.equals("4")) {
-            return context.getColor(R.color.metro_line_4);
-        } else if (cleanLine.equalsIgnoreCase("المسار الأخضر") || cleanLine.equals("5")) {
-            return context.getColor(R.color.metro_line_5);
-        } else if (cleanLine.equalsIgnoreCase("المسار البنفسجي") || cleanLine.equals("6")) {
-            return context.getColor(R.color.metro_line_6);
-        }
+    // Colors and names resolved for the most recent configuration (locale + night mode)
+    private static volatile ResolvedLines resolved;
 
-        // Fallback for numeric line numbers
-        switch (cleanLine) {
-            case "1":
-                return context.getColor(R.color.metro_line_1); // Blue
-            case "2":
-                return context.getColor(R.color.metro_line_2); // Red
-            case "3":
-                return context.getColor(R.color.metro_line_3); // Orange
-            case "4":
-                return context.getColor(R.color.metro_line_4); // Yellow
-            case "5":
-                return context.getColor(R.color.metro_line_5); // Green
-            case "6":
-                return context.getColor(R.color.metro_line_6); // Purple
-            default:
-                return context.getColor(R.color.colorPrimary);
-        }
+    public static int getMetroLineColor(Context context, String lineNumber) {
+        ResolvedLines lines = resolve(context);
+        int index = LineRegistry.metroIndex(lineNumber);
+        return index >= 0 ? lines.colors[index] : lines.primaryColor;
     }
-    
+
     public static String getMetroLineName(Context context, String lineNumber) {
         if (lineNumber == null) {
             return "";
         }
-        
-        // Handle cases where backend returns "Line Blue Line", "Line Orange Line", etc.
-        String cleanLine = lineNumber.trim();
-        if (cleanLine.startsWith("Line ")) {
-            cleanLine = cleanLine.substring(5).trim();
-        }
-
-        // Check for color names
-        if (cleanLine.equalsIgnoreCase("Blue Line") || cleanLine.equals("1")) {
-            return context.getString(R.string.blue_line);
-        } else if (cleanLine.equalsIgnoreCase("Red Line") || cleanLine.equals("2")) {
-            return context.getString(R.string.red_line);
-        } else if (cleanLine.equalsIgnoreCase("Orange Line") || cleanLine.equals("3")) {
-            return context.getString(R.string.orange_line);
-        } else if (cleanLine.equalsIgnoreCase("Yellow Line") || cleanLine.equals("4")) {
-            return context.getString(R.string.yellow_line);
-        } else if (cleanLine.equalsIgnoreCase("Green Line") || cleanLine.equals("5")) {
-            return context.getString(R.string.green_line);
-        } else if (cleanLine.equalsIgnoreCase("Purple Line") || cleanLine.equals("6")) {
-            return context.getString(R.string.purple_line);
-        }
 
-        // Fallback for numeric line numbers
-        switch (cleanLine) {
-            case "1":
-                return context.getString(R.string.blue_line);
-            case "2":
-                return context.getString(R.string.red_line);
-            case "3":
-                return context.getString(R.string.orange_line);
-            case "4":
-                return context.getString(R.string.yellow_line);
-            case "5":
-                return context.getString(R.string.green_line);
-            case "6":
-                return context.getString(R.string.purple_line);
-            default:
-                return cleanLine;
+        int index = LineRegistry.metroIndex(lineNumber);
+        if (index >= 0) {
+            return resolve(context).names[index];
         }
+        // Not a metro line; show the identifier without the "Line " prefix
+        return LineRegistry.canonicalId(lineNumber);
     }
-    
+
     public static int getBusLineColor(Context context) {
         return context.getColor(R.color.bus_color);
     }
@@ -126,4 +62,39 @@ public class LineColorHelper {
         }
         return context.getColor(R.color.colorPrimary);
     }
+
+    /**
+     * Resolved metro colors and names for the context's configuration, reloaded
+     * only when the language or night mode changes
+     */
+    private static ResolvedLines resolve(Context context) {
+        Configuration config = context.getResources().getConfiguration();
+        String language = config.getLocales().get(0).getLanguage();
+        int nightMode = config.uiMode & Configuration.UI_MODE_NIGHT_MASK;
+
+        ResolvedLines lines = resolved;
+        if (lines == null || lines.nightMode != nightMode || !lines.language.equals(language)) {
+            lines = new ResolvedLines(context, language, nightMode);
+            resolved = lines;
+        }
+        return lines;
+    }
+
+    private static class ResolvedLines {
+        final String language;
+        final int nightMode;
+        final int primaryColor;
+        final int[] colors = new int[LineRegistry.METRO_LINE_COUNT];
+        final String[] names = new String[LineRegistry.METRO_LINE_COUNT];
+
+        ResolvedLines(Context context, String language, int nightMode) {
+            this.language = language;
+            this.nightMode = nightMode;
+            this.primaryColor = context.getColor(R.color.colorPrimary);
+            for (int i = 0; i < LineRegistry.METRO_LINE_COUNT; i++) {
+                colors[i] = context.getColor(METRO_COLORS[i]);
+                names[i] = context.getString(METRO_NAMES[i]);
+            }
+        }
+    }
 }
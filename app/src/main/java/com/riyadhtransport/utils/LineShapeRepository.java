@@ -0,0 +1,260 @@
+package com.riyadhtransport.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.RequestScheduler;
+import com.riyadhtransport.models.LineShape;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Line shapes for drawing routes along the track or road instead of straight between
+ * stations. Shapes are kept in memory and in one file on disk, since they change far
+ * less often than anything else the app fetches; entries older than a week are used
+ * but refreshed. Lines the backend has no shape for are drawn between stations as
+ * before, and that answer is saved in the same file and kept for the same week. A 404
+ * means the backend has no {@code lineshape} endpoint, so no line is asked for until
+ * a week later.
+ */
+public class LineShapeRepository {
+    private static final String TAG = "LineShapeRepository";
+    private static final String FILE_NAME = "line_shapes.json";
+    private static final long MAX_AGE_MS = 7 * 24 * 60 * 60 * 1000L; // 7 days
+
+    private static final Metrics.Counter FETCHED = Metrics.counter("shapes.fetched");
+    private static final Metrics.Counter UNAVAILABLE = Metrics.counter("shapes.unavailable");
+    private static final Metrics.Counter UNSUPPORTED = Metrics.counter("shapes.unsupported");
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "line-shapes");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only. An entry without shapes records that the line has none.
+    private static final Map<String, Entry> shapes = new HashMap<>();
+    private static final Set<String> loading = new HashSet<>();
+    // When the backend last answered that it has no lineshape endpoint, or 0
+    private static long unsupportedAtMs;
+    private static boolean diskLoaded;
+    private static boolean diskLoading;
+    private static final List<Runnable> waitingForDisk = new ArrayList<>();
+
+    public static String key(String type, String line) {
+        return type + ":" + line;
+    }
+
+    /**
+     * Shapes already in memory for a line, or null. Call on the main thread.
+     */
+    public static List<LineShape> getCachedShapes(String type, String line) {
+        Entry entry = shapes.get(key(type, line));
+        return entry != null && !entry.shapes.isEmpty() ? entry.shapes : null;
+    }
+
+    /**
+     * Make the shapes for {@code keys} (from {@link #key}) available, reading the disk
+     * cache and then fetching what is missing or stale. {@code onLoaded} runs on the main
+     * thread each time new shapes arrive. Call on the main thread.
+     */
+    public static void loadShapes(Context context, Collection<String> keys, Runnable onLoaded) {
+        File file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        if (!diskLoaded) {
+            waitingForDisk.add(() -> {
+                if (containsAny(keys)) {
+                    onLoaded.run();
+                }
+                fetchMissing(keys, file, onLoaded);
+            });
+            if (!diskLoading) {
+                diskLoading = true;
+                executor.execute(() -> {
+                    Snapshot stored = readFile(file);
+                    mainHandler.post(() -> publishDisk(stored));
+                });
+            }
+            return;
+        }
+        fetchMissing(keys, file, onLoaded);
+    }
+
+    private static void publishDisk(Snapshot stored) {
+        unsupportedAtMs = Math.max(unsupportedAtMs, stored.unsupportedAtMs);
+        for (Map.Entry<String, Entry> entry : stored.lines.entrySet()) {
+            // Shapes fetched while the file was being read are newer
+            if (!shapes.containsKey(entry.getKey())) {
+                shapes.put(entry.getKey(), entry.getValue());
+            }
+        }
+        diskLoaded = true;
+        diskLoading = false;
+        List<Runnable> callbacks = new ArrayList<>(waitingForDisk);
+        waitingForDisk.clear();
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    private static boolean containsAny(Collection<String> keys) {
+        for (String key : keys) {
+            Entry entry = shapes.get(key);
+            if (entry != null && !entry.shapes.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void fetchMissing(Collection<String> keys, File file, Runnable onLoaded) {
+        long now = System.currentTimeMillis();
+        if (now - unsupportedAtMs < MAX_AGE_MS) {
+            return;
+        }
+        for (String key : keys) {
+            Entry entry = shapes.get(key);
+            boolean fresh = entry != null && now - entry.savedAtMs < MAX_AGE_MS;
+            if (fresh || !loading.add(key)) {
+                continue;
+            }
+            fetch(key, file, onLoaded);
+        }
+    }
+
+    private static void fetch(String key, File file, Runnable onLoaded) {
+        int separator = key.indexOf(':');
+        JsonObject body = new JsonObject();
+        body.addProperty("line", key.substring(separator + 1));
+        body.addProperty("type", key.substring(0, separator));
+
+        // Dropped if still waiting when a new search starts; the route then joins stations directly
+        RequestScheduler.prefetch(ApiClient.getApiService().getLineShapes(body)).enqueue(new Callback<List<LineShape>>() {
+            @Override
+            public void onResponse(@NonNull Call<List<LineShape>> call,
+                                   @NonNull Response<List<LineShape>> response) {
+                loading.remove(key);
+                List<LineShape> fetched = usable(response.body());
+                if (response.isSuccessful()) {
+                    Entry entry = new Entry();
+                    entry.savedAtMs = System.currentTimeMillis();
+                    entry.shapes = fetched;
+                    shapes.put(key, entry);
+                    save(file);
+                    if (fetched.isEmpty()) {
+                        // No shape for this line; stations are joined directly instead
+                        UNAVAILABLE.increment();
+                    } else {
+                        FETCHED.increment();
+                        onLoaded.run();
+                    }
+                } else if (response.code() == 404) {
+                    // The backend has no lineshape endpoint
+                    UNSUPPORTED.increment();
+                    unsupportedAtMs = System.currentTimeMillis();
+                    save(file);
+                } else {
+                    Log.w(TAG, "Failed to load shape for " + key + ": " + response.code());
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<List<LineShape>> call, @NonNull Throwable t) {
+                loading.remove(key);
+                Log.w(TAG, "Failed to load shape for " + key + ": " + t.getMessage());
+            }
+        });
+    }
+
+    private static void save(File file) {
+        Snapshot snapshot = new Snapshot();
+        snapshot.lines = new HashMap<>(shapes);
+        snapshot.unsupportedAtMs = unsupportedAtMs;
+        executor.execute(() -> writeFile(file, snapshot));
+    }
+
+    private static List<LineShape> usable(List<LineShape> fetched) {
+        List<LineShape> result = new ArrayList<>();
+        if (fetched != null) {
+            for (LineShape shape : fetched) {
+                if (shape != null && shape.isUsable()) {
+                    result.add(shape);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Snapshot readFile(File file) {
+        Snapshot result = new Snapshot();
+        result.lines = new HashMap<>();
+        if (!file.exists()) {
+            return result;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            Snapshot snapshot = new Gson().fromJson(reader, Snapshot.class);
+            if (snapshot != null && snapshot.lines != null) {
+                result.unsupportedAtMs = snapshot.unsupportedAtMs;
+                for (Map.Entry<String, Entry> entry : snapshot.lines.entrySet()) {
+                    Entry value = entry.getValue();
+                    if (value != null && value.shapes != null) {
+                        value.shapes = usable(value.shapes);
+                        result.lines.put(entry.getKey(), value);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Discarding unreadable line shapes", e);
+            file.delete();
+        }
+        return result;
+    }
+
+    private static void writeFile(File file, Snapshot snapshot) {
+        // Write to a temporary file and rename, so a crash never leaves half a file
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            new Gson().toJson(snapshot, writer);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to write line shapes", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+
+    private static class Snapshot {
+        Map<String, Entry> lines;
+        long unsupportedAtMs;
+    }
+
+    private static class Entry {
+        long savedAtMs;
+        List<LineShape> shapes;
+    }
+}
@@ -3,28 +3,43 @@ package com.riyadhtransport.utils;
 import android.util.Log;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
-import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.ApiFutures;
+import com.riyadhtransport.api.AsyncApi;
+import com.riyadhtransport.api.CircuitBreaker;
+import com.riyadhtransport.api.Deadline;
 import com.riyadhtransport.models.Arrival;
 import com.riyadhtransport.models.ArrivalResponse;
 import com.riyadhtransport.models.RefinedTerminusResponse;
 import com.riyadhtransport.models.StationDeparture;
 import com.riyadhtransport.models.StationIdResponse;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.TimeZone;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import java.util.concurrent.CompletableFuture;
 
 public class LiveArrivalManager {
     private static final String TAG = "LiveArrivalManager";
-    private static final int MAX_WAIT_MINUTES = 45;
+    
+    private static final Metrics.Counter PRIMARY = Metrics.counter("arrivals.primary");
+    private static final Metrics.Counter FALLBACK = Metrics.counter("arrivals.fallback");
+    private static final Metrics.Counter SHARED = Metrics.counter("arrivals.shared");
+    private static final Metrics.Counter ERRORS = Metrics.counter("arrivals.errors");
+    private static final Metrics.Histogram TOTAL_MS = Metrics.histogram("arrivals.total_ms");
+    
+    // The whole lookup, fallback included, gets 5 s. Each primary attempt gets 2 s from
+    // when it is sent, and the primary gives up once only 2 s are left for the fallback.
+    private static final long DEADLINE_MS = 5000;
+    private static final long PRIMARY_ATTEMPT_MS = 2000;
+    private static final long FALLBACK_RESERVE_MS = 2000;
+    
+    // Skip a primary endpoint for 30 s after 3 failed or slow (over 1.5 s) calls in a row
+    private static final CircuitBreaker METRO_BREAKER = new CircuitBreaker("metro_arrivals", 3, 1500, 30000);
+    private static final CircuitBreaker BUS_BREAKER = new CircuitBreaker("bus_arrivals", 3, 1500, 30000);
+    
+    // Primary requests in flight by endpoint and station. The request has only the
+    // station name, so every line at a station shares one; guarded by itself.
+    private static final Map<String, SharedResponse> primaryInFlight = new HashMap<>();
     
     public interface ArrivalCallback {
         void onSuccess(List<Arrival> arrivals);
@@ -33,391 +48,326 @@ public class LiveArrivalManager {
     
     /**
      * Get live arrivals for a station. First tries the primary APIs, then falls back to RPT.
+     * The callback is called on the main thread, unless the returned future is cancelled.
      */
-    public static void getLiveArrivals(String stationName, String segmentType, 
+    public static CompletableFuture<List<Arrival>> getLiveArrivals(String stationName, String segmentType,
                                         String lineNumber, String finalDestination,
                                         ArrivalCallback callback) {
+        CompletableFuture<List<Arrival>> arrivals =
+                liveArrivals(stationName, segmentType, lineNumber, finalDestination);
+        arrivals.whenComplete((result, error) -> {
+            if (arrivals.isCancelled()) {
+                return;
+            }
+            MainThreadBudget.post("arrivals.callback", () -> {
+                if (error == null) {
+                    callback.onSuccess(result);
+                } else {
+                    callback.onError(ApiFutures.unwrap(error).getMessage());
+                }
+            });
+        });
+        return arrivals;
+    }
+    
+    /**
+     * Live arrivals for a station as a future, for composing with other requests.
+     * Completes on a background thread; cancelling it cancels the requests in flight.
+     */
+    public static CompletableFuture<List<Arrival>> liveArrivals(String stationName, String segmentType,
+                                                                String lineNumber, String finalDestination) {
         Log.d(TAG, "Getting live arrivals for: " + stationName + ", type: " + segmentType);
+        long startNanos = System.nanoTime();
+        Deadline deadline = Deadline.after(DEADLINE_MS);
         
-        // Try primary API first
-        Map<String, String> request = new HashMap<>();
-        request.put("station_name", stationName);
-        
-        Call<Map<String, Object>> call;
-        if ("metro".equalsIgnoreCase(segmentType)) {
-            call = ApiClient.getApiService().getMetroArrivals(request);
+        // Try primary API first, unless it has been failing
+        boolean metro = "metro".equalsIgnoreCase(segmentType);
+        CircuitBreaker breaker = metro ? METRO_BREAKER : BUS_BREAKER;
+        String key = (metro ? "metro:" : "bus:") + stationName;
+        CompletableFuture<Map<String, Object>> primary = joinPrimary(key);
+        if (primary == null && breaker.tryAcquire()) {
+            primary = startPrimary(key, breaker, stationName, metro, deadline);
+        }
+        CompletableFuture<List<Arrival>> arrivals;
+        if (primary == null) {
+            Log.d(TAG, "Primary API " + breaker.getName() + " is unhealthy, using fallback");
+            arrivals = fallbackArrivals(stationName, lineNumber, finalDestination, deadline);
         } else {
-            call = ApiClient.getApiService().getBusArrivals(request);
+            arrivals = primaryArrivals(primary, stationName, lineNumber, finalDestination, deadline);
         }
         
-        call.enqueue(new Callback<Map<String, Object>>() {
-            @Override
-            public void onResponse(Call<Map<String, Object>> call, Response<Map<String, Object>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    try {
-                        Map<String, Object> body = response.body();
-                        if (body.containsKey("arrivals")) {
-                            // Parse arrivals
-                            Gson gson = new Gson();
-                            String arrivalsJson = gson.toJson(body.get("arrivals"));
-                            List<Arrival> arrivals = gson.fromJson(arrivalsJson, 
-                                new TypeToken<List<Arrival>>(){}.getType());
-                            
-                            if (arrivals != null && !arrivals.isEmpty()) {
-                                Log.d(TAG, "Primary API success: " + arrivals.size() + " arrivals");
-                                callback.onSuccess(arrivals);
-                                return;
-                            }
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing primary API response", e);
-                    }
-                }
-                
-                // Primary API failed, use fallback
-                Log.d(TAG, "Primary API failed, using fallback");
-                useFallbackApi(stationName, lineNumber, finalDestination, callback);
-            }
-            
-            @Override
-            public void onFailure(Call<Map<String, Object>> call, Throwable t) {
-                Log.e(TAG, "Primary API call failed", t);
-                useFallbackApi(stationName, lineNumber, finalDestination, callback);
+        arrivals.whenComplete((result, error) -> {
+            if (error == null) {
+                TOTAL_MS.recordSinceNanos(startNanos);
+            } else if (!arrivals.isCancelled()) {
+                ERRORS.increment();
             }
         });
+        return arrivals;
     }
     
     /**
-     * Fallback method using giveMeId and RPT station details API
+     * The primary response for {@code key} if another lookup is already fetching it, or null
      */
-    private static void useFallbackApi(String stationName, String lineNumber, 
-                                        String finalDestination, ArrivalCallback callback) {
-        Log.d(TAG, "Using fallback API for: " + stationName);
-        
-        // Normalize line number (convert "Blue Line" to "1", etc.)
-        String normalizedLineNumber = normalizeMetroLine(lineNumber);
-        Log.d(TAG, "Normalized line number: " + lineNumber + " -> " + normalizedLineNumber);
-        
-        // Step 1: Get station ID
+    private static CompletableFuture<Map<String, Object>> joinPrimary(String key) {
+        synchronized (primaryInFlight) {
+            SharedResponse shared = primaryInFlight.get(key);
+            if (shared == null) {
+                return null;
+            }
+            SHARED.increment();
+            return shared.join();
+        }
+    }
+    
+    /**
+     * Send the primary request for {@code key}. Each attempt gets its share from when the
+     * scheduler sends it, and retries stop in time to leave the fallback its reserve.
+     */
+    private static CompletableFuture<Map<String, Object>> startPrimary(String key, CircuitBreaker breaker,
+                                                                      String stationName, boolean metro,
+                                                                      Deadline deadline) {
         Map<String, String> request = new HashMap<>();
         request.put("station_name", stationName);
+        Deadline primaryDeadline = deadline.leaving(FALLBACK_RESERVE_MS);
+        CompletableFuture<Map<String, Object>> response = metro
+                ? AsyncApi.getMetroArrivals(request, breaker, PRIMARY_ATTEMPT_MS, primaryDeadline)
+                : AsyncApi.getBusArrivals(request, breaker, PRIMARY_ATTEMPT_MS, primaryDeadline);
+        response.whenComplete((body, error) -> breaker.release());
         
-        ApiClient.getApiService().getStationId(request).enqueue(new Callback<Map<String, Object>>() {
-            @Override
-            public void onResponse(Call<Map<String, Object>> call, Response<Map<String, Object>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    try {
-                        Gson gson = new Gson();
-                        String json = gson.toJson(response.body());
-                        StationIdResponse stationIdResp = gson.fromJson(json, StationIdResponse.class);
-                        
-                        if (stationIdResp.getMatches() != null && !stationIdResp.getMatches().isEmpty()) {
-                            String stationId = stationIdResp.getMatches().get(0).getStationId();
-                            Log.d(TAG, "Got station ID: " + stationId);
-                            
-                            // Step 2: Get station departures from RPT (use normalized line number)
-                            getRptDepartures(stationId, normalizedLineNumber, finalDestination, callback);
-                        } else {
-                            callback.onError("No station matches found");
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing station ID response", e);
-                        callback.onError("Failed to parse station ID");
-                    }
-                } else {
-                    callback.onError("Failed to get station ID");
+        SharedResponse shared = new SharedResponse(response);
+        synchronized (primaryInFlight) {
+            primaryInFlight.put(key, shared);
+            CompletableFuture<Map<String, Object>> own = shared.join();
+            // Registered after the put, so a response that is already done is removed at once
+            response.whenComplete((body, error) -> {
+                synchronized (primaryInFlight) {
+                    primaryInFlight.remove(key, shared);
                 }
-            }
-            
-            @Override
-            public void onFailure(Call<Map<String, Object>> call, Throwable t) {
-                Log.e(TAG, "Failed to get station ID", t);
-                callback.onError("Network error getting station ID");
-            }
-        });
+            });
+            return own;
+        }
     }
     
     /**
-     * Get departures from RPT station details API
+     * Arrivals from the primary API, or the fallback when it fails or has none
      */
-    private static void getRptDepartures(String stationId, String lineNumber, 
-                                          String finalDestination, ArrivalCallback callback) {
-        Log.d(TAG, "Getting RPT departures for station ID: " + stationId);
-        
-        Map<String, String> fields = new HashMap<>();
-        String fieldName = "_com_rcrc_stations_RcrcStationDetailsPortlet_INSTANCE_53WVbOYPfpUF_busStopId";
-        fields.put(fieldName, stationId);
-        
-        ApiClient.getRptStationService().getStationDepartures(fields).enqueue(
-            new Callback<List<StationDeparture>>() {
-                @Override
-                public void onResponse(Call<List<StationDeparture>> call, 
-                                       Response<List<StationDeparture>> response) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        List<StationDeparture> departures = response.body();
-                        Log.d(TAG, "Got " + departures.size() + " departures from RPT");
-                        
-                        // Convert departures to arrivals
-                        convertDeparturesToArrivals(departures, lineNumber, finalDestination, callback);
-                    } else {
-                        Log.e(TAG, "RPT API failed with code: " + response.code());
-                        callback.onError("Failed to get departures from RPT");
+    private static CompletableFuture<List<Arrival>> primaryArrivals(CompletableFuture<Map<String, Object>> primary,
+                                                                    String stationName, String lineNumber,
+                                                                    String finalDestination, Deadline deadline) {
+        return ApiFutures.compose(
+                ApiFutures.recover(primary, error -> {
+                    Log.e(TAG, "Primary API call failed", error);
+                    return null;
+                }),
+                body -> {
+                    List<Arrival> parsed = body != null ? parsePrimaryArrivals(body) : null;
+                    if (parsed != null && !parsed.isEmpty()) {
+                        Log.d(TAG, "Primary API success: " + parsed.size() + " arrivals");
+                        PRIMARY.increment();
+                        return CompletableFuture.completedFuture(parsed);
                     }
-                }
-                
-                @Override
-                public void onFailure(Call<List<StationDeparture>> call, Throwable t) {
-                    Log.e(TAG, "RPT API call failed", t);
-                    callback.onError("Network error getting departures");
-                }
-            });
+                    
+                    // Primary API failed, use fallback
+                    Log.d(TAG, "Primary API failed, using fallback");
+                    return fallbackArrivals(stationName, lineNumber, finalDestination, deadline);
+                });
     }
     
     /**
-     * Convert RPT departures to Arrival objects with refined terminus
+     * One primary request shared by the lookups that want the same response. Each lookup
+     * gets its own future; the request is cancelled once every one of them is.
      */
-    private static void convertDeparturesToArrivals(List<StationDeparture> departures,
-                                                     String lineNumber, String finalDestination,
-                                                     ArrivalCallback callback) {
-        List<Arrival> arrivals = new ArrayList<>();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    private static final class SharedResponse {
+        private final CompletableFuture<Map<String, Object>> response;
+        // Guarded by primaryInFlight
+        private int waiting;
         
-        Date now = new Date();
-        
-        // Filter departures by line number if provided
-        List<StationDeparture> filteredDepartures = new ArrayList<>();
-        for (StationDeparture dep : departures) {
-            if (lineNumber == null || lineNumber.isEmpty() || 
-                lineNumber.equals(dep.getNumber())) {
-                filteredDepartures.add(dep);
-            }
-        }
-        
-        if (filteredDepartures.isEmpty()) {
-            callback.onError("No departures found for line " + lineNumber);
-            return;
+        SharedResponse(CompletableFuture<Map<String, Object>> response) {
+            this.response = response;
         }
         
-        // Get refined terminus for the first departure
-        StationDeparture firstDep = filteredDepartures.get(0);
-        refineTerminusAndComplete(firstDep.getNumber(), firstDep.getDestination(), 
-            new TerminusCallback() {
-                @Override
-                public void onSuccess(String refinedTerminus) {
-                    // Convert all departures to arrivals
-                    for (StationDeparture dep : filteredDepartures) {
-                        try {
-                            Date departureTime = dateFormat.parse(dep.getActualDepartureTimePlanned());
-                            if (departureTime != null) {
-                                long diffMs = departureTime.getTime() - now.getTime();
-                                int minutesUntil = (int) Math.max(0, diffMs / 60000);
-                                
-                                Arrival arrival = new Arrival();
-                                arrival.setLine(dep.getNumber());
-                                arrival.setDestination(refinedTerminus != null ? refinedTerminus : dep.getDestination());
-                                arrival.setMinutesUntil(minutesUntil);
-                                
-                                arrivals.add(arrival);
-                            }
-                        } catch (ParseException e) {
-                            Log.e(TAG, "Error parsing departure time", e);
-                        }
-                    }
-                    
-                    Log.d(TAG, "Converted " + arrivals.size() + " arrivals");
-                    callback.onSuccess(arrivals);
+        /**
+         * A new lookup's future; call with primaryInFlight held
+         */
+        CompletableFuture<Map<String, Object>> join() {
+            waiting++;
+            CompletableFuture<Map<String, Object>> own = new CompletableFuture<>();
+            response.whenComplete((body, error) -> {
+                if (error == null) {
+                    own.complete(body);
+                } else {
+                    own.completeExceptionally(error);
                 }
-                
-                @Override
-                public void onError(String message) {
-                    // Use original destinations if refinement fails
-                    for (StationDeparture dep : filteredDepartures) {
-                        try {
-                            Date departureTime = dateFormat.parse(dep.getActualDepartureTimePlanned());
-                            if (departureTime != null) {
-                                long diffMs = departureTime.getTime() - now.getTime();
-                                int minutesUntil = (int) Math.max(0, diffMs / 60000);
-                                
-                                Arrival arrival = new Arrival();
-                                arrival.setLine(dep.getNumber());
-                                arrival.setDestination(dep.getDestination());
-                                arrival.setMinutesUntil(minutesUntil);
-                                
-                                arrivals.add(arrival);
-                            }
-                        } catch (ParseException e) {
-                            Log.e(TAG, "Error parsing departure time", e);
-                        }
+            });
+            own.whenComplete((body, error) -> {
+                if (own.isCancelled()) {
+                    boolean last;
+                    synchronized (primaryInFlight) {
+                        last = --waiting == 0;
+                    }
+                    if (last) {
+                        response.cancel(true);
                     }
-                    
-                    callback.onSuccess(arrivals);
                 }
             });
+            return own;
+        }
     }
     
-    private interface TerminusCallback {
-        void onSuccess(String refinedTerminus);
-        void onError(String message);
+    /**
+     * Arrivals from a primary API response, or null if it has none
+     */
+    private static List<Arrival> parsePrimaryArrivals(Map<String, Object> body) {
+        if (!body.containsKey("arrivals")) {
+            return null;
+        }
+        try {
+            // Convert the already-parsed map straight to Arrivals, without a JSON string in between
+            Gson gson = new Gson();
+            return gson.fromJson(gson.toJsonTree(body.get("arrivals")),
+                new TypeToken<List<Arrival>>(){}.getType());
+        } catch (Exception e) {
+            Log.e(TAG, "Error parsing primary API response", e);
+            return null;
+        }
     }
     
     /**
-     * Refine terminus name using the refineTerminus API
+     * Fallback using giveMeId, then the RPT station details API, then refineTerminus
      */
-    private static void refineTerminusAndComplete(String lineNumber, String apiDestination, 
-                                                   TerminusCallback callback) {
-        Map<String, String> request = new HashMap<>();
-        request.put("line_number", lineNumber);
-        request.put("api_destination", apiDestination);
+    private static CompletableFuture<List<Arrival>> fallbackArrivals(String stationName, String lineNumber,
+                                                                     String finalDestination, Deadline deadline) {
+        Log.d(TAG, "Using fallback API for: " + stationName);
+        FALLBACK.increment();
         
-        ApiClient.getApiService().refineTerminus(request).enqueue(
-            new Callback<Map<String, Object>>() {
-                @Override
-                public void onResponse(Call<Map<String, Object>> call, 
-                                       Response<Map<String, Object>> response) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        try {
-                            Gson gson = new Gson();
-                            String json = gson.toJson(response.body());
-                            RefinedTerminusResponse resp = gson.fromJson(json, 
-                                RefinedTerminusResponse.class);
-                            
-                            if (resp.getRefinedTerminus() != null) {
-                                Log.d(TAG, "Refined terminus: " + resp.getRefinedTerminus());
-                                callback.onSuccess(resp.getRefinedTerminus());
-                                return;
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error parsing refined terminus", e);
-                        }
+        // Normalize line number (convert "Blue Line" to "1", etc.)
+        String normalizedLineNumber = normalizeMetroLine(lineNumber);
+        Log.d(TAG, "Normalized line number: " + lineNumber + " -> " + normalizedLineNumber);
+        
+        // Step 1: Get station ID, step 2: get its departures from RPT
+        Map<String, String> request = new HashMap<>();
+        request.put("station_name", stationName);
+        CompletableFuture<List<StationDeparture>> departures =
+                ApiFutures.compose(AsyncApi.getStationId(request, deadline), body -> {
+                    Gson gson = new Gson();
+                    StationIdResponse stationIdResp = gson.fromJson(gson.toJsonTree(body), StationIdResponse.class);
+                    if (stationIdResp.getMatches() == null || stationIdResp.getMatches().isEmpty()) {
+                        throw new IllegalStateException("No station matches found");
                     }
-                    callback.onError("Failed to refine terminus");
-                }
-                
-                @Override
-                public void onFailure(Call<Map<String, Object>> call, Throwable t) {
-                    Log.e(TAG, "Failed to refine terminus", t);
-                    callback.onError("Network error");
+                    String stationId = stationIdResp.getMatches().get(0).getStationId();
+                    Log.d(TAG, "Got station ID: " + stationId);
+                    
+                    Map<String, String> fields = new HashMap<>();
+                    String fieldName = "_com_rcrc_stations_RcrcStationDetailsPortlet_INSTANCE_53WVbOYPfpUF_busStopId";
+                    fields.put(fieldName, stationId);
+                    return AsyncApi.getStationDepartures(fields, deadline);
+                });
+        
+        // Step 3: Convert departures to arrivals with a refined terminus
+        return ApiFutures.compose(departures, all -> {
+            long now = System.currentTimeMillis();
+            Log.d(TAG, "Got " + all.size() + " departures from RPT");
+            
+            // Filter departures by line number if provided
+            List<StationDeparture> filteredDepartures = new ArrayList<>();
+            for (StationDeparture dep : all) {
+                if (normalizedLineNumber == null || normalizedLineNumber.isEmpty() ||
+                    normalizedLineNumber.equals(dep.getNumber())) {
+                    filteredDepartures.add(dep);
                 }
+            }
+            if (filteredDepartures.isEmpty()) {
+                throw new IllegalStateException("No departures found for line " + normalizedLineNumber);
+            }
+            
+            // Use original destinations if refinement fails
+            StationDeparture firstDep = filteredDepartures.get(0);
+            CompletableFuture<String> terminus = ApiFutures.recover(
+                    refineTerminus(firstDep.getNumber(), firstDep.getDestination(), deadline),
+                    error -> {
+                        Log.e(TAG, "Failed to refine terminus", error);
+                        return null;
+                    });
+            return ApiFutures.map(terminus, refinedTerminus -> {
+                List<Arrival> arrivals = toArrivals(filteredDepartures, refinedTerminus, now);
+                Log.d(TAG, "Converted " + arrivals.size() + " arrivals");
+                return arrivals;
             });
+        });
     }
     
     /**
-     * Find the next valid arrival that the user can catch
+     * Build arrivals from departures, skipping rows with an unparseable departure time
      */
-    public static Arrival findValidArrival(List<Arrival> arrivals, String line, 
-                                           String destination, int cumulativeTravelMinutes) {
-        if (arrivals == null || arrivals.isEmpty()) {
-            Log.d(TAG, "findValidArrival: No arrivals provided");
-            return null;
-        }
-        
-        Log.d(TAG, "findValidArrival: Checking " + arrivals.size() + " arrivals, line=" + line + 
-              ", destination=" + destination + ", cumulativeTime=" + cumulativeTravelMinutes);
-        
-        Arrival fallbackArrival = null;
-        
-        for (Arrival arrival : arrivals) {
-            // Check if arrival matches line and destination
-            // Use flexible line matching to handle "Yellow Line" vs "4" or "1" vs "Blue Line"
-            boolean lineMatches = line == null || line.isEmpty() || 
-                                  linesMatch(line, arrival.getLine());
-            boolean destMatches = destination == null || destination.isEmpty() ||
-                                  destination.equalsIgnoreCase(arrival.getDestination()) ||
-                                  arrival.getDestination().contains(destination) ||
-                                  destination.contains(arrival.getDestination());
-            
-            // Check if user can catch this arrival
-            boolean canCatch = arrival.getMinutesUntil() >= cumulativeTravelMinutes;
-            
-            // Check if wait time is reasonable
-            int waitTime = arrival.getMinutesUntil() - cumulativeTravelMinutes;
-            boolean reasonableWait = waitTime <= MAX_WAIT_MINUTES;
-            
-            Log.d(TAG, "  Arrival: line=" + arrival.getLine() + ", dest=" + arrival.getDestination() + 
-                  ", minutesUntil=" + arrival.getMinutesUntil() + 
-                  " | lineMatches=" + lineMatches + ", destMatches=" + destMatches + 
-                  ", canCatch=" + canCatch + ", reasonableWait=" + reasonableWait);
-            
-            // Store first catchable arrival with matching line as fallback
-            if (lineMatches && canCatch && reasonableWait && fallbackArrival == null) {
-                fallbackArrival = arrival;
+    private static List<Arrival> toArrivals(List<StationDeparture> departures,
+                                            String refinedTerminus, long now) {
+        List<Arrival> arrivals = new ArrayList<>(departures.size());
+        int skipped = 0;
+        for (StationDeparture dep : departures) {
+            long departureTime = ArrivalTimeFormatter.parseIsoUtcMillis(dep.getActualDepartureTimePlanned());
+            if (departureTime == ArrivalTimeFormatter.INVALID_TIME) {
+                skipped++;
+                continue;
             }
             
-            if (lineMatches && destMatches && canCatch && reasonableWait) {
-                Log.d(TAG, "  -> Valid arrival found with matching destination!");
-                return arrival;
-            }
+            Arrival arrival = new Arrival();
+            arrival.setLine(dep.getNumber());
+            arrival.setDestination(refinedTerminus != null ? refinedTerminus : dep.getDestination());
+            arrival.setMinutesUntil(ArrivalTimeFormatter.minutesUntil(departureTime, now));
+            arrivals.add(arrival);
         }
         
-        // If no perfect match, use fallback (matching line but not destination)
-        if (fallbackArrival != null) {
-            Log.d(TAG, "  -> Using fallback arrival (line matches but destination may not)");
-            return fallbackArrival;
+        if (skipped > 0) {
+            Log.e(TAG, "Skipped " + skipped + " departures with unparseable times");
         }
-        
-        Log.d(TAG, "findValidArrival: No valid arrival found");
-        return null;
+        return arrivals;
     }
     
     /**
-     * Check if two line identifiers match, handling different formats
-     * e.g., "Yellow Line" matches "4", "Blue Line" matches "1", etc.
+     * Refine terminus name using the refineTerminus API; null if it has none
      */
-    private static boolean linesMatch(String line1, String line2) {
-        if (line1 == null || line2 == null) {
-            return false;
-        }
+    private static CompletableFuture<String> refineTerminus(String lineNumber, String apiDestination,
+                                                            Deadline deadline) {
+        Map<String, String> request = new HashMap<>();
+        request.put("line_number", lineNumber);
+        request.put("api_destination", apiDestination);
         
-        // Direct match
-        if (line1.equalsIgnoreCase(line2)) {
-            return true;
+        return ApiFutures.map(AsyncApi.refineTerminus(request, deadline), body -> {
+            Gson gson = new Gson();
+            RefinedTerminusResponse resp = gson.fromJson(gson.toJsonTree(body), RefinedTerminusResponse.class);
+            if (resp.getRefinedTerminus() != null) {
+                Log.d(TAG, "Refined terminus: " + resp.getRefinedTerminus());
+            }
+            return resp.getRefinedTerminus();
+        });
+    }
+    
+    /**
+     * Find the next valid arrival that the user can catch.
+     * Callers that query the same arrivals more than once should build an
+     * {@link ArrivalIndex} themselves and reuse it.
+     */
+    public static Arrival findValidArrival(List<Arrival> arrivals, String line, 
+                                           String destination, int cumulativeTravelMinutes) {
+        if (arrivals == null || arrivals.isEmpty()) {
+            Log.d(TAG, "findValidArrival: No arrivals provided");
+            return null;
         }
         
-        // Normalize line names to numbers
-        String normalized1 = normalizeMetroLine(line1);
-        String normalized2 = normalizeMetroLine(line2);
-        
-        return normalized1.equals(normalized2);
+        Arrival arrival = ArrivalScan.findValidArrival(arrivals, line, destination,
+                cumulativeTravelMinutes);
+        Log.d(TAG, "findValidArrival: line=" + line + ", destination=" + destination + 
+              ", cumulativeTime=" + cumulativeTravelMinutes + " -> " + 
+              (arrival != null ? arrival.getMinutesUntil() + " min" : "none"));
+        return arrival;
     }
     
     /**
      * Normalize metro line names to their numeric IDs
-     * Blue Line / 1 -> "1"
-     * Red Line / 2 -> "2"
-     * Orange Line / 3 -> "3"
-     * Yellow Line / 4 -> "4"
-     * Green Line / 5 -> "5"
-     * Purple Line / 6 -> "6"
+     * Blue Line / 1 -> "1", Red Line / 2 -> "2", ... Purple Line / 6 -> "6"
      */
     private static String normalizeMetroLine(String line) {
-        if (line == null) {
-            return "";
-        }
-        
-        String cleanLine = line.trim();
-        
-        // Remove "Line " prefix if present
-        if (cleanLine.startsWith("Line ")) {
-            cleanLine = cleanLine.substring(5).trim();
-        }
-        
-        // Map color names to numbers
-        if (cleanLine.equalsIgnoreCase("Blue Line") || cleanLine.equalsIgnoreCase("Blue")) {
-            return "1";
-        } else if (cleanLine.equalsIgnoreCase("Red Line") || cleanLine.equalsIgnoreCase("Red")) {
-            return "2";
-        } else if (cleanLine.equalsIgnoreCase("Orange Line") || cleanLine.equalsIgnoreCase("Orange")) {
-            return "3";
-        } else if (cleanLine.equalsIgnoreCase("Yellow Line") || cleanLine.equalsIgnoreCase("Yellow")) {
-            return "4";
-        } else if (cleanLine.equalsIgnoreCase("Green Line") || cleanLine.equalsIgnoreCase("Green")) {
-            return "5";
-        } else if (cleanLine.equalsIgnoreCase("Purple Line") || cleanLine.equalsIgnoreCase("Purple")) {
-            return "6";
-        }
-        
-        // If already a number, return as-is
-        return cleanLine;
+        return LineRegistry.canonicalId(line);
     }
 }
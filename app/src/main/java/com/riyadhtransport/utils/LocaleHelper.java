@@ -26,12 +26,8 @@ public class LocaleHelper {
             locale = Locale.getDefault();
         }
         
-        boolean isAr = locale.getLanguage().equals("ar");
-        android.util.Log.i("RiyadhTransport", "LocaleHelper.isArabic() check:");
-        android.util.Log.i("RiyadhTransport", "  - locale: " + locale);
-        android.util.Log.i("RiyadhTransport", "  - language: " + locale.getLanguage());
-        android.util.Log.i("RiyadhTransport", "  - result: " + isAr);
-        return isAr;
+        // Called for every backend request, so this must not log
+        return locale.getLanguage().equals("ar");
     }
 
     /**
@@ -0,0 +1,46 @@
+package com.riyadhtransport.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * Runs work on the main thread and flags any that takes longer than a quarter of a
+ * 60 Hz frame, so slow response handlers show up in the log and in
+ * {@code main.over_budget} instead of as dropped frames.
+ */
+public class MainThreadBudget {
+    private static final String TAG = "MainThreadBudget";
+    public static final long BUDGET_MS = 4;
+    private static final long BUDGET_NANOS = BUDGET_MS * 1_000_000L;
+
+    private static final Metrics.Histogram CALLBACK_US = Metrics.histogram("main.callback_us");
+    private static final Metrics.Counter OVER_BUDGET = Metrics.counter("main.over_budget");
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Post {@code work} to the main thread and time it there
+     */
+    public static void post(String name, Runnable work) {
+        mainHandler.post(() -> run(name, work));
+    }
+
+    /**
+     * Run {@code work} now and time it; call on the main thread
+     */
+    public static void run(String name, Runnable work) {
+        long startNanos = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            CALLBACK_US.record(elapsedNanos / 1000);
+            if (elapsedNanos > BUDGET_NANOS) {
+                OVER_BUDGET.increment();
+                Log.w(TAG, name + " took " + (elapsedNanos / 1_000_000) + " ms on the main thread (budget "
+                        + BUDGET_MS + " ms)");
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.riyadhtransport.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import org.osmdroid.config.Configuration;
+import org.osmdroid.config.IConfigurationProvider;
+import org.osmdroid.tileprovider.modules.SqlTileWriter;
+
+/**
+ * Disk budget and naming for the map tile cache.
+ * OSMDroid keeps downloaded tiles in one SQLite database keyed by tile source name, and
+ * trims it back to the trim size when it grows past the budget, evicting the tiles that
+ * expire soonest first. A tile's expiry is set when it is downloaded, so this evicts
+ * roughly the oldest downloads first. It is not least recently used: a tile that is
+ * viewed often but has not been downloaded again is evicted in its turn. Expired tiles
+ * are still drawn until a fresh copy arrives, so they stay visible while offline.
+ */
+public class MapTileCache {
+    private static final String TAG = "MapTileCache";
+    private static final String PREFS_NAME = "MapCache";
+    private static final String KEY_BUDGET_MB = "budget_mb";
+    /** Budgets offered in settings */
+    public static final int SMALL_BUDGET_MB = 50;
+    public static final int DEFAULT_BUDGET_MB = 150;
+    public static final int LARGE_BUDGET_MB = 500;
+    private static final int MIN_BUDGET_MB = 20;
+    // Trim to this share of the budget, so trimming doesn't run on every new tile
+    private static final double TRIM_RATIO = 0.8;
+
+    /**
+     * Apply the disk budget to OSMDroid's configuration. Call after
+     * {@link Configuration#load} and before the first MapView is created.
+     */
+    public static void configure(Context context) {
+        long budgetBytes = getBudgetMb(context) * 1024L * 1024L;
+        IConfigurationProvider config = Configuration.getInstance();
+        config.setTileFileSystemCacheMaxBytes(budgetBytes);
+        config.setTileFileSystemCacheTrimBytes((long) (budgetBytes * TRIM_RATIO));
+    }
+
+    public static int getBudgetMb(Context context) {
+        return prefs(context).getInt(KEY_BUDGET_MB, DEFAULT_BUDGET_MB);
+    }
+
+    /**
+     * Change the disk budget; takes effect the next time the map is created
+     */
+    public static void setBudgetMb(Context context, int budgetMb) {
+        prefs(context).edit().putInt(KEY_BUDGET_MB, Math.max(MIN_BUDGET_MB, budgetMb)).apply();
+    }
+
+    /**
+     * Tile source name for a map style and label language. Cached tiles are keyed by it,
+     * so each style and language keeps its own tiles.
+     */
+    public static String tileSourceName(String mapStyle, String language) {
+        return "MapTiler-" + mapStyle + "-" + language;
+    }
+
+    /**
+     * Delete every cached tile, in the background
+     */
+    public static void clear() {
+        new Thread(() -> {
+            if (!new SqlTileWriter().purgeCache()) {
+                Log.w(TAG, "Tile cache was not cleared");
+            }
+        }, "tile-cache-clear").start();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,145 @@
+package com.riyadhtransport.utils;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+import com.riyadhtransport.api.NetworkQualityEstimator;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.osmdroid.tileprovider.MapTileProviderBasic;
+import org.osmdroid.tileprovider.MapTileRequestState;
+import org.osmdroid.tileprovider.modules.IArchiveFile;
+import org.osmdroid.tileprovider.modules.MBTilesFileArchive;
+import org.osmdroid.tileprovider.modules.MapTileFileArchiveProvider;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.tileprovider.util.SimpleRegisterReceiver;
+
+/**
+ * Offline raster tiles for the Riyadh area from a single MBTiles file, served ahead of
+ * the tile cache and the online MapTiler source so the map renders without a connection.
+ * Archives are looked up in {@code files/maps} as {@code riyadh-<style>-<language>.mbtiles},
+ * then {@code riyadh-<style>.mbtiles}; an archive bundled under {@code assets/maps} is
+ * copied there first, since SQLite needs a real file. Tiles missing from the archive,
+ * such as zooms it doesn't cover, fall through to the other sources.
+ */
+public class OfflineTileArchive {
+    private static final String TAG = "OfflineTileArchive";
+    private static final String ARCHIVE_DIR = "maps";
+    private static final String ARCHIVE_PREFIX = "riyadh-";
+    private static final String ARCHIVE_EXTENSION = ".mbtiles";
+
+    /**
+     * Directory downloaded archives are saved to
+     */
+    public static File archiveDir(Context context) {
+        return new File(context.getFilesDir(), ARCHIVE_DIR);
+    }
+
+    /**
+     * Open the archive for a map style and label language, or return null when there is
+     * none. Does disk I/O; call off the main thread.
+     */
+    public static IArchiveFile open(Context context, String mapStyle, String language) {
+        String[] names = {
+                ARCHIVE_PREFIX + mapStyle + "-" + language + ARCHIVE_EXTENSION,
+                ARCHIVE_PREFIX + mapStyle + ARCHIVE_EXTENSION
+        };
+        for (String name : names) {
+            File file = new File(archiveDir(context), name);
+            copyBundledArchive(context, name, file);
+            if (!file.isFile()) {
+                continue;
+            }
+            try {
+                MBTilesFileArchive archive = MBTilesFileArchive.getDatabaseFileArchive(file);
+                // An MBTiles file holds one tileset, whatever the source is called
+                archive.setIgnoreTileSource(true);
+                Log.i(TAG, "Using offline tiles from " + name);
+                return archive;
+            } catch (Exception e) {
+                Log.e(TAG, "Unreadable tile archive " + name, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The map's tile provider, with or without an archive. It looks in {@code archive},
+     * if there is one, before the usual cache and download. On a poor link it keeps
+     * showing expired cached tiles instead of downloading them again; OSMDroid already
+     * scales up lower-zoom tiles while missing ones load.
+     */
+    public static MapTileProviderBasic createTileProvider(Context context, ITileSource tileSource,
+                                                          IArchiveFile archive) {
+        return new QualityAwareTileProvider(context, tileSource, archive);
+    }
+
+    private static void copyBundledArchive(Context context, String name, File target) {
+        String assetPath = ARCHIVE_DIR + "/" + name;
+        long installedAt;
+        try {
+            installedAt = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return;
+        }
+        // Copied again after an app update, which may bundle a newer archive
+        if (target.isFile() && target.lastModified() >= installedAt) {
+            return;
+        }
+
+        InputStream in;
+        try {
+            in = context.getAssets().open(assetPath);
+        } catch (IOException e) {
+            return; // Not bundled
+        }
+        File temp = new File(target.getPath() + ".tmp");
+        target.getParentFile().mkdirs();
+        try (InputStream input = in; OutputStream output = new FileOutputStream(temp)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to copy bundled tile archive " + name, e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+        }
+    }
+
+    private static class QualityAwareTileProvider extends MapTileProviderBasic {
+        QualityAwareTileProvider(Context context, ITileSource tileSource, IArchiveFile archive) {
+            super(context, tileSource);
+            if (archive != null) {
+                // Providers are asked in list order
+                mTileProviderList.add(0, new MapTileFileArchiveProvider(
+                        new SimpleRegisterReceiver(context), tileSource, new IArchiveFile[]{archive}, true));
+            }
+        }
+
+        @Override
+        protected boolean isDowngradedMode(long tile) {
+            // Expired tiles in memory are served as they are in downgraded mode
+            return NetworkQualityEstimator.preferCached() || super.isDowngradedMode(tile);
+        }
+
+        @Override
+        public void mapTileRequestExpiredTile(MapTileRequestState state, Drawable drawable) {
+            if (NetworkQualityEstimator.preferCached()) {
+                // Done with the expired copy from disk, instead of asking the downloader next
+                mapTileRequestCompleted(state, drawable);
+                return;
+            }
+            super.mapTileRequestExpiredTile(state, drawable);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.riyadhtransport.utils;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Moves response handling off the main thread. Retrofit delivers responses on the main
+ * thread; here they are handed straight to a small bounded pool, where the caller's
+ * transform decodes the body and builds whatever the screen needs. Only the result is
+ * posted back to the main thread, timed against {@link MainThreadBudget}. Transforms
+ * must not touch views; results should not be modified after they are returned.
+ */
+public class ResponsePipeline {
+    private static final String TAG = "ResponsePipeline";
+    private static final int THREADS = 2;
+    private static final int QUEUE_CAPACITY = 64;
+
+    private static final Metrics.Histogram TRANSFORM_US = Metrics.histogram("pipeline.transform_us");
+    private static final Metrics.Counter REJECTED = Metrics.counter("pipeline.rejected");
+
+    /**
+     * Turns a response into a result on a background thread. May return null.
+     */
+    public interface Transform<T, R> {
+        R apply(Response<T> response) throws Exception;
+    }
+
+    /**
+     * Receives the result on the main thread
+     */
+    public interface Consumer<R> {
+        void onResult(R result);
+        void onFailure(Throwable t);
+    }
+
+    private static final ThreadPoolExecutor executor;
+
+    static {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "response-pipeline-" + threadCount.incrementAndGet());
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        Metrics.gauge("pipeline.queued", () -> executor.getQueue().size());
+    }
+
+    /**
+     * The pipeline's background pool, for work that completes elsewhere, e.g. futures
+     */
+    public static Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Enqueue {@code call}, transform its response in the background and deliver the
+     * result to {@code consumer} on the main thread. {@code name} identifies the handler
+     * in budget warnings.
+     */
+    public static <T, R> void enqueue(Call<T> call, String name, Transform<T, R> transform,
+                                      Consumer<R> consumer) {
+        call.enqueue(callback(name, transform, consumer));
+    }
+
+    /**
+     * A Retrofit callback that runs {@code transform} in the background
+     */
+    public static <T, R> Callback<T> callback(String name, Transform<T, R> transform,
+                                              Consumer<R> consumer) {
+        return new Callback<T>() {
+            @Override
+            public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                submit(name, () -> transform.apply(response), consumer);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                MainThreadBudget.run(name, () -> consumer.onFailure(t));
+            }
+        };
+    }
+
+    /**
+     * Run {@code work} in the background and deliver its result to {@code consumer} on
+     * the main thread, e.g. to turn data that is already loaded into rows for a screen
+     */
+    public static <R> void submit(String name, Callable<R> work, Consumer<R> consumer) {
+        try {
+            executor.execute(() -> process(name, work, consumer));
+        } catch (RejectedExecutionException e) {
+            REJECTED.increment();
+            Log.w(TAG, "Queue full, dropping " + name);
+            MainThreadBudget.post(name, () -> consumer.onFailure(e));
+        }
+    }
+
+    private static <R> void process(String name, Callable<R> work, Consumer<R> consumer) {
+        long startNanos = System.nanoTime();
+        R result;
+        try {
+            result = work.call();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to process " + name, e);
+            MainThreadBudget.post(name, () -> consumer.onFailure(e));
+            return;
+        } finally {
+            TRANSFORM_US.record((System.nanoTime() - startNanos) / 1000);
+        }
+        MainThreadBudget.post(name, () -> consumer.onResult(result));
+    }
+}
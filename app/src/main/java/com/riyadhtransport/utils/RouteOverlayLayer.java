@@ -0,0 +1,169 @@
+package com.riyadhtransport.utils;
+
+import android.graphics.Color;
+import android.graphics.DashPathEffect;
+import android.graphics.Paint;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.osmdroid.events.MapListener;
+import org.osmdroid.events.ScrollEvent;
+import org.osmdroid.events.ZoomEvent;
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.views.MapView;
+import org.osmdroid.views.overlay.Polyline;
+
+/**
+ * The route drawn on the map. Polylines are pooled and restyled between routes rather
+ * than recreated, and only this layer's polylines are touched. Each segment's shape is
+ * simplified for the current zoom with {@link PolylineSimplifier}, cached per whole zoom
+ * level, so long line shapes don't cost a point per metre when zoomed out.
+ */
+public class RouteOverlayLayer {
+    private static final int WALK_COLOR = Color.parseColor("#6c757d");
+    private static final float WALK_WIDTH = 12f;
+    private static final float TRANSIT_WIDTH = 10f;
+    // Dash pattern: 20px dash, 10px gap
+    private static final DashPathEffect WALK_DASH = new DashPathEffect(new float[]{20, 10}, 0);
+    private static final double SIMPLIFY_TOLERANCE_PX = 1.0;
+
+    private final MapView mapView;
+    private final List<Polyline> pool = new ArrayList<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private int shownZoom = -1;
+    private BoundingBox bounds;
+
+    public RouteOverlayLayer(MapView mapView) {
+        this.mapView = mapView;
+        mapView.addMapListener(new MapListener() {
+            @Override
+            public boolean onScroll(ScrollEvent event) {
+                return false;
+            }
+
+            @Override
+            public boolean onZoom(ZoomEvent event) {
+                int zoom = (int) Math.floor(event.getZoomLevel());
+                if (zoom != shownZoom && !segments.isEmpty()) {
+                    showZoom(zoom);
+                }
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Replace the drawn route with {@code route}
+     */
+    public void setRoute(List<Segment> route) {
+        segments.clear();
+        segments.addAll(route);
+
+        List<GeoPoint> allPoints = new ArrayList<>();
+        for (Segment segment : segments) {
+            allPoints.addAll(segment.points);
+        }
+        bounds = allPoints.isEmpty() ? null : BoundingBox.fromGeoPoints(allPoints);
+
+        while (pool.size() < segments.size()) {
+            pool.add(new Polyline());
+        }
+        for (int i = 0; i < pool.size(); i++) {
+            Polyline line = pool.get(i);
+            boolean used = i < segments.size();
+            boolean attached = mapView.getOverlays().contains(line);
+            if (used) {
+                style(line, segments.get(i));
+                if (!attached) {
+                    mapView.getOverlays().add(line);
+                }
+            } else if (attached) {
+                mapView.getOverlays().remove(line);
+            }
+        }
+        showZoom((int) Math.floor(mapView.getZoomLevelDouble()));
+    }
+
+    public void clear() {
+        setRoute(Collections.emptyList());
+    }
+
+    /**
+     * Bounds of every point in the route, or null when nothing is drawn
+     */
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+
+    private void showZoom(int zoom) {
+        shownZoom = zoom;
+        for (int i = 0; i < segments.size(); i++) {
+            pool.get(i).setPoints(segments.get(i).pointsForZoom(zoom));
+        }
+        mapView.invalidate();
+    }
+
+    private static void style(Polyline line, Segment segment) {
+        Paint paint = line.getPaint();
+        line.setColor(segment.color);
+        paint.setStrokeWidth(segment.walking ? WALK_WIDTH : TRANSIT_WIDTH);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeCap(segment.walking ? Paint.Cap.ROUND : Paint.Cap.BUTT);
+        paint.setPathEffect(segment.walking ? WALK_DASH : null);
+    }
+
+    /**
+     * One drawn segment of a route and its simplified shapes
+     */
+    public static class Segment {
+        final List<GeoPoint> points;
+        final boolean walking;
+        final int color;
+        private final double[] xs;
+        private final double[] ys;
+        private final Map<Integer, List<GeoPoint>> byZoom = new HashMap<>();
+
+        private Segment(List<GeoPoint> points, boolean walking, int color) {
+            this.points = points;
+            this.walking = walking;
+            this.color = color;
+            xs = new double[points.size()];
+            ys = new double[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                xs[i] = WebMercator.x(points.get(i).getLongitude());
+                ys[i] = WebMercator.y(points.get(i).getLatitude());
+            }
+        }
+
+        /**
+         * Walking segment, drawn as a dashed grey line
+         */
+        public static Segment walking(List<GeoPoint> points) {
+            return new Segment(points, true, WALK_COLOR);
+        }
+
+        public static Segment transit(List<GeoPoint> points, int color) {
+            return new Segment(points, false, color);
+        }
+
+        List<GeoPoint> pointsForZoom(int zoom) {
+            if (points.size() <= 2) {
+                return points;
+            }
+            List<GeoPoint> simplified = byZoom.get(zoom);
+            if (simplified == null) {
+                int[] kept = PolylineSimplifier.simplify(xs, ys,
+                        PolylineSimplifier.toleranceForZoom(SIMPLIFY_TOLERANCE_PX, zoom));
+                simplified = new ArrayList<>(kept.length);
+                for (int index : kept) {
+                    simplified.add(points.get(index));
+                }
+                byZoom.put(zoom, simplified);
+            }
+            return simplified;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.riyadhtransport.utils;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Startup sections, visible in Perfetto/systrace via {@link Trace} and recorded as
+ * "startup.&lt;section&gt;_ms" {@link Metrics} histograms. Milestones such as the first
+ * frame are measured from process start and recorded once per process, so they
+ * describe cold starts. Sections are timed with {@link System#nanoTime()} rather than
+ * SystemClock, which Robolectric simulates, so StartupBenchmarkTest sees real times.
+ */
+public class StartupTrace {
+    // Trace sections must be closed on the thread that opened them
+    private static final ThreadLocal<ArrayDeque<Section>> open =
+            ThreadLocal.withInitial(ArrayDeque::new);
+    private static final Set<String> milestones = Collections.synchronizedSet(new HashSet<>());
+
+    /**
+     * Open a section; close it with {@link #end()} on the same thread
+     */
+    public static void begin(String name) {
+        Trace.beginSection(name);
+        open.get().push(new Section(name, System.nanoTime()));
+    }
+
+    /**
+     * Close the innermost open section on this thread
+     */
+    public static void end() {
+        Section section = open.get().poll();
+        if (section == null) {
+            return;
+        }
+        Trace.endSection();
+        Metrics.histogram("startup." + section.name + "_ms")
+                .recordSinceNanos(section.startNanos);
+    }
+
+    /**
+     * Record a milestone as the time since process start, once per process
+     */
+    public static void milestone(String name) {
+        if (milestones.add(name)) {
+            Metrics.histogram("startup." + name + "_ms")
+                    .record(SystemClock.uptimeMillis() - Process.getStartUptimeMillis());
+        }
+    }
+
+    /**
+     * Run {@code task} on the main thread once {@code view} has drawn its first frame,
+     * for work that should not delay what the user sees first
+     */
+    public static void afterFirstFrame(View view, Runnable task) {
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                // Posted now, so it runs after this frame has been drawn
+                view.post(task);
+                return true;
+            }
+        });
+    }
+
+    private static class Section {
+        final String name;
+        final long startNanos;
+
+        Section(String name, long startNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.riyadhtransport.utils;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.view.MotionEvent;
+import com.riyadhtransport.models.Station;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.osmdroid.api.IGeoPoint;
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.views.MapView;
+import org.osmdroid.views.Projection;
+import org.osmdroid.views.overlay.Overlay;
+
+/**
+ * All stations on the map as one overlay, drawn from a {@link StationSpatialIndex}.
+ * Each frame draws only the clusters in view: single stations are batched into one
+ * drawPoints call per colour, merged clusters are drawn as a circle with their count.
+ * Tapping a station reports it; tapping a cluster zooms in on it.
+ */
+public class StationClusterOverlay extends Overlay {
+    private static final float STATION_RADIUS_DP = 5;
+    private static final float CLUSTER_RADIUS_DP = 14;
+    private static final float TOUCH_RADIUS_DP = 24;
+    private static final double CLUSTER_ZOOM_STEP = 2;
+    private static final long CLUSTER_ZOOM_DURATION_MS = 300;
+
+    private static final Metrics.Histogram DRAW_US = Metrics.histogram("map.stations_draw_us");
+
+    /**
+     * Callback for taps on a single station; called on the main thread
+     */
+    public interface StationTapListener {
+        void onStationTapped(Station station);
+    }
+
+    private final StationTapListener listener;
+    private final float density;
+    private final Paint metroPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint busPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint clusterPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint clusterMetroPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint outlinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint countPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private volatile StationSpatialIndex index;
+
+    // Reused between frames; drawing happens on the main thread only
+    private final List<StationSpatialIndex.Cluster> visible = new ArrayList<>();
+    private final GeoPoint geoPoint = new GeoPoint(0.0, 0.0);
+    private final Point screenPoint = new Point();
+    private float[] metroPoints = new float[256];
+    private float[] busPoints = new float[256];
+
+    public StationClusterOverlay(Context context, StationTapListener listener) {
+        this.listener = listener;
+        this.density = context.getResources().getDisplayMetrics().density;
+
+        // Round-capped points of this width draw as filled circles
+        for (Paint paint : new Paint[]{metroPaint, busPaint}) {
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeCap(Paint.Cap.ROUND);
+            paint.setStrokeWidth(STATION_RADIUS_DP * 2 * density);
+        }
+        metroPaint.setColor(Color.parseColor("#1379c6"));
+        busPaint.setColor(Color.parseColor("#18a034"));
+        clusterPaint.setColor(Color.parseColor("#CC18a034"));
+        clusterMetroPaint.setColor(Color.parseColor("#CC1379c6"));
+        outlinePaint.setStyle(Paint.Style.STROKE);
+        outlinePaint.setStrokeWidth(2 * density);
+        outlinePaint.setColor(Color.WHITE);
+        countPaint.setColor(Color.WHITE);
+        countPaint.setTextAlign(Paint.Align.CENTER);
+        countPaint.setTextSize(12 * density);
+        countPaint.setFakeBoldText(true);
+    }
+
+    /**
+     * Index {@code stations} in the background and redraw {@code mapView} when done
+     */
+    public void setStations(List<Station> stations, MapView mapView) {
+        new Thread(() -> {
+            index = StationSpatialIndex.build(stations);
+            mapView.postInvalidate();
+        }, "station-spatial-index").start();
+    }
+
+    @Override
+    public void draw(Canvas canvas, Projection projection) {
+        StationSpatialIndex current = index;
+        if (current == null || !isEnabled()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+
+        BoundingBox box = projection.getBoundingBox();
+        visible.clear();
+        current.query(box.getLatSouth(), box.getLonWest(), box.getLatNorth(), box.getLonEast(),
+                projection.getZoomLevel(), visible);
+        if (visible.isEmpty()) {
+            return;
+        }
+        if (metroPoints.length < visible.size() * 2) {
+            metroPoints = Arrays.copyOf(metroPoints, visible.size() * 2);
+            busPoints = Arrays.copyOf(busPoints, visible.size() * 2);
+        }
+
+        int metroCount = 0;
+        int busCount = 0;
+        float clusterRadius = CLUSTER_RADIUS_DP * density;
+        float textOffset = (countPaint.descent() + countPaint.ascent()) / 2;
+        // Singles are collected first so clusters are drawn over them
+        for (StationSpatialIndex.Cluster cluster : visible) {
+            if (!cluster.isSingle()) {
+                continue;
+            }
+            geoPoint.setCoords(cluster.latitude, cluster.longitude);
+            projection.toPixels(geoPoint, screenPoint);
+            if (cluster.hasMetro) {
+                metroPoints[metroCount++] = screenPoint.x;
+                metroPoints[metroCount++] = screenPoint.y;
+            } else {
+                busPoints[busCount++] = screenPoint.x;
+                busPoints[busCount++] = screenPoint.y;
+            }
+        }
+        canvas.drawPoints(busPoints, 0, busCount, busPaint);
+        canvas.drawPoints(metroPoints, 0, metroCount, metroPaint);
+
+        for (StationSpatialIndex.Cluster cluster : visible) {
+            if (cluster.isSingle()) {
+                continue;
+            }
+            geoPoint.setCoords(cluster.latitude, cluster.longitude);
+            projection.toPixels(geoPoint, screenPoint);
+            canvas.drawCircle(screenPoint.x, screenPoint.y, clusterRadius,
+                    cluster.hasMetro ? clusterMetroPaint : clusterPaint);
+            canvas.drawCircle(screenPoint.x, screenPoint.y, clusterRadius, outlinePaint);
+            canvas.drawText(String.valueOf(cluster.count), screenPoint.x, screenPoint.y - textOffset,
+                    countPaint);
+        }
+
+        DRAW_US.record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    @Override
+    public boolean onSingleTapConfirmed(MotionEvent e, MapView mapView) {
+        StationSpatialIndex current = index;
+        if (current == null || !isEnabled()) {
+            return false;
+        }
+        Projection projection = mapView.getProjection();
+        IGeoPoint tapped = projection.fromPixels((int) e.getX(), (int) e.getY());
+        StationSpatialIndex.Cluster hit = current.hitTest(tapped.getLatitude(), tapped.getLongitude(),
+                projection.getZoomLevel(), TOUCH_RADIUS_DP * density);
+        if (hit == null) {
+            return false;
+        }
+        if (hit.isSingle()) {
+            listener.onStationTapped(hit.station);
+        } else {
+            mapView.getController().animateTo(new GeoPoint(hit.latitude, hit.longitude),
+                    projection.getZoomLevel() + CLUSTER_ZOOM_STEP, CLUSTER_ZOOM_DURATION_MS);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,194 @@
+package com.riyadhtransport.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.google.gson.Gson;
+import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.RequestScheduler;
+import com.riyadhtransport.models.Station;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Shared station list for the route screen and location search.
+ * The list is kept in memory for the process and snapshotted to disk, so a cold start
+ * shows stations from the snapshot without waiting for the large /api/stations payload;
+ * stale snapshots are refreshed from the network in the background. Loads are
+ * single-flight: callers arriving while a load is in progress wait for it.
+ */
+public class StationRepository {
+    private static final String TAG = "StationRepository";
+    private static final String SNAPSHOT_PREFIX = "stations_snapshot_";
+    // Snapshots older than this are shown, then refreshed from the network
+    private static final long SNAPSHOT_MAX_AGE_MS = 24 * 60 * 60 * 1000L; // 1 day
+
+    private static final Metrics.Counter SNAPSHOT_HIT = Metrics.counter("stations.snapshot_hit");
+    private static final Metrics.Counter SNAPSHOT_MISS = Metrics.counter("stations.snapshot_miss");
+
+    /**
+     * Callback interface for station loading; always called on the main thread
+     */
+    public interface StationsCallback {
+        void onStationsLoaded(List<Station> stations, StationSearchIndex searchIndex);
+        void onError(String message);
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "station-repository");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only
+    private static List<Station> stations;
+    private static StationSearchIndex searchIndex;
+    private static String stationsLanguage;
+    private static String loadingLanguage;
+    private static final List<StationsCallback> waiting = new ArrayList<>();
+
+    /**
+     * Get all stations for the current language. Call on the main thread.
+     */
+    public static void getStations(Context context, StationsCallback callback) {
+        String language = LocaleHelper.getLanguageCode(context);
+        if (stations != null && language.equals(stationsLanguage)) {
+            callback.onStationsLoaded(stations, searchIndex);
+            return;
+        }
+
+        waiting.add(callback);
+        if (language.equals(loadingLanguage)) {
+            return;
+        }
+        loadingLanguage = language;
+
+        File snapshotFile = new File(context.getApplicationContext().getFilesDir(),
+                SNAPSHOT_PREFIX + language + ".json");
+        executor.execute(() -> {
+            StartupTrace.begin("stations.snapshot_read");
+            Snapshot snapshot = readSnapshot(snapshotFile);
+            StartupTrace.end();
+
+            if (snapshot != null) {
+                SNAPSHOT_HIT.increment();
+                StationSearchIndex index = StationSearchIndex.build(snapshot.stations);
+                mainHandler.post(() -> publish(language, snapshot.stations, index));
+                if (System.currentTimeMillis() - snapshot.savedAtMs < SNAPSHOT_MAX_AGE_MS) {
+                    return;
+                }
+            } else {
+                SNAPSHOT_MISS.increment();
+            }
+            mainHandler.post(() -> fetchFromApi(language, snapshotFile));
+        });
+    }
+
+    private static void fetchFromApi(String language, File snapshotFile) {
+        RequestScheduler.schedule(ApiClient.getApiService().getStations(), RequestScheduler.Priority.VISIBLE_REFRESH)
+                .enqueue(new Callback<List<Station>>() {
+            @Override
+            public void onResponse(@NonNull Call<List<Station>> call,
+                                   @NonNull Response<List<Station>> response) {
+                if (response.isSuccessful() && response.body() != null) {
+                    List<Station> fresh = response.body();
+                    executor.execute(() -> {
+                        StationSearchIndex index = StationSearchIndex.build(fresh);
+                        mainHandler.post(() -> publish(language, fresh, index));
+                        writeSnapshot(snapshotFile, fresh);
+                    });
+                } else {
+                    fail(language, "API returned error code: " + response.code());
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<List<Station>> call, @NonNull Throwable t) {
+                fail(language, t.getMessage());
+            }
+        });
+    }
+
+    private static void publish(String language, List<Station> loaded, StationSearchIndex index) {
+        stations = loaded;
+        searchIndex = index;
+        stationsLanguage = language;
+        if (language.equals(loadingLanguage)) {
+            loadingLanguage = null;
+        }
+        List<StationsCallback> callbacks = new ArrayList<>(waiting);
+        waiting.clear();
+        for (StationsCallback callback : callbacks) {
+            callback.onStationsLoaded(loaded, index);
+        }
+    }
+
+    private static void fail(String language, String message) {
+        Log.e(TAG, "Failed to load stations: " + message);
+        if (language.equals(loadingLanguage)) {
+            loadingLanguage = null;
+        }
+        // Callers already served from a snapshot are not waiting any more
+        List<StationsCallback> callbacks = new ArrayList<>(waiting);
+        waiting.clear();
+        for (StationsCallback callback : callbacks) {
+            callback.onError(message);
+        }
+    }
+
+    private static Snapshot readSnapshot(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            Snapshot snapshot = new Gson().fromJson(reader, Snapshot.class);
+            if (snapshot == null || snapshot.stations == null || snapshot.stations.isEmpty()) {
+                return null;
+            }
+            return snapshot;
+        } catch (Exception e) {
+            Log.e(TAG, "Discarding unreadable station snapshot", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private static void writeSnapshot(File file, List<Station> stations) {
+        Snapshot snapshot = new Snapshot();
+        snapshot.savedAtMs = System.currentTimeMillis();
+        snapshot.stations = stations;
+        // Write to a temporary file and rename, so a crash never leaves half a snapshot
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            new Gson().toJson(snapshot, writer);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to write station snapshot", e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+
+    private static class Snapshot {
+        long savedAtMs;
+        List<Station> stations;
+    }
+}
@@ -0,0 +1,115 @@
+package com.riyadhtransport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import com.riyadhtransport.api.ApiClient;
+import com.riyadhtransport.api.ConnectionWarmer;
+import com.riyadhtransport.utils.Metrics;
+import java.io.File;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import okhttp3.Dns;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+/**
+ * Cold-start benchmark: times MainActivity from onCreate to its first frame, and the
+ * {@link com.riyadhtransport.utils.StartupTrace} sections on the way, and writes them
+ * to {@link #REPORT} for comparing builds. Robolectric times depend on the machine, so
+ * the test doesn't fail on them. It fails when the map or any other deferred work runs
+ * before the first frame. Warm-up launches load classes and resources first, as a
+ * device's zygote would have. Nothing reaches the network: connection warming is off,
+ * DNS fails and the device reports no connection, so osmdroid doesn't fetch tiles.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class StartupBenchmarkTest {
+    private static final int WARMUP_LAUNCHES = 3;
+    private static final int LAUNCHES = 10;
+    private static final String[] SECTIONS = {"main.locale", "main.content_view", "main.view_pager"};
+    private static final File REPORT = new File("build/reports/startup-benchmark.json");
+
+    @Before
+    public void setUp() {
+        ConnectionWarmer.setEnabled(false);
+        ApiClient.setResolver(hostname -> {
+            throw new UnknownHostException("No network in tests: " + hostname);
+        });
+        Context context = RuntimeEnvironment.getApplication();
+        shadowOf((ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE))
+                .setActiveNetworkInfo(null);
+    }
+
+    @After
+    public void tearDown() {
+        ConnectionWarmer.setEnabled(true);
+        ApiClient.setResolver(Dns.SYSTEM);
+    }
+
+    @Test
+    public void firstFrameBeforeDeferredWork() throws IOException {
+        for (int i = 0; i < WARMUP_LAUNCHES; i++) {
+            launch();
+        }
+        Metrics.reset();
+        Metrics.Histogram firstFrameMs = Metrics.histogram("benchmark.first_frame_ms");
+        for (int i = 0; i < LAUNCHES; i++) {
+            firstFrameMs.record(launch());
+        }
+
+        for (String section : SECTIONS) {
+            assertEquals(section + " didn't run once per launch", LAUNCHES,
+                    Metrics.histogram("startup." + section + "_ms").count());
+        }
+        REPORT.getParentFile().mkdirs();
+        Files.write(REPORT.toPath(), Metrics.exportJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Create, show and draw MainActivity once, then destroy it. Returns the milliseconds
+     * from the start of onCreate to the first frame's pre-draw.
+     */
+    private static long launch() {
+        ActivityController<MainActivity> controller = Robolectric.buildActivity(MainActivity.class);
+        long[] firstFrameNanos = {0};
+        int[] mapViewsAtFirstFrame = {-1};
+        long startNanos = System.nanoTime();
+        controller.create();
+        View content = controller.get().findViewById(android.R.id.content);
+        ViewGroup mapContainer = controller.get().findViewById(R.id.map_container);
+        content.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                content.getViewTreeObserver().removeOnPreDrawListener(this);
+                firstFrameNanos[0] = System.nanoTime();
+                mapViewsAtFirstFrame[0] = mapContainer.getChildCount();
+                return true;
+            }
+        });
+        controller.start().resume().visible();
+        // Long enough for the first Choreographer frame; later work doesn't change the result
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(100));
+        controller.pause().stop().destroy();
+        assertTrue("MainActivity never drew a frame", firstFrameNanos[0] != 0);
+        assertEquals("The map was created before the first frame", 0, mapViewsAtFirstFrame[0]);
+        return (firstFrameNanos[0] - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,97 @@
+package com.riyadhtransport.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NetworkQualityEstimatorTest {
+    private final MockWebServer server = new MockWebServer();
+
+    @Before
+    public void setUp() throws IOException {
+        NetworkQualityEstimator.reset();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        NetworkQualityEstimator.reset();
+    }
+
+    @Test
+    public void slowServerOnFastLinkStaysGood() throws IOException {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .eventListenerFactory(NetworkTracer.factory("test"))
+                .build();
+        // Loopback connects in well under a millisecond, but each answer takes 1.5 s,
+        // longer than the poor-link RTT threshold
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse()
+                    .setHeadersDelay(1500, TimeUnit.MILLISECONDS)
+                    .setBody("{}"));
+            try (Response response = client.newCall(new Request.Builder().url(server.url("/")).build()).execute()) {
+                response.body().string();
+            }
+            // A new connection for every call, so each one gives an RTT sample
+            client.connectionPool().evictAll();
+        }
+
+        assertEquals(NetworkQualityEstimator.Quality.GOOD, NetworkQualityEstimator.getQuality());
+        assertTrue(NetworkQualityEstimator.getRttMs() < 100);
+    }
+
+    @Test
+    public void reusedConnectionsGiveNoRttSample() {
+        NetworkQualityEstimator.onCall(-1, 200, 5);
+        NetworkQualityEstimator.onCall(-1, 200, 5);
+        NetworkQualityEstimator.onCall(-1, 200, 5);
+
+        assertEquals(-1, NetworkQualityEstimator.getRttMs());
+        assertEquals(NetworkQualityEstimator.Quality.UNKNOWN, NetworkQualityEstimator.getQuality());
+    }
+
+    @Test
+    public void slowHandshakesArePoor() {
+        for (int i = 0; i < 3; i++) {
+            NetworkQualityEstimator.onCall(1600, 200, 5);
+        }
+
+        assertEquals(NetworkQualityEstimator.Quality.POOR, NetworkQualityEstimator.getQuality());
+    }
+
+    @Test
+    public void answersOnReusedConnectionsKeepTheRating() {
+        for (int i = 0; i < 3; i++) {
+            NetworkQualityEstimator.onCall(1600, 200, 5);
+        }
+        // Ten minutes of calls on the same connections, one every four minutes
+        NetworkQualityEstimator.age(TimeUnit.MINUTES.toMillis(4));
+        NetworkQualityEstimator.onCall(-1, 200, 5);
+        NetworkQualityEstimator.age(TimeUnit.MINUTES.toMillis(4));
+        NetworkQualityEstimator.onCall(-1, 200, 5);
+        NetworkQualityEstimator.age(TimeUnit.MINUTES.toMillis(2));
+
+        assertEquals(NetworkQualityEstimator.Quality.POOR, NetworkQualityEstimator.getQuality());
+    }
+
+    @Test
+    public void ratingExpiresWithoutAnswers() {
+        for (int i = 0; i < 3; i++) {
+            NetworkQualityEstimator.onCall(1600, 200, 5);
+        }
+        NetworkQualityEstimator.age(TimeUnit.MINUTES.toMillis(6));
+
+        assertEquals(NetworkQualityEstimator.Quality.UNKNOWN, NetworkQualityEstimator.getQuality());
+    }
+}
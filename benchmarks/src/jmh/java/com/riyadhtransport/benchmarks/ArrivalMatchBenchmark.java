@@ -0,0 +1,71 @@
+package com.riyadhtransport.benchmarks;
+
+import com.google.gson.Gson;
+import com.riyadhtransport.models.Arrival;
+import com.riyadhtransport.models.ArrivalResponse;
+import com.riyadhtransport.utils.ArrivalIndex;
+import com.riyadhtransport.utils.ArrivalScan;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Finding the next catchable departure in a transfer station's arrivals
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ArrivalMatchBenchmark {
+    @Param({"0", "20"})
+    public int cumulativeMinutes;
+
+    // Line spelled differently from most arrivals, destination as a substring
+    @Param({"Yellow Line", "1"})
+    public String line;
+
+    private static final String DESTINATION = "Airport";
+
+    private List<Arrival> arrivals;
+    private ArrivalIndex index;
+
+    @Setup
+    public void setUp() {
+        ArrivalResponse response = new Gson().fromJson(
+                Fixtures.read("metro_arrivals.json"), ArrivalResponse.class);
+        arrivals = response.getArrivals();
+        index = ArrivalIndex.build(arrivals);
+    }
+
+    @Benchmark
+    public Arrival linearScanBaseline() {
+        return Baselines.findValidArrival(arrivals, line, DESTINATION, cumulativeMinutes);
+    }
+
+    /**
+     * One fetch, one lookup, as JourneyTimeline and LiveArrivalManager do per segment
+     */
+    @Benchmark
+    public Arrival scan() {
+        return ArrivalScan.findValidArrival(arrivals, line, DESTINATION, cumulativeMinutes);
+    }
+
+    /**
+     * One fetch, one lookup through an index
+     */
+    @Benchmark
+    public Arrival indexBuildAndQuery() {
+        return ArrivalIndex.build(arrivals).findValidArrival(line, DESTINATION, cumulativeMinutes);
+    }
+
+    @Benchmark
+    public Arrival indexQuery() {
+        return index.findValidArrival(line, DESTINATION, cumulativeMinutes);
+    }
+}
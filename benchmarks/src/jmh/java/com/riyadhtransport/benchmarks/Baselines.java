@@ -0,0 +1,110 @@
+package com.riyadhtransport.benchmarks;
+
+import com.riyadhtransport.models.Arrival;
+import com.riyadhtransport.models.Station;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * The implementations these benchmarks replaced, kept (minus logging) so each
+ * run reports the before and after numbers side by side
+ */
+final class Baselines {
+    private static final int MAX_WAIT_MINUTES = 45;
+
+    private Baselines() {
+    }
+
+    /**
+     * Linear scan from LiveArrivalManager.findValidArrival before ArrivalIndex
+     */
+    static Arrival findValidArrival(List<Arrival> arrivals, String line,
+                                    String destination, int cumulativeTravelMinutes) {
+        Arrival fallbackArrival = null;
+        for (Arrival arrival : arrivals) {
+            boolean lineMatches = line == null || line.isEmpty()
+                    || linesMatch(line, arrival.getLine());
+            boolean destMatches = destination == null || destination.isEmpty()
+                    || destination.equalsIgnoreCase(arrival.getDestination())
+                    || arrival.getDestination().contains(destination)
+                    || destination.contains(arrival.getDestination());
+            boolean canCatch = arrival.getMinutesUntil() >= cumulativeTravelMinutes;
+            boolean reasonableWait = arrival.getMinutesUntil() - cumulativeTravelMinutes <= MAX_WAIT_MINUTES;
+
+            if (lineMatches && canCatch && reasonableWait && fallbackArrival == null) {
+                fallbackArrival = arrival;
+            }
+            if (lineMatches && destMatches && canCatch && reasonableWait) {
+                return arrival;
+            }
+        }
+        return fallbackArrival;
+    }
+
+    private static boolean linesMatch(String line1, String line2) {
+        if (line1 == null || line2 == null) {
+            return false;
+        }
+        if (line1.equalsIgnoreCase(line2)) {
+            return true;
+        }
+        return normalizeMetroLine(line1).equals(normalizeMetroLine(line2));
+    }
+
+    private static String normalizeMetroLine(String line) {
+        String cleanLine = line.trim();
+        if (cleanLine.startsWith("Line ")) {
+            cleanLine = cleanLine.substring(5).trim();
+        }
+        if (cleanLine.equalsIgnoreCase("Blue Line") || cleanLine.equalsIgnoreCase("Blue")) {
+            return "1";
+        } else if (cleanLine.equalsIgnoreCase("Red Line") || cleanLine.equalsIgnoreCase("Red")) {
+            return "2";
+        } else if (cleanLine.equalsIgnoreCase("Orange Line") || cleanLine.equalsIgnoreCase("Orange")) {
+            return "3";
+        } else if (cleanLine.equalsIgnoreCase("Yellow Line") || cleanLine.equalsIgnoreCase("Yellow")) {
+            return "4";
+        } else if (cleanLine.equalsIgnoreCase("Green Line") || cleanLine.equalsIgnoreCase("Green")) {
+            return "5";
+        } else if (cleanLine.equalsIgnoreCase("Purple Line") || cleanLine.equalsIgnoreCase("Purple")) {
+            return "6";
+        }
+        return cleanLine;
+    }
+
+    /**
+     * Station search loop from SearchLocationActivity before StationSearchIndex
+     */
+    static List<Station> searchStations(List<Station> stations, String query) {
+        List<Station> results = new ArrayList<>();
+        for (Station station : stations) {
+            if (station.getDisplayName().toLowerCase().contains(query.toLowerCase())) {
+                results.add(station);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * RPT departure time parsing before ArrivalTimeFormatter: one SimpleDateFormat per response
+     */
+    static int minutesUntilWithSimpleDateFormat(List<String> times, long nowMs) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        int sum = 0;
+        for (String time : times) {
+            try {
+                Date departureTime = dateFormat.parse(time);
+                sum += (int) Math.max(0, (departureTime.getTime() - nowMs) / 60000);
+            } catch (ParseException e) {
+                // Skipped, as in the original
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,48 @@
+package com.riyadhtransport.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.riyadhtransport.models.Arrival;
+import com.riyadhtransport.models.Route;
+import com.riyadhtransport.utils.JourneyTimeline;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Live journey time for a multi-leg route once every segment's arrivals are in
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JourneyBenchmark {
+    private Route route;
+    private List<List<Arrival>> segmentArrivals;
+
+    @Setup
+    public void setUp() {
+        Gson gson = new Gson();
+        route = gson.fromJson(Fixtures.read("route.json"), Route.class);
+        segmentArrivals = gson.fromJson(Fixtures.read("route_arrivals.json"),
+                new TypeToken<List<List<Arrival>>>() {}.getType());
+    }
+
+    /**
+     * Computes the total from each segment's arrivals as fetched, one scan per segment
+     */
+    @Benchmark
+    public int compute() {
+        List<List<Arrival>> arrivals = new ArrayList<>(segmentArrivals.size());
+        for (List<Arrival> segment : segmentArrivals) {
+            arrivals.add(segment.isEmpty() ? null : segment);
+        }
+        return JourneyTimeline.compute(route.getSegments(), arrivals);
+    }
+}
@@ -0,0 +1,107 @@
+package com.riyadhtransport.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.riyadhtransport.models.ArrivalResponse;
+import com.riyadhtransport.models.LineAlert;
+import com.riyadhtransport.models.Station;
+import com.riyadhtransport.models.StationDeparture;
+import com.riyadhtransport.utils.ArrivalTimeFormatter;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Gson parsing of the feeds the app downloads, plus RPT time and alert title parsing
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParsingBenchmark {
+    private static final Type STATION_LIST = new TypeToken<List<Station>>() {}.getType();
+    private static final Type DEPARTURE_LIST = new TypeToken<List<StationDeparture>>() {}.getType();
+    private static final Type DOCUMENT_MAP = new TypeToken<Map<String, Object>>() {}.getType();
+
+    private final Gson gson = new Gson();
+    private String stationsJson;
+    private String metroArrivalsJson;
+    private String departuresJson;
+    private String alertsJson;
+    private List<String> departureTimes;
+
+    @Setup
+    public void setUp() {
+        stationsJson = Fixtures.read("stations.json");
+        metroArrivalsJson = Fixtures.read("metro_arrivals.json");
+        departuresJson = Fixtures.read("rpt_departures.json");
+        alertsJson = Fixtures.read("alerts.json");
+
+        List<StationDeparture> departures = gson.fromJson(departuresJson, DEPARTURE_LIST);
+        departureTimes = new ArrayList<>();
+        for (StationDeparture departure : departures) {
+            departureTimes.add(departure.getActualDepartureTimePlanned());
+        }
+    }
+
+    @Benchmark
+    public List<Station> stationsFeed() {
+        return gson.fromJson(stationsJson, STATION_LIST);
+    }
+
+    @Benchmark
+    public ArrivalResponse metroArrivals() {
+        return gson.fromJson(metroArrivalsJson, ArrivalResponse.class);
+    }
+
+    @Benchmark
+    public List<StationDeparture> rptDepartures() {
+        return gson.fromJson(departuresJson, DEPARTURE_LIST);
+    }
+
+    @Benchmark
+    public int rptTimesArrivalTimeFormatter() {
+        int sum = 0;
+        for (String time : departureTimes) {
+            long millis = ArrivalTimeFormatter.parseIsoUtcMillis(time);
+            if (millis != ArrivalTimeFormatter.INVALID_TIME) {
+                sum += ArrivalTimeFormatter.minutesUntil(millis, Fixtures.FIXTURE_NOW_MS);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int rptTimesSimpleDateFormatBaseline() {
+        return Baselines.minutesUntilWithSimpleDateFormat(departureTimes, Fixtures.FIXTURE_NOW_MS);
+    }
+
+    /**
+     * AppWrite response to LineAlert list, as in AlertsManager (includes parseTitle)
+     */
+    @Benchmark
+    public List<LineAlert> alerts() {
+        Map<String, Object> body = gson.fromJson(alertsJson, DOCUMENT_MAP);
+        List<LineAlert> alerts = new ArrayList<>();
+        for (Object docObj : (List<?>) body.get("documents")) {
+            Map<?, ?> doc = (Map<?, ?>) docObj;
+            Object title = doc.get("title");
+            Object message = doc.get("message");
+            Object createdAt = doc.get("$createdAt");
+            if (title != null && !title.toString().isEmpty()) {
+                alerts.add(new LineAlert(title.toString(),
+                        message != null ? message.toString() : "",
+                        createdAt != null ? createdAt.toString() : ""));
+            }
+        }
+        return alerts;
+    }
+}
@@ -0,0 +1,57 @@
+package com.riyadhtransport.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.riyadhtransport.models.Station;
+import com.riyadhtransport.utils.StationSearchIndex;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Station name search as typed in SearchLocationActivity and the stations tab
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StationSearchBenchmark {
+    // Short prefix, metro name, common street (many hits), no hits
+    @Param({"ol", "Olaya", "king fahd rd 1", "zzq"})
+    public String query;
+
+    private List<Station> stations;
+    private StationSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        stations = new Gson().fromJson(Fixtures.read("stations.json"),
+                new TypeToken<List<Station>>() {}.getType());
+        index = StationSearchIndex.build(stations);
+    }
+
+    @Benchmark
+    public List<Station> linearScanBaseline() {
+        return Baselines.searchStations(stations, query);
+    }
+
+    @Benchmark
+    public List<Station> indexQuery() {
+        return index.search(query);
+    }
+
+    /**
+     * Paid once per stations download
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public StationSearchIndex indexBuild() {
+        return StationSearchIndex.build(stations);
+    }
+}
@@ -0,0 +1,93 @@
+package com.riyadhtransport.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.riyadhtransport.models.Station;
+import com.riyadhtransport.utils.StationSpatialIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-frame viewport query for the station map overlay, on a phone-sized viewport
+ * over central Riyadh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StationSpatialBenchmark {
+    private static final double CENTER_LAT = 24.7136;
+    private static final double CENTER_LNG = 46.6753;
+    private static final int VIEWPORT_WIDTH_PX = 1080;
+    private static final int VIEWPORT_HEIGHT_PX = 2000;
+
+    // Whole city (clustered), district (clustered), street level (single stations)
+    @Param({"11", "14", "17"})
+    public int zoom;
+
+    private List<Station> stations;
+    private StationSpatialIndex index;
+    private double south;
+    private double west;
+    private double north;
+    private double east;
+    private final List<StationSpatialIndex.Cluster> out = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        stations = new Gson().fromJson(Fixtures.read("stations.json"),
+                new TypeToken<List<Station>>() {}.getType());
+        index = StationSpatialIndex.build(stations);
+        // Degrees per pixel; latitude is close enough to linear at this scale
+        double degreesPerPixel = 360 / (256 * Math.pow(2, zoom));
+        double latScale = Math.cos(Math.toRadians(CENTER_LAT));
+        west = CENTER_LNG - VIEWPORT_WIDTH_PX / 2.0 * degreesPerPixel;
+        east = CENTER_LNG + VIEWPORT_WIDTH_PX / 2.0 * degreesPerPixel;
+        south = CENTER_LAT - VIEWPORT_HEIGHT_PX / 2.0 * degreesPerPixel * latScale;
+        north = CENTER_LAT + VIEWPORT_HEIGHT_PX / 2.0 * degreesPerPixel * latScale;
+    }
+
+    /**
+     * Checking every station against the viewport, as one marker per station would
+     */
+    @Benchmark
+    public int linearScanBaseline() {
+        int visible = 0;
+        for (Station station : stations) {
+            if (station.getLatitude() >= south && station.getLatitude() <= north
+                    && station.getLongitude() >= west && station.getLongitude() <= east) {
+                visible++;
+            }
+        }
+        return visible;
+    }
+
+    @Benchmark
+    public int indexQuery() {
+        out.clear();
+        index.query(south, west, north, east, zoom, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public StationSpatialIndex.Cluster hitTest() {
+        return index.hitTest(CENTER_LAT, CENTER_LNG, zoom, 48);
+    }
+
+    /**
+     * Paid once per stations download
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public StationSpatialIndex indexBuild() {
+        return StationSpatialIndex.build(stations);
+    }
+}
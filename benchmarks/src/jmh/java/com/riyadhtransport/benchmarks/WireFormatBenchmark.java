@@ -0,0 +1,107 @@
+package com.riyadhtransport.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.riyadhtransport.api.CborConverterFactory;
+import com.riyadhtransport.api.CborWriter;
+import com.riyadhtransport.models.Station;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import retrofit2.Converter;
+
+/**
+ * Response decoding through the backend's Retrofit converter, JSON against CBOR, for
+ * {@code /api/stations}, {@code /viewbus} and {@code /metro_arrivals}. Bytes on the
+ * wire, plain and gzipped, are printed once per fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WireFormatBenchmark {
+    private static final Type STATION_LIST = new TypeToken<List<Station>>() {}.getType();
+    private static final Type DOCUMENT_MAP = new TypeToken<Map<String, Object>>() {}.getType();
+
+    @Param({"json", "cbor"})
+    public String format;
+
+    private final CborConverterFactory factory = CborConverterFactory.create();
+    private Converter<ResponseBody, List<Station>> stationsConverter;
+    private Converter<ResponseBody, JsonObject> viewBusConverter;
+    private Converter<ResponseBody, Map<String, Object>> metroArrivalsConverter;
+    private MediaType contentType;
+    private byte[] stationsBody;
+    private byte[] viewBusBody;
+    private byte[] metroArrivalsBody;
+
+    @Setup
+    public void setUp() {
+        stationsConverter = converter(STATION_LIST);
+        viewBusConverter = converter(JsonObject.class);
+        metroArrivalsConverter = converter(DOCUMENT_MAP);
+
+        boolean cbor = "cbor".equals(format);
+        contentType = MediaType.get(cbor ? "application/cbor" : "application/json; charset=utf-8");
+        stationsBody = encode(Fixtures.read("stations.json"), cbor);
+        viewBusBody = encode(Fixtures.read("viewbus.json"), cbor);
+        metroArrivalsBody = encode(Fixtures.read("metro_arrivals.json"), cbor);
+
+        System.out.println(String.format(Locale.ROOT,
+                "%n%s bytes (gzip): stations %d (%d), viewbus %d (%d), metro_arrivals %d (%d)",
+                format, stationsBody.length, gzippedLength(stationsBody),
+                viewBusBody.length, gzippedLength(viewBusBody),
+                metroArrivalsBody.length, gzippedLength(metroArrivalsBody)));
+    }
+
+    @Benchmark
+    public List<Station> stations() throws IOException {
+        return stationsConverter.convert(ResponseBody.create(stationsBody, contentType));
+    }
+
+    @Benchmark
+    public JsonObject viewBus() throws IOException {
+        return viewBusConverter.convert(ResponseBody.create(viewBusBody, contentType));
+    }
+
+    @Benchmark
+    public Map<String, Object> metroArrivals() throws IOException {
+        return metroArrivalsConverter.convert(ResponseBody.create(metroArrivalsBody, contentType));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Converter<ResponseBody, T> converter(Type type) {
+        return (Converter<ResponseBody, T>) factory.responseBodyConverter(type, new Annotation[0], null);
+    }
+
+    private static byte[] encode(String json, boolean cbor) {
+        return cbor ? CborWriter.fromJson(json) : json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int gzippedLength(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.size();
+    }
+}
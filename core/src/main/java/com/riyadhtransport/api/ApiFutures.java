@@ -0,0 +1,224 @@
+package com.riyadhtransport.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/**
+ * Retrofit calls as {@link CompletableFuture}s, for composing requests instead of
+ * nesting callbacks. Cancelling a future made here cancels the work behind it: the
+ * HTTP call, the stage it is waiting on, or every branch of a fan-out. Plain
+ * {@code thenCompose}/{@code thenApply} don't pass cancellation back, so chains that
+ * should be cancellable use {@link #compose} and {@link #map}.
+ */
+public class ApiFutures {
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "api-futures-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Enqueue {@code call}; the future completes on {@code executor} with the response,
+     * whatever its status, or fails with the network error
+     */
+    public static <T> CompletableFuture<Response<T>> response(Call<T> call, Executor executor) {
+        CompletableFuture<Response<T>> future = new CompletableFuture<>();
+        call.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> c, Response<T> response) {
+                completeOn(executor, () -> future.complete(response));
+            }
+
+            @Override
+            public void onFailure(Call<T> c, Throwable t) {
+                completeOn(executor, () -> future.completeExceptionally(t));
+            }
+        });
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Like {@link #response}, but yields the body; non-2xx responses fail with
+     * {@link HttpException} and empty bodies with an IOException
+     */
+    public static <T> CompletableFuture<T> body(Call<T> call, Executor executor) {
+        return map(response(call, executor), response -> {
+            if (!response.isSuccessful()) {
+                throw new HttpException(response);
+            }
+            if (response.body() == null) {
+                throw new CompletionException(new IOException("Empty response body"));
+            }
+            return response.body();
+        });
+    }
+
+    /**
+     * Fail with {@link TimeoutException} and cancel {@code future} if it hasn't
+     * completed within the timeout
+     */
+    public static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, long timeout, TimeUnit unit) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> timeoutTask = timer.schedule(() -> {
+            if (result.completeExceptionally(new TimeoutException("Timed out after " + unit.toMillis(timeout) + " ms"))) {
+                future.cancel(true);
+            }
+        }, timeout, unit);
+        future.whenComplete((value, error) -> {
+            timeoutTask.cancel(false);
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+            } else {
+                result.complete(value);
+            }
+        });
+        cancelWith(result, future);
+        return result;
+    }
+
+    /**
+     * {@code thenApply} that also cancels {@code source} when the result is cancelled
+     */
+    public static <T, R> CompletableFuture<R> map(CompletableFuture<T> source, Function<? super T, ? extends R> fn) {
+        CompletableFuture<R> result = source.thenApply(fn);
+        cancelWith(result, source);
+        return result;
+    }
+
+    /**
+     * {@code exceptionally} that also cancels {@code source} when the result is
+     * cancelled; {@code fn} gets the unwrapped cause
+     */
+    public static <T> CompletableFuture<T> recover(CompletableFuture<T> source, Function<Throwable, ? extends T> fn) {
+        CompletableFuture<T> result = source.exceptionally(error -> fn.apply(unwrap(error)));
+        cancelWith(result, source);
+        return result;
+    }
+
+    /**
+     * {@code thenCompose} that also cancels {@code source}, or the stage it led to,
+     * when the result is cancelled
+     */
+    public static <T, R> CompletableFuture<R> compose(CompletableFuture<T> source,
+                                                      Function<? super T, ? extends CompletableFuture<R>> fn) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> current = new AtomicReference<>(source);
+        source.whenComplete((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+                return;
+            }
+            CompletableFuture<R> next;
+            try {
+                next = fn.apply(value);
+            } catch (Throwable t) {
+                result.completeExceptionally(unwrap(t));
+                return;
+            }
+            current.set(next);
+            if (result.isCancelled()) {
+                next.cancel(true);
+                return;
+            }
+            next.whenComplete((nextValue, nextError) -> {
+                if (nextError != null) {
+                    result.completeExceptionally(unwrap(nextError));
+                } else {
+                    result.complete(nextValue);
+                }
+            });
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                current.get().cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Wait for every future and collect their results in order. Fails as soon as one
+     * fails; cancelling the result cancels every branch.
+     */
+    public static <T> CompletableFuture<List<T>> allAsList(List<CompletableFuture<T>> futures) {
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+        CompletableFuture<List<T>> result = all.thenApply(ignored -> {
+            List<T> values = new ArrayList<>(futures.size());
+            for (CompletableFuture<T> future : futures) {
+                values.add(future.join());
+            }
+            return values;
+        });
+        result.whenComplete((values, error) -> {
+            if (result.isCancelled() || error != null) {
+                for (CompletableFuture<T> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        });
+        for (CompletableFuture<T> future : futures) {
+            future.whenComplete((value, error) -> {
+                if (error != null && !(unwrap(error) instanceof CancellationException)) {
+                    result.completeExceptionally(unwrap(error));
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * The cause of a failure as seen by a dependent stage
+     */
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Run {@code task} on the timer thread after {@code delayMs}; it must be quick
+     */
+    static ScheduledFuture<?> schedule(Runnable task, long delayMs) {
+        return timer.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static void completeOn(Executor executor, Runnable completion) {
+        try {
+            executor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            // A saturated executor must not lose the result; finish on this thread instead
+            completion.run();
+        }
+    }
+
+    private static void cancelWith(CompletableFuture<?> result, CompletableFuture<?> source) {
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+    }
+}
@@ -1,10 +1,12 @@
 package com.riyadhtransport.api;
 
+import java.util.List;
 import java.util.Map;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Header;
 import retrofit2.http.Path;
+import retrofit2.http.Query;
 
 /**
  * Retrofit service for AppWrite REST API
@@ -21,4 +23,15 @@ public interface AppWriteApiService {
             @Path("collectionId") String collectionId,
             @Header("X-Appwrite-Project") String projectId
     );
+
+    /**
+     * List documents matching {@link AppWriteQuery} queries, e.g. one page of a listing
+     */
+    @GET("databases/{databaseId}/collections/{collectionId}/documents")
+    Call<Map<String, Object>> listDocuments(
+            @Path("databaseId") String databaseId,
+            @Path("collectionId") String collectionId,
+            @Header("X-Appwrite-Project") String projectId,
+            @Query("queries[]") List<String> queries
+    );
 }
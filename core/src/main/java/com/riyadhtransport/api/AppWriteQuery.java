@@ -0,0 +1,62 @@
+package com.riyadhtransport.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * AppWrite query strings for the {@code queries[]} parameter of list endpoints,
+ * in the JSON form the server expects
+ * https://appwrite.io/docs/products/databases/queries
+ */
+public class AppWriteQuery {
+    /** Largest page AppWrite returns */
+    public static final int MAX_LIMIT = 100;
+
+    public static String limit(int limit) {
+        JsonArray values = new JsonArray();
+        values.add(limit);
+        return query("limit", null, values);
+    }
+
+    /**
+     * Continue a listing after the document with this id
+     */
+    public static String cursorAfter(String documentId) {
+        JsonArray values = new JsonArray();
+        values.add(documentId);
+        return query("cursorAfter", null, values);
+    }
+
+    public static String greaterThanEqual(String attribute, String value) {
+        JsonArray values = new JsonArray();
+        values.add(value);
+        return query("greaterThanEqual", attribute, values);
+    }
+
+    public static String orderAsc(String attribute) {
+        return query("orderAsc", attribute, null);
+    }
+
+    /**
+     * Return only these attributes of each document
+     */
+    public static String select(String... attributes) {
+        JsonArray values = new JsonArray();
+        for (String attribute : attributes) {
+            values.add(attribute);
+        }
+        return query("select", null, values);
+    }
+
+    private static String query(String method, String attribute, JsonArray values) {
+        JsonObject query = new JsonObject();
+        query.addProperty("method", method);
+        if (attribute != null) {
+            query.addProperty("attribute", attribute);
+        }
+        if (values != null) {
+            query.add("values", values);
+        }
+        return query.toString();
+    }
+}
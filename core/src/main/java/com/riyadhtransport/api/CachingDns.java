@@ -0,0 +1,85 @@
+package com.riyadhtransport.api;
+
+import com.riyadhtransport.utils.Metrics;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Dns;
+
+/**
+ * Remembers DNS answers for the few hosts the app talks to. The platform resolver only
+ * keeps answers for seconds, so without this every new connection starts with a lookup.
+ * When a lookup fails, for example on a flaky cell link, an expired answer is used for
+ * up to {@code staleMs} before the failure is passed on.
+ *
+ * <p>Deviation from DNS semantics: the platform resolver doesn't report record TTLs, so
+ * every answer is kept for a fixed {@code ttlMs} whatever TTL the record has. The TTLs
+ * the hosts publish have not been checked against it, so an answer may be used after
+ * its record has expired. Honoring real TTLs would need a resolver that reports them,
+ * such as DNS over HTTPS or dnsjava.
+ */
+public class CachingDns implements Dns {
+    private static final Metrics.Counter HITS = Metrics.counter("dns.hit");
+    private static final Metrics.Counter MISSES = Metrics.counter("dns.miss");
+    private static final Metrics.Counter STALE = Metrics.counter("dns.stale");
+    private static final Metrics.Histogram LOOKUP_MS = Metrics.histogram("dns.lookup_ms");
+
+    private final Dns delegate;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public CachingDns(Dns delegate, long ttlMs, long staleMs) {
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMs);
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        Entry entry = entries.get(hostname);
+        long now = System.nanoTime();
+        if (entry != null && now - entry.resolvedAtNanos < ttlNanos) {
+            HITS.increment();
+            return entry.addresses;
+        }
+        MISSES.increment();
+        try {
+            List<InetAddress> addresses = delegate.lookup(hostname);
+            LOOKUP_MS.recordSinceNanos(now);
+            entries.put(hostname, new Entry(addresses, System.nanoTime()));
+            return addresses;
+        } catch (UnknownHostException e) {
+            if (entry != null && now - entry.resolvedAtNanos < staleNanos) {
+                STALE.increment();
+                return entry.addresses;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Resolve {@code hostname} now, so the first connection to it doesn't wait for DNS.
+     * Failures are ignored; the connection will retry the lookup.
+     */
+    public void prefetch(String hostname) {
+        try {
+            lookup(hostname);
+        } catch (UnknownHostException e) {
+            // Left to the first request
+        }
+    }
+
+    private static class Entry {
+        final List<InetAddress> addresses;
+        final long resolvedAtNanos;
+
+        Entry(List<InetAddress> addresses, long resolvedAtNanos) {
+            this.addresses = addresses;
+            this.resolvedAtNanos = resolvedAtNanos;
+        }
+    }
+}
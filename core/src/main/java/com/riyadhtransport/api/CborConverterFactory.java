@@ -0,0 +1,171 @@
+package com.riyadhtransport.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.riyadhtransport.utils.Metrics;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Decodes response bodies that are either CBOR or JSON, picked by their Content-Type,
+ * with the same Gson type adapters. Endpoints opt in to CBOR by sending
+ * {@link #ACCEPT_CBOR}; a server that doesn't support it answers JSON as before.
+ * Only responses are handled, so add this before GsonConverterFactory, which still
+ * encodes request bodies as JSON.
+ *
+ * <p>Gson's own Map adapter reads keys through a hook that only works on Gson's readers,
+ * so CBOR is decoded with a copy of the Gson that reads String-keyed maps itself.
+ */
+public class CborConverterFactory extends Converter.Factory {
+    /** For {@code @Headers}: CBOR preferred, JSON accepted */
+    public static final String ACCEPT_CBOR = "Accept: application/cbor, application/json;q=0.9";
+
+    private static final Metrics.Counter CBOR_RESPONSES = Metrics.counter("wire.cbor");
+    private static final Metrics.Counter JSON_RESPONSES = Metrics.counter("wire.json");
+
+    private final Gson gson;
+    private final Gson cborGson;
+
+    private CborConverterFactory(Gson gson) {
+        this.gson = gson;
+        this.cborGson = gson.newBuilder()
+                .registerTypeAdapterFactory(new StringKeyMapFactory())
+                .create();
+    }
+
+    public static CborConverterFactory create() {
+        return create(new Gson());
+    }
+
+    public static CborConverterFactory create(Gson gson) {
+        return new CborConverterFactory(gson);
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                            Retrofit retrofit) {
+        TypeToken<?> token = TypeToken.get(type);
+        return new BodyConverter<>(gson, gson.getAdapter(token), cborGson.getAdapter(token));
+    }
+
+    static boolean isCbor(MediaType contentType) {
+        return contentType != null && "cbor".equals(contentType.subtype());
+    }
+
+    private static class BodyConverter<T> implements Converter<ResponseBody, T> {
+        private final Gson gson;
+        private final TypeAdapter<T> jsonAdapter;
+        private final TypeAdapter<?> cborAdapter;
+
+        BodyConverter(Gson gson, TypeAdapter<T> jsonAdapter, TypeAdapter<?> cborAdapter) {
+            this.gson = gson;
+            this.jsonAdapter = jsonAdapter;
+            this.cborAdapter = cborAdapter;
+        }
+
+        @Override
+        public T convert(ResponseBody body) throws IOException {
+            JsonReader reader;
+            TypeAdapter<?> adapter;
+            if (isCbor(body.contentType())) {
+                CBOR_RESPONSES.increment();
+                reader = new CborReader(body.byteStream());
+                adapter = cborAdapter;
+            } else {
+                JSON_RESPONSES.increment();
+                reader = gson.newJsonReader(body.charStream());
+                adapter = jsonAdapter;
+            }
+            try {
+                // Both adapters are for the same type
+                @SuppressWarnings("unchecked")
+                T result = (T) adapter.read(reader);
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonIOException("Document was not fully consumed.");
+                }
+                return result;
+            } finally {
+                body.close();
+            }
+        }
+    }
+
+    /**
+     * Reads {@code Map} and {@code Map<String, V>} with {@link JsonReader#nextName()}
+     */
+    private static class StringKeyMapFactory implements TypeAdapterFactory {
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != Map.class) {
+                return null;
+            }
+            Type valueType = Object.class;
+            if (type.getType() instanceof ParameterizedType) {
+                Type[] arguments = ((ParameterizedType) type.getType()).getActualTypeArguments();
+                if (upperBound(arguments[0]) != String.class) {
+                    return null;
+                }
+                valueType = upperBound(arguments[1]);
+            }
+            TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+            TypeAdapter<?> valueAdapter = gson.getAdapter(TypeToken.get(valueType));
+            @SuppressWarnings("unchecked")
+            TypeAdapter<T> adapter = (TypeAdapter<T>) new StringKeyMapAdapter<>(valueAdapter, delegate);
+            return adapter;
+        }
+
+        private static Type upperBound(Type type) {
+            return type instanceof WildcardType ? ((WildcardType) type).getUpperBounds()[0] : type;
+        }
+    }
+
+    private static class StringKeyMapAdapter<V, T> extends TypeAdapter<Map<String, V>> {
+        private final TypeAdapter<V> valueAdapter;
+        private final TypeAdapter<T> delegate;
+
+        StringKeyMapAdapter(TypeAdapter<V> valueAdapter, TypeAdapter<T> delegate) {
+            this.valueAdapter = valueAdapter;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Map<String, V> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Map<String, V> map = new LinkedHashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                V value = valueAdapter.read(in);
+                if (map.put(key, value) != null) {
+                    throw new JsonIOException("duplicate key: " + key);
+                }
+            }
+            in.endObject();
+            return map;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void write(JsonWriter out, Map<String, V> value) throws IOException {
+            delegate.write(out, (T) value);
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package com.riyadhtransport.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads a CBOR (RFC 8949) document through the {@link JsonReader} API, so the same Gson
+ * type adapters decode both wire formats without building a tree first. Supported are
+ * the types a JSON document maps to: integers, half, single and double floats, text
+ * strings, arrays, maps with text keys, booleans and null, in definite or indefinite
+ * length. Tags are skipped. Byte strings have no JSON equivalent and are rejected.
+ */
+public class CborReader extends JsonReader {
+    private static final Reader UNREADABLE = new StringReader("");
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+    private static final int MAJOR_SIMPLE = 7;
+    private static final int INDEFINITE = 31;
+    private static final int BREAK = 0xFF;
+
+    private final InputStream in;
+    // Read through our own buffer; InputStream.read() per byte is too slow for large feeds
+    private final byte[] buffer = new byte[8192];
+    private int pos;
+    private int limit;
+
+    // One entry per open array or map. Items left is -1 for indefinite length; a map
+    // counts keys and values separately.
+    private long[] itemsLeft = new long[32];
+    private boolean[] inMap = new boolean[32];
+    private boolean[] expectName = new boolean[32];
+    private String[] pathNames = new String[32];
+    private int[] pathIndices = new int[32];
+    private int depth;
+    private boolean documentDone;
+
+    // The next item, once peek() has read its head
+    private JsonToken peeked;
+    private int peekedMajor;
+    private long peekedArgument;
+    private double peekedDouble;
+    private boolean peekedIsDouble;
+
+    public CborReader(InputStream in) {
+        super(UNREADABLE);
+        this.in = in;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        if (depth == 0 && documentDone) {
+            return peeked = JsonToken.END_DOCUMENT;
+        }
+        if (depth > 0 && itemsLeft[depth - 1] == 0) {
+            return peeked = inMap[depth - 1] ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+        }
+        int head = readByte();
+        if (head == -1) {
+            if (depth == 0) {
+                return peeked = JsonToken.END_DOCUMENT;
+            }
+            throw new EOFException("End of input" + locationString());
+        }
+        if (head == BREAK) {
+            if (depth == 0 || itemsLeft[depth - 1] != -1) {
+                throw syntaxError("Unexpected break");
+            }
+            return peeked = inMap[depth - 1] ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+        }
+        int major = head >>> 5;
+        int info = head & 0x1F;
+        while (major == MAJOR_TAG) {
+            // Tags only add meaning to the item that follows, e.g. a date
+            readArgument(info);
+            head = readByte();
+            if (head == -1) {
+                throw new EOFException("End of input" + locationString());
+            }
+            major = head >>> 5;
+            info = head & 0x1F;
+        }
+        peekedMajor = major;
+        peekedIsDouble = false;
+        if (depth > 0 && expectName[depth - 1]) {
+            if (major != MAJOR_TEXT) {
+                throw syntaxError("Expected a text key");
+            }
+            peekedArgument = readLength(info);
+            return peeked = JsonToken.NAME;
+        }
+        switch (major) {
+            case MAJOR_UNSIGNED:
+            case MAJOR_NEGATIVE:
+                peekedArgument = readArgument(info);
+                if (peekedArgument < 0) {
+                    throw syntaxError("Integer out of range");
+                }
+                return peeked = JsonToken.NUMBER;
+            case MAJOR_BYTES:
+                throw syntaxError("Byte strings are not supported");
+            case MAJOR_TEXT:
+                peekedArgument = readLength(info);
+                return peeked = JsonToken.STRING;
+            case MAJOR_ARRAY:
+                peekedArgument = info == INDEFINITE ? -1 : readLength(info);
+                return peeked = JsonToken.BEGIN_ARRAY;
+            case MAJOR_MAP:
+                peekedArgument = info == INDEFINITE ? -1 : readLength(info) * 2;
+                return peeked = JsonToken.BEGIN_OBJECT;
+            default:
+                return peekSimple(info);
+        }
+    }
+
+    private JsonToken peekSimple(int info) throws IOException {
+        switch (info) {
+            case 20:
+            case 21:
+                peekedArgument = info;
+                return peeked = JsonToken.BOOLEAN;
+            case 22:
+            case 23:
+                return peeked = JsonToken.NULL;
+            case 25:
+                peekedDouble = halfToDouble((int) readBigEndian(2));
+                break;
+            case 26:
+                peekedDouble = Float.intBitsToFloat((int) readBigEndian(4));
+                break;
+            case 27:
+                peekedDouble = Double.longBitsToDouble(readBigEndian(8));
+                break;
+            default:
+                throw syntaxError("Unsupported simple value " + info);
+        }
+        peekedIsDouble = true;
+        return peeked = JsonToken.NUMBER;
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        expect(JsonToken.BEGIN_ARRAY);
+        push(false);
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        expect(JsonToken.END_ARRAY);
+        pop();
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        expect(JsonToken.BEGIN_OBJECT);
+        push(true);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        expect(JsonToken.END_OBJECT);
+        pop();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        JsonToken token = peek();
+        return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY
+                && token != JsonToken.END_DOCUMENT;
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        expect(JsonToken.NAME);
+        String name = readText(peekedArgument);
+        pathNames[depth - 1] = name;
+        consumed();
+        return name;
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        JsonToken token = peek();
+        String value;
+        if (token == JsonToken.STRING) {
+            value = readText(peekedArgument);
+        } else if (token == JsonToken.NUMBER) {
+            // Gson reads numbers of unknown type as strings, e.g. for JsonElement
+            value = peekedIsDouble ? Double.toString(peekedDouble) : Long.toString(integerValue());
+        } else {
+            throw unexpected("a string", token);
+        }
+        consumed();
+        return value;
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        expect(JsonToken.BOOLEAN);
+        boolean value = peekedArgument == 21;
+        consumed();
+        return value;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        expect(JsonToken.NULL);
+        consumed();
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        JsonToken token = peek();
+        double value;
+        if (token == JsonToken.NUMBER) {
+            value = peekedIsDouble ? peekedDouble : integerValue();
+        } else if (token == JsonToken.STRING) {
+            value = Double.parseDouble(readText(peekedArgument));
+        } else {
+            throw unexpected("a double", token);
+        }
+        consumed();
+        return value;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        JsonToken token = peek();
+        long value;
+        if (token == JsonToken.NUMBER && !peekedIsDouble) {
+            value = integerValue();
+        } else if (token == JsonToken.NUMBER) {
+            value = (long) peekedDouble;
+            if (value != peekedDouble) {
+                throw new NumberFormatException("Expected a long but was " + peekedDouble + locationString());
+            }
+        } else if (token == JsonToken.STRING) {
+            value = Long.parseLong(readText(peekedArgument));
+        } else {
+            throw unexpected("a long", token);
+        }
+        consumed();
+        return value;
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if ((int) value != value) {
+            throw new NumberFormatException("Expected an int but was " + value + locationString());
+        }
+        return (int) value;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        JsonToken token = peek();
+        switch (token) {
+            case BEGIN_ARRAY:
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case BEGIN_OBJECT:
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+                break;
+            case NAME:
+            case STRING:
+                skipBytes(peekedArgument);
+                consumed();
+                break;
+            case END_ARRAY:
+            case END_OBJECT:
+            case END_DOCUMENT:
+                // Nothing to skip, as in JsonReader
+                break;
+            default:
+                consumed();
+                break;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        peeked = null;
+        depth = 0;
+        in.close();
+    }
+
+    @Override
+    public String getPath() {
+        StringBuilder path = new StringBuilder("$");
+        for (int i = 0; i < depth; i++) {
+            if (inMap[i]) {
+                path.append('.');
+                if (pathNames[i] != null) {
+                    path.append(pathNames[i]);
+                }
+            } else {
+                path.append('[').append(pathIndices[i]).append(']');
+            }
+        }
+        return path.toString();
+    }
+
+    @Override
+    public String getPreviousPath() {
+        return getPath();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + locationString();
+    }
+
+    private void expect(JsonToken expected) throws IOException {
+        JsonToken token = peek();
+        if (token != expected) {
+            throw unexpected(expected.name(), token);
+        }
+    }
+
+    private void push(boolean map) {
+        if (depth == itemsLeft.length) {
+            int size = depth * 2;
+            itemsLeft = Arrays.copyOf(itemsLeft, size);
+            inMap = Arrays.copyOf(inMap, size);
+            expectName = Arrays.copyOf(expectName, size);
+            pathNames = Arrays.copyOf(pathNames, size);
+            pathIndices = Arrays.copyOf(pathIndices, size);
+        }
+        // The container counts as one item of its parent
+        long items = peekedArgument;
+        consumed();
+        itemsLeft[depth] = items;
+        inMap[depth] = map;
+        expectName[depth] = map;
+        pathNames[depth] = null;
+        pathIndices[depth] = 0;
+        depth++;
+    }
+
+    private void pop() {
+        peeked = null;
+        depth--;
+        if (depth == 0) {
+            documentDone = true;
+        }
+    }
+
+    /**
+     * Mark the peeked item (or a container's head) as read
+     */
+    private void consumed() {
+        peeked = null;
+        if (depth == 0) {
+            documentDone = true;
+            return;
+        }
+        int top = depth - 1;
+        if (itemsLeft[top] > 0) {
+            itemsLeft[top]--;
+        }
+        if (inMap[top]) {
+            expectName[top] = !expectName[top];
+        } else {
+            pathIndices[top]++;
+        }
+    }
+
+    private long integerValue() {
+        return peekedMajor == MAJOR_NEGATIVE ? -1 - peekedArgument : peekedArgument;
+    }
+
+    private long readLength(int info) throws IOException {
+        if (info == INDEFINITE) {
+            throw syntaxError("Indefinite length strings are not supported");
+        }
+        long length = readArgument(info);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw syntaxError("Length out of range");
+        }
+        return length;
+    }
+
+    private long readArgument(int info) throws IOException {
+        if (info < 24) {
+            return info;
+        }
+        switch (info) {
+            case 24:
+                return readBigEndian(1);
+            case 25:
+                return readBigEndian(2);
+            case 26:
+                return readBigEndian(4);
+            case 27:
+                return readBigEndian(8);
+            default:
+                throw syntaxError("Invalid additional info " + info);
+        }
+    }
+
+    private long readBigEndian(int bytes) throws IOException {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            int b = readByte();
+            if (b == -1) {
+                throw new EOFException("End of input" + locationString());
+            }
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    private int readByte() throws IOException {
+        if (pos == limit && !fill(1)) {
+            return -1;
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    /**
+     * Make at least {@code count} bytes available in the buffer, if the input has them
+     */
+    private boolean fill(int count) throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (limit < count) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    private String readText(long length) throws IOException {
+        int size = (int) length;
+        if (size <= buffer.length) {
+            if (limit - pos < size && !fill(size)) {
+                throw new EOFException("End of input" + locationString());
+            }
+            String text = new String(buffer, pos, size, StandardCharsets.UTF_8);
+            pos += size;
+            return text;
+        }
+        byte[] bytes = new byte[size];
+        int copied = limit - pos;
+        System.arraycopy(buffer, pos, bytes, 0, copied);
+        pos = limit;
+        // Not readNBytes, which Android only has from API 33
+        while (copied < size) {
+            int read = in.read(bytes, copied, size - copied);
+            if (read == -1) {
+                throw new EOFException("End of input" + locationString());
+            }
+            copied += read;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void skipBytes(long length) throws IOException {
+        long left = length;
+        while (left > 0) {
+            if (pos == limit && !fill(1)) {
+                throw new EOFException("End of input" + locationString());
+            }
+            int skipped = (int) Math.min(left, limit - pos);
+            pos += skipped;
+            left -= skipped;
+        }
+    }
+
+    private static double halfToDouble(int half) {
+        int exponent = (half >> 10) & 0x1F;
+        int mantissa = half & 0x3FF;
+        double value;
+        if (exponent == 0) {
+            value = Math.scalb((double) mantissa, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        } else {
+            value = Math.scalb((double) (mantissa + 1024), exponent - 25);
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+
+    private IllegalStateException unexpected(String expected, JsonToken token) {
+        return new IllegalStateException("Expected " + expected + " but was " + token + locationString());
+    }
+
+    private MalformedJsonException syntaxError(String message) {
+        return new MalformedJsonException(message + locationString());
+    }
+
+    private String locationString() {
+        return " at path " + getPath();
+    }
+}
@@ -0,0 +1,229 @@
+package com.riyadhtransport.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes CBOR (RFC 8949) through the {@link JsonWriter} API, the counterpart of
+ * {@link CborReader}. Arrays and maps use indefinite length, so nothing has to be
+ * counted or buffered ahead. Integers take the smallest encoding, and floating point
+ * values are written as single precision when that is exact. Nulls are always written.
+ * The app only reads CBOR; this is for the replay server and the benchmarks.
+ */
+public class CborWriter extends JsonWriter {
+    private static final Writer UNWRITABLE = new Writer() {
+        @Override
+        public void write(char[] buffer, int offset, int counter) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void flush() {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+            throw new AssertionError();
+        }
+    };
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_TEXT = 3;
+    private static final int INDEFINITE_ARRAY = 0x9F;
+    private static final int INDEFINITE_MAP = 0xBF;
+    private static final int BREAK = 0xFF;
+    private static final int FALSE = 0xF4;
+    private static final int TRUE = 0xF5;
+    private static final int NULL = 0xF6;
+    private static final int FLOAT32 = 0xFA;
+    private static final int FLOAT64 = 0xFB;
+
+    private final OutputStream out;
+
+    public CborWriter(OutputStream out) {
+        super(UNWRITABLE);
+        this.out = out;
+    }
+
+    /**
+     * A JSON document re-encoded as CBOR
+     */
+    public static byte[] fromJson(String json) {
+        JsonElement tree = JsonParser.parseString(json);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length());
+        try (CborWriter writer = new CborWriter(bytes)) {
+            new Gson().getAdapter(JsonElement.class).write(writer, tree);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        out.write(INDEFINITE_ARRAY);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        out.write(BREAK);
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        out.write(INDEFINITE_MAP);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        out.write(BREAK);
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        writeText(name);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        writeText(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) {
+        throw new UnsupportedOperationException("Raw JSON can't be written as CBOR");
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        out.write(NULL);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        out.write(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) throws IOException {
+        return value == null ? nullValue() : value(value.booleanValue());
+    }
+
+    @Override
+    public JsonWriter value(float value) throws IOException {
+        return value((double) value);
+    }
+
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        float single = (float) value;
+        if (single == value || Double.isNaN(value)) {
+            out.write(FLOAT32);
+            writeBigEndian(Float.floatToIntBits(single), 4);
+        } else {
+            out.write(FLOAT64);
+            writeBigEndian(Double.doubleToLongBits(value), 8);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        if (value >= 0) {
+            writeHead(MAJOR_UNSIGNED, value);
+        } else {
+            writeHead(MAJOR_NEGATIVE, -1 - value);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return value(value.doubleValue());
+        }
+        if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            return value(value.longValue());
+        }
+        // Gson's LazilyParsedNumber, BigDecimal and others: keep integers as integers
+        String text = value.toString();
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            BigInteger integer = new BigInteger(text);
+            if (integer.bitLength() < 64) {
+                return value(integer.longValue());
+            }
+        }
+        return value(new BigDecimal(text).doubleValue());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeText(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeHead(MAJOR_TEXT, bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeHead(int major, long argument) throws IOException {
+        int type = major << 5;
+        if (argument < 24) {
+            out.write(type | (int) argument);
+        } else if (argument < 0x100) {
+            out.write(type | 24);
+            writeBigEndian(argument, 1);
+        } else if (argument < 0x10000) {
+            out.write(type | 25);
+            writeBigEndian(argument, 2);
+        } else if (argument < 0x100000000L) {
+            out.write(type | 26);
+            writeBigEndian(argument, 4);
+        } else {
+            out.write(type | 27);
+            writeBigEndian(argument, 8);
+        }
+    }
+
+    private void writeBigEndian(long value, int bytes) throws IOException {
+        for (int i = bytes - 1; i >= 0; i--) {
+            out.write((int) (value >>> (i * 8)));
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.riyadhtransport.api;
+
+import com.riyadhtransport.utils.Metrics;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Health of one endpoint, so callers with a fallback can skip an endpoint that keeps
+ * failing instead of waiting for it to fail every time. The breaker opens after
+ * {@code failureThreshold} failures or slow calls in a row. While it is open,
+ * {@link #tryAcquire} refuses calls until the cooldown has passed. It then lets one
+ * trial call through at a time (half-open). The breaker closes when a trial succeeds
+ * and opens again for a full cooldown when one fails.
+ *
+ * <p>Outcomes come from the HTTP attempts themselves (see {@link #monitor}), timed from
+ * when each one is actually sent, so time spent in the {@link RequestScheduler} queue or
+ * in retry backoff never makes an endpoint look slow. Network errors and 5xx responses
+ * count as failures. Other HTTP errors show that the endpoint is up, so they count as
+ * successes. A cancelled attempt counts only if it had already been waiting on the
+ * endpoint for longer than the slow-call limit. State is exported as the gauge
+ * {@code breaker.<name>.state}: 0 closed, 1 half-open, 2 open.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long cooldownNanos;
+
+    private final Metrics.Counter opened;
+    private final Metrics.Counter shortCircuited;
+    private final Metrics.Counter slowCalls;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    /**
+     * @param name             endpoint name used in metrics, e.g. "metro_arrivals"
+     * @param failureThreshold failures or slow calls in a row that open the breaker
+     * @param slowCallMs       calls slower than this count as failures
+     * @param cooldownMs       how long the breaker stays open before a trial call
+     */
+    public CircuitBreaker(String name, int failureThreshold, long slowCallMs, long cooldownMs) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMs);
+        String prefix = "breaker." + name;
+        this.opened = Metrics.counter(prefix + ".opened");
+        this.shortCircuited = Metrics.counter(prefix + ".short_circuited");
+        this.slowCalls = Metrics.counter(prefix + ".slow");
+        Metrics.gauge(prefix + ".state", () -> getState().ordinal());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Whether a call may go to the endpoint now. Send its attempts through
+     * {@link #monitor} and call {@link #release} once it is done, whatever the outcome.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= cooldownNanos) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        shortCircuited.increment();
+        return false;
+    }
+
+    /**
+     * {@code call}, reporting its outcome here. The clock starts when it is enqueued, so
+     * wrap it inside {@link RequestScheduler#schedule}, which enqueues it only once it is
+     * dispatched. Clones are monitored too.
+     */
+    public <T> Call<T> monitor(Call<T> call) {
+        return new MonitoredCall<>(call);
+    }
+
+    /**
+     * The endpoint answered; calls slower than the slow-call limit count as failures
+     */
+    public void onSuccess(long durationNanos) {
+        if (durationNanos > slowCallNanos) {
+            slowCalls.increment();
+            onFailure();
+            return;
+        }
+        synchronized (this) {
+            consecutiveFailures = 0;
+            trialInFlight = false;
+            state = State.CLOSED;
+        }
+    }
+
+    public void onFailure() {
+        boolean justOpened = false;
+        synchronized (this) {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                justOpened = state != State.OPEN;
+                state = State.OPEN;
+                openedAtNanos = System.nanoTime();
+            }
+            trialInFlight = false;
+        }
+        if (justOpened) {
+            opened.increment();
+        }
+    }
+
+    /**
+     * A permitted call is done. Frees the half-open trial if none of its attempts got as
+     * far as an outcome, e.g. they all timed out in the queue.
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    private void report(Call<?> call, Response<?> response, long startNanos) {
+        if (response == null) {
+            // No answer: count a cancelled attempt only if the endpoint was already slow
+            long durationNanos = System.nanoTime() - startNanos;
+            if (!call.isCanceled()) {
+                onFailure();
+            } else if (durationNanos > slowCallNanos) {
+                slowCalls.increment();
+                onFailure();
+            }
+        } else if (response.code() >= 500) {
+            onFailure();
+        } else {
+            onSuccess(System.nanoTime() - startNanos);
+        }
+    }
+
+    private class MonitoredCall<T> implements Call<T> {
+        private final Call<T> delegate;
+
+        MonitoredCall(Call<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            long startNanos = System.nanoTime();
+            try {
+                Response<T> response = delegate.execute();
+                report(delegate, response, startNanos);
+                return response;
+            } catch (IOException | RuntimeException e) {
+                report(delegate, null, startNanos);
+                throw e;
+            }
+        }
+
+        @Override
+        public void enqueue(Callback<T> callback) {
+            long startNanos = System.nanoTime();
+            delegate.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(Call<T> call, Response<T> response) {
+                    report(delegate, response, startNanos);
+                    callback.onResponse(MonitoredCall.this, response);
+                }
+
+                @Override
+                public void onFailure(Call<T> call, Throwable t) {
+                    report(delegate, null, startNanos);
+                    callback.onFailure(MonitoredCall.this, t);
+                }
+            });
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return delegate.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            delegate.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return delegate.isCanceled();
+        }
+
+        @Override
+        public Call<T> clone() {
+            return new MonitoredCall<>(delegate.clone());
+        }
+
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.riyadhtransport.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A point in time by which a whole chain of requests must finish. It is created once,
+ * where the chain starts. Each step in the chain gets whatever time is left, including
+ * retries and fallbacks, so a chain never runs past its deadline however many calls
+ * it makes.
+ */
+public final class Deadline {
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(long timeoutMs) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    /**
+     * The earlier of this deadline and {@code timeoutMs} from now, to give one step a share
+     * of the time and leave the rest for the steps after it
+     */
+    public Deadline within(long timeoutMs) {
+        long capped = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        return capped - deadlineNanos < 0 ? new Deadline(capped) : this;
+    }
+
+    /**
+     * This deadline brought forward by {@code reserveMs}, for a step that must leave that
+     * much time for the steps after it however long it waits to start
+     */
+    public Deadline leaving(long reserveMs) {
+        return new Deadline(deadlineNanos - TimeUnit.MILLISECONDS.toNanos(reserveMs));
+    }
+
+    /**
+     * Milliseconds left, or 0 once the deadline has passed
+     */
+    public long remainingMs() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    TimeoutException exceeded() {
+        return new TimeoutException("Deadline exceeded");
+    }
+}
@@ -0,0 +1,164 @@
+package com.riyadhtransport.api;
+
+import com.riyadhtransport.utils.Metrics;
+
+/**
+ * Estimates round-trip time and bandwidth from the app's own HTTP traffic, so request
+ * patterns can adapt to the link instead of assuming Wi-Fi. Samples come from
+ * NetworkTracer. The RTT comes only from the TCP handshake of new connections, which
+ * takes one round trip. TLS and time to first byte are left out, because they include
+ * work on the server, and a slow backend is not a slow link. Throughput is measured
+ * only on response bodies large enough to be meaningful. Both are smoothed with an
+ * exponentially weighted moving average. Calls on reused connections give no RTT
+ * sample, but each answer shows the link still works, so it keeps the current rating.
+ * The estimate goes back to {@link Quality#UNKNOWN} after a few minutes without any
+ * answered call, because the link may have changed in the meantime. A new network
+ * needs new connections, whose handshakes update the estimate.
+ *
+ * <p>Thresholds roughly follow the effective connection types used by browsers. POOR
+ * is around 2G, and MODERATE is around 3G or a congested cell.
+ */
+public class NetworkQualityEstimator {
+    public enum Quality { UNKNOWN, POOR, MODERATE, GOOD }
+
+    private static final double ALPHA = 0.2;
+    private static final int MIN_SAMPLES = 3;
+    private static final long STALE_MS = 5 * 60 * 1000;
+    // Smaller bodies arrive in one or two packets and say nothing about bandwidth
+    private static final long MIN_THROUGHPUT_BYTES = 16 * 1024;
+
+    private static final long POOR_RTT_MS = 1400;
+    private static final long MODERATE_RTT_MS = 500;
+    private static final long POOR_KBPS = 150;
+    private static final long MODERATE_KBPS = 700;
+
+    // Guarded by the class lock
+    private static double rttMs;
+    private static int rttSamples;
+    private static double throughputKbps;
+    private static int throughputSamples;
+    // When a call was last answered, sampled or not
+    private static long lastAnswerAtMs;
+
+    static {
+        Metrics.gauge("network.rtt_ms", NetworkQualityEstimator::getRttMs);
+        Metrics.gauge("network.throughput_kbps", NetworkQualityEstimator::getThroughputKbps);
+        Metrics.gauge("network.quality", () -> getQuality().ordinal());
+    }
+
+    /**
+     * Record a call the server answered. Durations are in milliseconds, -1 when the
+     * phase did not happen, e.g. no TCP connect on a reused connection. Calls answered
+     * from a cache should not be recorded.
+     */
+    public static synchronized void onCall(long tcpConnectMs, long responseBytes, long responseBodyMs) {
+        if (tcpConnectMs >= 0) {
+            rttMs = rttSamples == 0 ? tcpConnectMs : rttMs + ALPHA * (tcpConnectMs - rttMs);
+            rttSamples++;
+        }
+        if (responseBytes >= MIN_THROUGHPUT_BYTES && responseBodyMs > 0) {
+            double kbps = responseBytes * 8.0 / responseBodyMs;
+            throughputKbps = throughputSamples == 0 ? kbps : throughputKbps + ALPHA * (kbps - throughputKbps);
+            throughputSamples++;
+        }
+        lastAnswerAtMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Forget every sample, for tests
+     */
+    static synchronized void reset() {
+        rttMs = 0;
+        rttSamples = 0;
+        throughputKbps = 0;
+        throughputSamples = 0;
+        lastAnswerAtMs = 0;
+    }
+
+    /**
+     * Move the last answer {@code ms} into the past, for tests
+     */
+    static synchronized void age(long ms) {
+        lastAnswerAtMs -= ms;
+    }
+
+    public static synchronized Quality getQuality() {
+        if (rttSamples < MIN_SAMPLES || System.currentTimeMillis() - lastAnswerAtMs > STALE_MS) {
+            return Quality.UNKNOWN;
+        }
+        boolean measuredThroughput = throughputSamples > 0;
+        if (rttMs >= POOR_RTT_MS || (measuredThroughput && throughputKbps < POOR_KBPS)) {
+            return Quality.POOR;
+        }
+        if (rttMs >= MODERATE_RTT_MS || (measuredThroughput && throughputKbps < MODERATE_KBPS)) {
+            return Quality.MODERATE;
+        }
+        return Quality.GOOD;
+    }
+
+    /**
+     * Smoothed RTT in milliseconds, or -1 before the first sample
+     */
+    public static synchronized long getRttMs() {
+        return rttSamples > 0 ? Math.round(rttMs) : -1;
+    }
+
+    /**
+     * Smoothed throughput in kbit/s, or -1 before the first large response
+     */
+    public static synchronized long getThroughputKbps() {
+        return throughputSamples > 0 ? Math.round(throughputKbps) : -1;
+    }
+
+    /**
+     * A polling interval stretched on slow links, where each refresh takes longer and
+     * costs more
+     */
+    public static long scaleInterval(long baseMs) {
+        switch (getQuality()) {
+            case POOR:
+                return baseMs * 3;
+            case MODERATE:
+                return baseMs * 3 / 2;
+            default:
+                return baseMs;
+        }
+    }
+
+    /**
+     * How many requests of a batch to run at once: fewer on slow links, so they don't
+     * split the bandwidth and all finish late
+     */
+    public static int scaleConcurrency(int base) {
+        switch (getQuality()) {
+            case POOR:
+                return 1;
+            case MODERATE:
+                return Math.max(1, (base + 1) / 2);
+            default:
+                return base;
+        }
+    }
+
+    /**
+     * A typing debounce lengthened on slow links, where a request per pause would
+     * mostly return results that are already stale
+     */
+    public static long scaleDebounce(long baseMs) {
+        switch (getQuality()) {
+            case POOR:
+                return baseMs * 5 / 2;
+            case MODERATE:
+                return baseMs * 5 / 3;
+            default:
+                return baseMs;
+        }
+    }
+
+    /**
+     * Whether cached data that has expired should be shown instead of downloaded again
+     */
+    public static boolean preferCached() {
+        return getQuality() == Quality.POOR;
+    }
+}
@@ -0,0 +1,279 @@
+package com.riyadhtransport.api;
+
+import com.riyadhtransport.utils.Metrics;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Decides which enqueued calls go out first. OkHttp runs up to five calls per host in
+ * arrival order, so a burst of background requests could keep a user's search waiting.
+ * Calls wrapped here wait in a queue for their priority class instead. A waiting call
+ * starts only when its class is below its own cap and the scheduler is below
+ * {@link #MAX_IN_FLIGHT}. Interactive calls start before the other classes, and one
+ * slot is always kept free for them. The caps of the other classes shrink on slow links
+ * (see {@link NetworkQualityEstimator}). Enqueueing an interactive call also drops any
+ * waiting calls that were scheduled with {@link #prefetch}.
+ * Only {@code enqueue} is scheduled; {@code execute} runs right away.
+ */
+public class RequestScheduler {
+    /** OkHttp's default per-host limit, so scheduled calls never queue inside OkHttp */
+    public static final int MAX_IN_FLIGHT = 5;
+    private static final int RESERVED_FOR_INTERACTIVE = 1;
+
+    private static final Metrics.Counter DROPPED = Metrics.counter("scheduler.dropped");
+
+    public enum Priority {
+        /** A user is waiting on the result, e.g. a route search or opening a line */
+        INTERACTIVE("interactive", MAX_IN_FLIGHT),
+        /** Refreshes data already on screen, e.g. live arrivals */
+        VISIBLE_REFRESH("visible", 3),
+        /** Fills caches or off-screen rows ahead of time */
+        BACKGROUND_PREFETCH("background", 2);
+
+        final int maxInFlight;
+        final Metrics.Histogram waitMs;
+
+        Priority(String metricName, int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            this.waitMs = Metrics.histogram("scheduler.wait_ms." + metricName);
+        }
+    }
+
+    private static final Object lock = new Object();
+    private static final Map<Priority, ArrayDeque<ScheduledCall<?>>> queues = new EnumMap<>(Priority.class);
+    private static final Map<Priority, Integer> inFlight = new EnumMap<>(Priority.class);
+    private static int totalInFlight;
+
+    static {
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            inFlight.put(priority, 0);
+        }
+        Metrics.gauge("scheduler.queued", RequestScheduler::queuedCount);
+        Metrics.gauge("scheduler.in_flight", () -> {
+            synchronized (lock) {
+                return totalInFlight;
+            }
+        });
+    }
+
+    /**
+     * {@code call} wrapped so that enqueueing it waits for a slot of its priority class
+     */
+    public static <T> Call<T> schedule(Call<T> call, Priority priority) {
+        return new ScheduledCall<>(call, priority, false);
+    }
+
+    /**
+     * A background call that is dropped while waiting if an interactive call is enqueued.
+     * Its callback then gets an IOException, as it would for a cancelled call. Use it for
+     * results the app can do without or will ask for again.
+     */
+    public static <T> Call<T> prefetch(Call<T> call) {
+        return new ScheduledCall<>(call, Priority.BACKGROUND_PREFETCH, true);
+    }
+
+    private static long queuedCount() {
+        synchronized (lock) {
+            long count = 0;
+            for (ArrayDeque<ScheduledCall<?>> queue : queues.values()) {
+                count += queue.size();
+            }
+            return count;
+        }
+    }
+
+    private static void submit(ScheduledCall<?> call) {
+        List<ScheduledCall<?>> dropped = new ArrayList<>();
+        synchronized (lock) {
+            if (call.priority == Priority.INTERACTIVE) {
+                Iterator<ScheduledCall<?>> waiting = queues.get(Priority.BACKGROUND_PREFETCH).iterator();
+                while (waiting.hasNext()) {
+                    ScheduledCall<?> background = waiting.next();
+                    if (background.droppable) {
+                        waiting.remove();
+                        background.state = ScheduledCall.CANCELED;
+                        dropped.add(background);
+                    }
+                }
+            }
+            call.queuedAtNanos = System.nanoTime();
+            queues.get(call.priority).add(call);
+        }
+        DROPPED.add(dropped.size());
+        for (ScheduledCall<?> background : dropped) {
+            background.failCanceled();
+        }
+        promote();
+    }
+
+    /**
+     * Start waiting calls, highest priority first, while there are free slots
+     */
+    private static void promote() {
+        List<ScheduledCall<?>> ready = new ArrayList<>();
+        synchronized (lock) {
+            for (Priority priority : Priority.values()) {
+                ArrayDeque<ScheduledCall<?>> queue = queues.get(priority);
+                int limit = priority == Priority.INTERACTIVE
+                        ? MAX_IN_FLIGHT
+                        : MAX_IN_FLIGHT - RESERVED_FOR_INTERACTIVE;
+                // Fewer calls at once on a slow link, so they don't all share its bandwidth
+                int classLimit = priority == Priority.INTERACTIVE
+                        ? priority.maxInFlight
+                        : NetworkQualityEstimator.scaleConcurrency(priority.maxInFlight);
+                while (!queue.isEmpty() && totalInFlight < limit
+                        && inFlight.get(priority) < classLimit) {
+                    ScheduledCall<?> call = queue.poll();
+                    call.state = ScheduledCall.RUNNING;
+                    inFlight.put(priority, inFlight.get(priority) + 1);
+                    totalInFlight++;
+                    ready.add(call);
+                }
+            }
+        }
+        for (ScheduledCall<?> call : ready) {
+            call.priority.waitMs.recordSinceNanos(call.queuedAtNanos);
+            call.start();
+        }
+    }
+
+    private static void finished(ScheduledCall<?> call) {
+        synchronized (lock) {
+            inFlight.put(call.priority, inFlight.get(call.priority) - 1);
+            totalInFlight--;
+        }
+        promote();
+    }
+
+    private static void cancel(ScheduledCall<?> call) {
+        boolean wasQueued;
+        synchronized (lock) {
+            wasQueued = call.state == ScheduledCall.QUEUED && queues.get(call.priority).remove(call);
+            if (call.state != ScheduledCall.RUNNING) {
+                call.state = ScheduledCall.CANCELED;
+            }
+        }
+        if (wasQueued) {
+            call.failCanceled();
+        } else {
+            call.delegate.cancel();
+        }
+    }
+
+    private static class ScheduledCall<T> implements Call<T> {
+        static final int NEW = 0;
+        static final int QUEUED = 1;
+        static final int RUNNING = 2;
+        static final int CANCELED = 3;
+
+        final Call<T> delegate;
+        final Priority priority;
+        final boolean droppable;
+        // Guarded by the scheduler lock
+        int state = NEW;
+        long queuedAtNanos;
+        private Callback<T> callback;
+        private volatile boolean executed;
+
+        ScheduledCall(Call<T> delegate, Priority priority, boolean droppable) {
+            this.delegate = delegate;
+            this.priority = priority;
+            this.droppable = droppable;
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            executed = true;
+            return delegate.execute();
+        }
+
+        @Override
+        public void enqueue(Callback<T> callback) {
+            boolean canceled;
+            synchronized (lock) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed.");
+                }
+                executed = true;
+                this.callback = callback;
+                canceled = state == CANCELED;
+                if (!canceled) {
+                    state = QUEUED;
+                }
+            }
+            if (canceled) {
+                failCanceled();
+            } else {
+                submit(this);
+            }
+        }
+
+        void start() {
+            delegate.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(Call<T> call, Response<T> response) {
+                    finished(ScheduledCall.this);
+                    callback.onResponse(ScheduledCall.this, response);
+                }
+
+                @Override
+                public void onFailure(Call<T> call, Throwable t) {
+                    finished(ScheduledCall.this);
+                    callback.onFailure(ScheduledCall.this, t);
+                }
+            });
+        }
+
+        void failCanceled() {
+            if (callback != null) {
+                callback.onFailure(this, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public void cancel() {
+            RequestScheduler.cancel(this);
+        }
+
+        @Override
+        public boolean isCanceled() {
+            synchronized (lock) {
+                if (state == CANCELED) {
+                    return true;
+                }
+            }
+            return delegate.isCanceled();
+        }
+
+        @Override
+        public Call<T> clone() {
+            return new ScheduledCall<>(delegate.clone(), priority, droppable);
+        }
+
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
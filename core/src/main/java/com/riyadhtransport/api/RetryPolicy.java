@@ -0,0 +1,132 @@
+package com.riyadhtransport.api;
+
+import com.riyadhtransport.utils.Metrics;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import retrofit2.HttpException;
+
+/**
+ * Retries idempotent calls that failed for a transient reason: a network error, a 5xx
+ * response or 429. Each retry waits a random backoff of up to {@code baseBackoffMs},
+ * doubling per attempt and capped at {@code maxBackoffMs}, so clients that failed
+ * together don't all retry at once. A retry is only made if it fits in the deadline.
+ *
+ * <p>Retries also draw on a budget. Every call adds {@code budgetRatio} of a token, up
+ * to {@code maxTokens}, and every retry spends a whole token. When a backend is down,
+ * retries therefore add at most that share of extra traffic instead of multiplying it.
+ */
+public class RetryPolicy {
+    private static final long MIN_ATTEMPT_MS = 250;
+
+    private static final Metrics.Counter RETRIES = Metrics.counter("retry.attempts");
+    private static final Metrics.Counter BUDGET_EXHAUSTED = Metrics.counter("retry.budget_exhausted");
+
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final double budgetRatio;
+    private final double maxTokens;
+
+    // Guarded by this
+    private double tokens;
+
+    public RetryPolicy(int maxAttempts, long baseBackoffMs, long maxBackoffMs,
+                       double budgetRatio, int maxTokens) {
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.budgetRatio = budgetRatio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    /**
+     * Run {@code attempt} until it succeeds, fails for good, runs out of retries or the
+     * deadline passes. Each attempt gets the deadline, so it can time itself out on the
+     * time that is left. Cancelling the result cancels the current attempt or backoff.
+     */
+    public <T> CompletableFuture<T> run(Deadline deadline, Function<Deadline, CompletableFuture<T>> attempt) {
+        deposit();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<Future<?>> current = new AtomicReference<>();
+        attempt(result, current, deadline, attempt, 1);
+        result.whenComplete((value, error) -> {
+            Future<?> pending = current.get();
+            if (result.isCancelled() && pending != null) {
+                pending.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private <T> void attempt(CompletableFuture<T> result, AtomicReference<Future<?>> current, Deadline deadline,
+                             Function<Deadline, CompletableFuture<T>> attempt, int number) {
+        if (result.isDone()) {
+            return;
+        }
+        if (deadline.isExpired()) {
+            result.completeExceptionally(deadline.exceeded());
+            return;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = attempt.apply(deadline);
+        } catch (Throwable t) {
+            result.completeExceptionally(ApiFutures.unwrap(t));
+            return;
+        }
+        current.set(future);
+        if (result.isCancelled()) {
+            future.cancel(true);
+            return;
+        }
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = ApiFutures.unwrap(error);
+            long backoffMs = backoffMs(number);
+            if (future.isCancelled() || number >= maxAttempts || !isTransient(cause)
+                    || deadline.remainingMs() < backoffMs + MIN_ATTEMPT_MS || !withdraw()) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            RETRIES.increment();
+            current.set(ApiFutures.schedule(
+                    () -> attempt(result, current, deadline, attempt, number + 1), backoffMs));
+        });
+    }
+
+    private long backoffMs(int attemptsSoFar) {
+        long ceiling = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attemptsSoFar - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + budgetRatio);
+    }
+
+    private boolean withdraw() {
+        synchronized (this) {
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+        }
+        BUDGET_EXHAUSTED.increment();
+        return false;
+    }
+
+    private static boolean isTransient(Throwable error) {
+        if (error instanceof HttpException) {
+            int code = ((HttpException) error).code();
+            return code >= 500 || code == 429;
+        }
+        return error instanceof IOException;
+    }
+}
@@ -2,6 +2,7 @@ package com.riyadhtransport.api;
 
 import com.google.gson.JsonObject;
 import com.riyadhtransport.models.Arrival;
+import com.riyadhtransport.models.LineShape;
 import com.riyadhtransport.models.Route;
 import com.riyadhtransport.models.Station;
 
@@ -11,8 +12,14 @@ import java.util.Map;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
 import retrofit2.http.POST;
 
+/**
+ * Backend endpoints. Arrivals and line details ask for CBOR and fall back to JSON
+ * (see {@link CborConverterFactory}); WireFormatBenchmark shows them smaller as CBOR,
+ * gzipped or not. Stations stay JSON because they gzip smaller as JSON.
+ */
 public interface TransportApiService {
     
     @GET("api/stations")
@@ -28,9 +35,11 @@ public interface TransportApiService {
     Call<Map<String, Object>> searchStation(@Body Map<String, String> stationName);
     
     @POST("metro_arrivals")
+    @Headers(CborConverterFactory.ACCEPT_CBOR)
     Call<Map<String, Object>> getMetroArrivals(@Body Map<String, String> stationName);
     
     @POST("bus_arrivals")
+    @Headers(CborConverterFactory.ACCEPT_CBOR)
     Call<Map<String, Object>> getBusArrivals(@Body Map<String, String> stationName);
     
     @GET("buslines")
@@ -40,9 +49,11 @@ public interface TransportApiService {
     Call<JsonObject> getMetroLines();
     
     @POST("viewbus")
+    @Headers(CborConverterFactory.ACCEPT_CBOR)
     Call<JsonObject> viewBus(@Body JsonObject lineNumber);
     
     @POST("viewmtr")
+    @Headers(CborConverterFactory.ACCEPT_CBOR)
     Call<JsonObject> viewMetro(@Body JsonObject lineNumber);
     
     @POST("giveMeId")
@@ -50,4 +61,9 @@ public interface TransportApiService {
     
     @POST("refineTerminus")
     Call<Map<String, Object>> refineTerminus(@Body Map<String, String> request);
+    
+    // Body: {"line": ..., "type": "metro" | "bus"}; one shape per direction, or an empty
+    // list if the line has none. Optional: backends without it answer 404.
+    @POST("lineshape")
+    Call<List<LineShape>> getLineShapes(@Body JsonObject line);
 }
@@ -3,6 +3,9 @@ package com.riyadhtransport.models;
 import com.google.gson.annotations.SerializedName;
 
 public class LineAlert {
+    @SerializedName("$id")
+    private String id;
+    
     @SerializedName("title")
     private String title;
     
@@ -12,6 +15,9 @@ public class LineAlert {
     @SerializedName("$createdAt")
     private String createdAt;
     
+    @SerializedName("$updatedAt")
+    private String updatedAt;
+    
     // Parsed fields
     private String affectedLine; // null if general alert, line number if line-specific
     private String displayTitle; // title without the square brackets and line number
@@ -26,6 +32,14 @@ public class LineAlert {
         parseTitle();
     }
     
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
     public String getTitle() {
         return title;
     }
@@ -51,6 +65,14 @@ public class LineAlert {
         this.createdAt = createdAt;
     }
     
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(String updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
     public String getAffectedLine() {
         return affectedLine;
     }
@@ -0,0 +1,133 @@
+package com.riyadhtransport.models;
+
+import com.google.gson.annotations.SerializedName;
+import com.riyadhtransport.utils.EncodedPolyline;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Drawn geometry of one line (one direction for bus lines) as an encoded polyline,
+ * with the vertex each station sits at, so a ride can be cut out of the shape between
+ * its boarding and alighting stations.
+ */
+public class LineShape {
+    private String line;
+    private String type; // "metro" or "bus"
+    private String direction;
+    private String polyline;
+    private List<String> stations;
+    // Vertex index in the decoded polyline for each entry of stations
+    @SerializedName("station_vertices")
+    private int[] stationVertices;
+
+    private transient EncodedPolyline.Path path;
+    private transient Map<String, Integer> vertexByStation;
+    private transient boolean prepared;
+
+    public LineShape() {}
+
+    public String getLine() { return line; }
+    public String getType() { return type; }
+    public String getDirection() { return direction; }
+    public String getPolyline() { return polyline; }
+    public List<String> getStations() { return stations; }
+
+    /**
+     * Whether the polyline decodes and every station has a vertex on it
+     */
+    public boolean isUsable() {
+        prepare();
+        return vertexByStation != null;
+    }
+
+    /**
+     * The shape between two stations in travel order, or null if either is not on it
+     */
+    public Slice slice(String fromStation, String toStation) {
+        prepare();
+        if (vertexByStation == null) {
+            return null;
+        }
+        Integer from = vertexByStation.get(key(fromStation));
+        Integer to = vertexByStation.get(key(toStation));
+        if (from == null || to == null) {
+            return null;
+        }
+        int count = Math.abs(to - from) + 1;
+        int step = to >= from ? 1 : -1;
+        double[] lats = new double[count];
+        double[] lngs = new double[count];
+        for (int i = 0, vertex = from; i < count; i++, vertex += step) {
+            lats[i] = path.latitudes[vertex];
+            lngs[i] = path.longitudes[vertex];
+        }
+        return new Slice(lats, lngs, step > 0);
+    }
+
+    /**
+     * Slice the first shape containing both stations, preferring one drawn in the
+     * direction of travel; null if none has both
+     */
+    public static Slice slice(List<LineShape> shapes, String fromStation, String toStation) {
+        Slice reversed = null;
+        for (LineShape shape : shapes) {
+            Slice slice = shape.slice(fromStation, toStation);
+            if (slice != null && slice.forward) {
+                return slice;
+            }
+            if (slice != null && reversed == null) {
+                reversed = slice;
+            }
+        }
+        return reversed;
+    }
+
+    private synchronized void prepare() {
+        if (prepared) {
+            return;
+        }
+        prepared = true;
+        if (polyline == null || stations == null || stationVertices == null
+                || stations.size() != stationVertices.length) {
+            return;
+        }
+        EncodedPolyline.Path decoded;
+        try {
+            decoded = EncodedPolyline.decode(polyline);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        Map<String, Integer> vertices = new HashMap<>();
+        for (int i = 0; i < stations.size(); i++) {
+            int vertex = stationVertices[i];
+            if (vertex < 0 || vertex >= decoded.size()) {
+                return;
+            }
+            vertices.put(key(stations.get(i)), vertex);
+        }
+        path = decoded;
+        vertexByStation = vertices;
+    }
+
+    private static String key(String stationName) {
+        return stationName == null ? "" : stationName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Coordinates along part of a shape
+     */
+    public static class Slice {
+        public final double[] latitudes;
+        public final double[] longitudes;
+        /** Whether the slice runs the same way the shape was drawn */
+        public final boolean forward;
+
+        Slice(double[] latitudes, double[] longitudes, boolean forward) {
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.forward = forward;
+        }
+    }
+}
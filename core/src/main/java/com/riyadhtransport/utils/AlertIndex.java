@@ -0,0 +1,87 @@
+package com.riyadhtransport.utils;
+
+import com.riyadhtransport.models.LineAlert;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Alerts from one fetch, split into general alerts and alerts per affected line, so
+ * screens asking for the alerts of their lines do a lookup instead of scanning every
+ * alert. Immutable; build once per fetch.
+ */
+public class AlertIndex {
+    private static final AlertIndex EMPTY = build(Collections.emptyList());
+
+    private final List<LineAlert> all;
+    private final List<LineAlert> general;
+    private final Map<String, List<LineAlert>> byLine;
+
+    private AlertIndex(List<LineAlert> all, List<LineAlert> general, Map<String, List<LineAlert>> byLine) {
+        this.all = all;
+        this.general = general;
+        this.byLine = byLine;
+    }
+
+    public static AlertIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Index a list of alerts. A null list gives an empty index.
+     */
+    public static AlertIndex build(List<LineAlert> alerts) {
+        List<LineAlert> source = alerts != null ? alerts : Collections.emptyList();
+        List<LineAlert> general = new ArrayList<>();
+        Map<String, List<LineAlert>> byLine = new HashMap<>();
+        for (LineAlert alert : source) {
+            if (alert.isGeneralAlert()) {
+                general.add(alert);
+                continue;
+            }
+            List<LineAlert> lineAlerts = byLine.get(alert.getAffectedLine());
+            if (lineAlerts == null) {
+                lineAlerts = new ArrayList<>();
+                byLine.put(alert.getAffectedLine(), lineAlerts);
+            }
+            lineAlerts.add(alert);
+        }
+        for (Map.Entry<String, List<LineAlert>> entry : byLine.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        return new AlertIndex(Collections.unmodifiableList(new ArrayList<>(source)),
+                Collections.unmodifiableList(general), byLine);
+    }
+
+    public List<LineAlert> getAll() {
+        return all;
+    }
+
+    public List<LineAlert> getGeneral() {
+        return general;
+    }
+
+    /**
+     * Alerts for one line, in fetch order
+     */
+    public List<LineAlert> forLine(String lineNumber) {
+        List<LineAlert> alerts = byLine.get(lineNumber);
+        return alerts != null ? alerts : Collections.emptyList();
+    }
+
+    /**
+     * Alerts for any of the given lines, each alert once
+     */
+    public List<LineAlert> forLines(Collection<String> lineNumbers) {
+        Set<LineAlert> alerts = new LinkedHashSet<>();
+        for (String lineNumber : lineNumbers) {
+            alerts.addAll(forLine(lineNumber));
+        }
+        return new ArrayList<>(alerts);
+    }
+}
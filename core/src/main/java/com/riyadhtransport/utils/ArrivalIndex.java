@@ -0,0 +1,264 @@
+package com.riyadhtransport.utils;
+
+import com.riyadhtransport.models.Arrival;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Arrivals from one fetch, grouped by canonical line id and normalized destination.
+ * Each group is sorted by minutes until departure, so the next departure the user can
+ * still catch after a travel offset is a binary search rather than a scan of every
+ * arrival. Build once per fetch and query as often as needed; the index is immutable.
+ * Building only groups the arrivals by line, resolving each spelling of a line once.
+ * A group is sorted and split by destination the first time it is queried, so building
+ * an index to query it once costs no more than scanning the list.
+ */
+public class ArrivalIndex {
+    /** Longest wait at a stop before a connection is considered missed */
+    public static final int MAX_WAIT_MINUTES = 45;
+
+    private static final Comparator<Arrival> BY_MINUTES =
+            (a, b) -> Integer.compare(a.getMinutesUntil(), b.getMinutesUntil());
+
+    private final LineBucket allLines;
+    private final Map<String, LineBucket> byLine;
+
+    private ArrivalIndex(LineBucket allLines, Map<String, LineBucket> byLine) {
+        this.allLines = allLines;
+        this.byLine = byLine;
+    }
+
+    /**
+     * Index a list of arrivals. A null list gives an empty index.
+     */
+    public static ArrivalIndex build(List<Arrival> arrivals) {
+        // Copied, since the groups are sorted later and the caller may reuse the list
+        List<Arrival> source = arrivals != null ? new ArrayList<>(arrivals) : Collections.emptyList();
+
+        // A station sees a few spellings of a few lines, so canonical ids are computed
+        // once per spelling rather than per arrival
+        Map<String, String> keys = new HashMap<>();
+        Map<String, List<Arrival>> grouped = new HashMap<>();
+        for (Arrival arrival : source) {
+            if (arrival.getLine() == null) {
+                continue;
+            }
+            String key = keys.get(arrival.getLine());
+            if (key == null) {
+                key = lineKey(arrival.getLine());
+                keys.put(arrival.getLine(), key);
+            }
+            List<Arrival> group = grouped.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                grouped.put(key, group);
+            }
+            group.add(arrival);
+        }
+
+        Map<String, LineBucket> byLine = new HashMap<>(grouped.size() * 2);
+        for (Map.Entry<String, List<Arrival>> entry : grouped.entrySet()) {
+            byLine.put(entry.getKey(), new LineBucket(entry.getValue()));
+        }
+        return new ArrivalIndex(new LineBucket(source), byLine);
+    }
+
+    public boolean isEmpty() {
+        return allLines.arrivals.isEmpty();
+    }
+
+    /**
+     * Find the next arrival the user can catch after {@code cumulativeTravelMinutes}.
+     * Prefers arrivals heading to {@code destination} (exact or substring match on the
+     * normalized name); if none is catchable, falls back to the next catchable arrival on
+     * the line in any direction. A null or empty line or destination matches everything.
+     * Returns null if nothing departs within {@link #MAX_WAIT_MINUTES} of the offset.
+     */
+    public Arrival findValidArrival(String line, String destination, int cumulativeTravelMinutes) {
+        LineBucket bucket = bucketFor(line);
+        if (bucket == null) {
+            return null;
+        }
+
+        if (destination != null && !destination.isEmpty()) {
+            String wanted = normalizeDestination(destination);
+            Arrival best = null;
+            // A station has a handful of directions, so checking each group is cheap
+            for (Map.Entry<String, Arrival[]> entry : bucket.byDestination().entrySet()) {
+                if (!destinationsMatch(entry.getKey(), wanted)) {
+                    continue;
+                }
+                Arrival candidate = firstCatchable(entry.getValue(), cumulativeTravelMinutes);
+                if (candidate != null
+                        && (best == null || candidate.getMinutesUntil() < best.getMinutesUntil())) {
+                    best = candidate;
+                }
+            }
+            if (best != null) {
+                return best;
+            }
+        }
+
+        // No destination given, or nothing catchable towards it: any direction on the line
+        return firstCatchable(bucket.sorted(), cumulativeTravelMinutes);
+    }
+
+    /**
+     * Up to {@code count} soonest departures (in minutes) that haven't left yet, across all lines
+     */
+    public List<Integer> upcomingMinutes(int count) {
+        List<Integer> minutes = new ArrayList<>(count);
+        Arrival[] sorted = allLines.sorted();
+        int start = lowerBound(sorted, 0);
+        for (int i = start; i < sorted.length && minutes.size() < count; i++) {
+            minutes.add(sorted[i].getMinutesUntil());
+        }
+        return minutes;
+    }
+
+    /**
+     * Arrivals on a line grouped by direction, keyed by the destination name as first
+     * reported, each sorted soonest first. A null or empty line groups every arrival.
+     */
+    public Map<String, List<Arrival>> directions(String line) {
+        LineBucket bucket = bucketFor(line);
+        if (bucket == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, List<Arrival>> directions = new LinkedHashMap<>();
+        for (Arrival[] group : bucket.byDestination().values()) {
+            directions.put(group[0].getDestination(), Collections.unmodifiableList(Arrays.asList(group)));
+        }
+        return directions;
+    }
+
+    /**
+     * All arrivals on a line, soonest first. A null or empty line returns every arrival.
+     */
+    public List<Arrival> arrivals(String line) {
+        LineBucket bucket = bucketFor(line);
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(bucket.sorted()));
+    }
+
+    private LineBucket bucketFor(String line) {
+        if (line == null || line.isEmpty()) {
+            return allLines;
+        }
+        return byLine.get(lineKey(line));
+    }
+
+    /**
+     * Earliest arrival departing at or after the offset, if the wait is reasonable
+     */
+    private static Arrival firstCatchable(Arrival[] sorted, int offsetMinutes) {
+        int index = lowerBound(sorted, offsetMinutes);
+        if (index == sorted.length) {
+            return null;
+        }
+        Arrival arrival = sorted[index];
+        return arrival.getMinutesUntil() - offsetMinutes <= MAX_WAIT_MINUTES ? arrival : null;
+    }
+
+    /**
+     * Index of the first arrival with minutesUntil >= minutes, or sorted.length if none
+     */
+    private static int lowerBound(Arrival[] sorted, int minutes) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].getMinutesUntil() < minutes) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean destinationsMatch(String arrivalDestination, String wanted) {
+        return arrivalDestination.equals(wanted)
+                || arrivalDestination.contains(wanted)
+                || wanted.contains(arrivalDestination);
+    }
+
+    private static String lineKey(String line) {
+        return LineRegistry.canonicalId(line).toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizeDestination(String destination) {
+        return destination.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static class LineBucket {
+        final List<Arrival> arrivals;
+        // Sorted and grouped on first use, since most buckets of a fetch are never
+        // queried. Racing threads build equal values, so publishing either one is fine.
+        private volatile Arrival[] sorted;
+        // Normalized destination -> arrivals towards it, in first-seen order
+        private volatile Map<String, Arrival[]> byDestination;
+
+        LineBucket(List<Arrival> arrivals) {
+            this.arrivals = arrivals;
+        }
+
+        Arrival[] sorted() {
+            Arrival[] result = sorted;
+            if (result == null) {
+                result = arrivals.toArray(new Arrival[0]);
+                // Stable sort keeps the API's order for departures in the same minute
+                Arrays.sort(result, BY_MINUTES);
+                sorted = result;
+            }
+            return result;
+        }
+
+        Map<String, Arrival[]> byDestination() {
+            Map<String, Arrival[]> groups = byDestination;
+            if (groups == null) {
+                groups = groupByDestination(sorted());
+                byDestination = groups;
+            }
+            return groups;
+        }
+
+        private static Map<String, Arrival[]> groupByDestination(Arrival[] sorted) {
+            Map<String, List<Arrival>> grouped = new LinkedHashMap<>();
+            // Normalized once per spelling rather than per arrival
+            Map<String, String> keys = new HashMap<>();
+            for (Arrival arrival : sorted) {
+                if (arrival.getDestination() == null) {
+                    continue;
+                }
+                String key = keys.get(arrival.getDestination());
+                if (key == null) {
+                    key = normalizeDestination(arrival.getDestination());
+                    keys.put(arrival.getDestination(), key);
+                }
+                List<Arrival> group = grouped.get(key);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    grouped.put(key, group);
+                }
+                group.add(arrival);
+            }
+
+            Map<String, Arrival[]> groups = new LinkedHashMap<>();
+            for (Map.Entry<String, List<Arrival>> entry : grouped.entrySet()) {
+                groups.put(entry.getKey(), entry.getValue().toArray(new Arrival[0]));
+            }
+            return groups;
+        }
+    }
+}
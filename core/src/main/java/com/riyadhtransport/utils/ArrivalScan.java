@@ -0,0 +1,97 @@
+package com.riyadhtransport.utils;
+
+import com.riyadhtransport.models.Arrival;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One pass over a fetch's arrivals, for callers that look them up once: the same
+ * answers as {@link ArrivalIndex}, without grouping or sorting anything. Build an
+ * index instead when the same arrivals are queried repeatedly.
+ */
+public class ArrivalScan {
+    /**
+     * Same as {@link ArrivalIndex#findValidArrival}: the soonest arrival on the line
+     * catchable after {@code cumulativeTravelMinutes}, towards {@code destination} if
+     * one is, otherwise in any direction. Null if nothing departs in time.
+     */
+    public static Arrival findValidArrival(List<Arrival> arrivals, String line,
+                                           String destination, int cumulativeTravelMinutes) {
+        if (arrivals == null) {
+            return null;
+        }
+        String lineId = line == null || line.isEmpty() ? null : LineRegistry.canonicalId(line);
+        String wanted = destination == null || destination.isEmpty()
+                ? null : destination.trim().toLowerCase(Locale.ROOT);
+
+        Arrival towardsDestination = null;
+        Arrival anyDirection = null;
+        for (Arrival arrival : arrivals) {
+            int minutes = arrival.getMinutesUntil();
+            if (minutes < cumulativeTravelMinutes
+                    || minutes - cumulativeTravelMinutes > ArrivalIndex.MAX_WAIT_MINUTES) {
+                continue;
+            }
+            if (lineId != null && (arrival.getLine() == null
+                    || !LineRegistry.canonicalId(arrival.getLine()).equalsIgnoreCase(lineId))) {
+                continue;
+            }
+            if (anyDirection == null || minutes < anyDirection.getMinutesUntil()) {
+                anyDirection = arrival;
+            }
+            if (wanted != null && arrival.getDestination() != null
+                    && (towardsDestination == null || minutes < towardsDestination.getMinutesUntil())
+                    && destinationsMatch(arrival.getDestination().trim(), wanted)) {
+                towardsDestination = arrival;
+            }
+        }
+        return towardsDestination != null ? towardsDestination : anyDirection;
+    }
+
+    /**
+     * Same as {@link ArrivalIndex#upcomingMinutes}: up to {@code count} soonest
+     * departures, in minutes, that haven't left yet, across all lines
+     */
+    public static List<Integer> upcomingMinutes(List<Arrival> arrivals, int count) {
+        // The soonest so far, ascending; count is small, so insertion is cheapest
+        int[] soonest = new int[Math.max(count, 0)];
+        int size = 0;
+        if (arrivals != null && count > 0) {
+            for (Arrival arrival : arrivals) {
+                int minutes = arrival.getMinutesUntil();
+                if (minutes < 0 || (size == count && minutes >= soonest[size - 1])) {
+                    continue;
+                }
+                int i = size < count ? size++ : size - 1;
+                while (i > 0 && soonest[i - 1] > minutes) {
+                    soonest[i] = soonest[i - 1];
+                    i--;
+                }
+                soonest[i] = minutes;
+            }
+        }
+        List<Integer> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(soonest[i]);
+        }
+        return result;
+    }
+
+    /**
+     * ArrivalIndex's match on normalized names, without lowercasing each arrival's
+     */
+    private static boolean destinationsMatch(String arrivalDestination, String wanted) {
+        return containsIgnoreCase(arrivalDestination, wanted)
+                || containsIgnoreCase(wanted, arrivalDestination);
+    }
+
+    private static boolean containsIgnoreCase(String text, String part) {
+        for (int i = 0; i + part.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
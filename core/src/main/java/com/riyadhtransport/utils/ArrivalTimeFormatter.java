@@ -0,0 +1,157 @@
+package com.riyadhtransport.utils;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe time formatting and parsing for arrival displays.
+ * Clock strings ("9:59 PM") are memoized per minute and per locale, so rebinding
+ * a list of arrivals does not allocate formatters or calendars.
+ */
+public class ArrivalTimeFormatter {
+    private static final String CLOCK_PATTERN = "h:mm a";
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+    // Minutes kept per locale; arrivals are never shown more than a few hours ahead
+    private static final int MEMO_SIZE = 256;
+
+    /** Returned by {@link #parseIsoUtcMillis(String)} when the input can't be parsed */
+    public static final long INVALID_TIME = Long.MIN_VALUE;
+
+    private static final ConcurrentHashMap<Locale, ClockMemo> memos = new ConcurrentHashMap<>();
+
+    /**
+     * Format the wall-clock time that is the given number of minutes from now,
+     * e.g. 29 minutes at 9:30 PM -> "9:59 PM"
+     */
+    public static String formatMinutesFromNow(int minutesFromNow) {
+        long epochMinute = System.currentTimeMillis() / MILLIS_PER_MINUTE + minutesFromNow;
+        return formatEpochMinute(epochMinute, Locale.getDefault());
+    }
+
+    /**
+     * Format a minute since the epoch as a wall-clock time in the given locale
+     */
+    public static String formatEpochMinute(long epochMinute, Locale locale) {
+        ClockMemo memo = memos.get(locale);
+        ZoneId zone = ZoneId.systemDefault();
+        if (memo == null || !memo.zone.equals(zone)) {
+            // Time zone changes are rare; start a fresh memo rather than mixing zones
+            memo = new ClockMemo(locale, zone);
+            memos.put(locale, memo);
+        }
+        return memo.format(epochMinute);
+    }
+
+    /**
+     * Parse an RPT timestamp such as "2025-01-31T18:05:00Z" to epoch millis.
+     * The fixed UTC layout is parsed by hand without allocating; anything else
+     * (fractional seconds, offsets) goes through java.time.
+     * Returns {@link #INVALID_TIME} instead of throwing.
+     */
+    public static long parseIsoUtcMillis(String text) {
+        if (text == null) {
+            return INVALID_TIME;
+        }
+
+        if (text.length() == 20 && text.charAt(19) == 'Z'
+                && text.charAt(4) == '-' && text.charAt(7) == '-' && text.charAt(10) == 'T'
+                && text.charAt(13) == ':' && text.charAt(16) == ':') {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 2);
+            int day = digits(text, 8, 2);
+            int hour = digits(text, 11, 2);
+            int minute = digits(text, 14, 2);
+            int second = digits(text, 17, 2);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= 31
+                    && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59
+                    && second >= 0 && second <= 60) {
+                long days = daysFromCivil(year, month, day);
+                return ((days * 24 + hour) * 60 + minute) * MILLIS_PER_MINUTE + second * 1000L;
+            }
+            return INVALID_TIME;
+        }
+
+        try {
+            return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            try {
+                return Instant.parse(text).toEpochMilli();
+            } catch (DateTimeParseException ignored) {
+                return INVALID_TIME;
+            }
+        }
+    }
+
+    /**
+     * Whole minutes from now until the given time, never negative
+     */
+    public static int minutesUntil(long epochMillis, long nowMillis) {
+        return (int) Math.max(0, (epochMillis - nowMillis) / MILLIS_PER_MINUTE);
+    }
+
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Days since 1970-01-01 for a proleptic Gregorian date (Howard Hinnant's algorithm)
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return (long) era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Per-locale ring of formatted minutes. Entries are immutable, so readers on any
+     * thread either see a complete entry or miss and format it again.
+     */
+    private static class ClockMemo {
+        private final DateTimeFormatter formatter;
+        private final ZoneId zone;
+        private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(MEMO_SIZE);
+
+        ClockMemo(Locale locale, ZoneId zone) {
+            this.formatter = DateTimeFormatter.ofPattern(CLOCK_PATTERN, locale).withZone(zone);
+            this.zone = zone;
+        }
+
+        String format(long epochMinute) {
+            int slot = (int) Math.floorMod(epochMinute, (long) MEMO_SIZE);
+            Entry entry = entries.get(slot);
+            if (entry != null && entry.epochMinute == epochMinute) {
+                return entry.text;
+            }
+            String text = formatter.format(Instant.ofEpochMilli(epochMinute * MILLIS_PER_MINUTE));
+            entries.set(slot, new Entry(epochMinute, text));
+            return text;
+        }
+    }
+
+    private static class Entry {
+        final long epochMinute;
+        final String text;
+
+        Entry(long epochMinute, String text) {
+            this.epochMinute = epochMinute;
+            this.text = text;
+        }
+    }
+}
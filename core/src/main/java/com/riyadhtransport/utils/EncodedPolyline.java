@@ -0,0 +1,90 @@
+package com.riyadhtransport.utils;
+
+/**
+ * Google encoded polyline format at 5 decimal places (about 1 m): each coordinate is
+ * stored as a zigzag varint delta from the previous one in printable ASCII, so a line
+ * shape takes a few bytes per point. Decodes into flat arrays rather than point objects.
+ */
+public class EncodedPolyline {
+    private static final double SCALE = 1e5;
+
+    public static String encode(double[] latitudes, double[] longitudes) {
+        StringBuilder out = new StringBuilder(latitudes.length * 6);
+        long prevLat = 0;
+        long prevLng = 0;
+        for (int i = 0; i < latitudes.length; i++) {
+            long lat = Math.round(latitudes[i] * SCALE);
+            long lng = Math.round(longitudes[i] * SCALE);
+            encodeValue(lat - prevLat, out);
+            encodeValue(lng - prevLng, out);
+            prevLat = lat;
+            prevLng = lng;
+        }
+        return out.toString();
+    }
+
+    /**
+     * Decode an encoded polyline. Throws IllegalArgumentException if it is truncated.
+     */
+    public static Path decode(String encoded) {
+        int length = encoded.length();
+        // At least one character per value, two values per point
+        double[] lats = new double[length / 2 + 1];
+        double[] lngs = new double[length / 2 + 1];
+        int count = 0;
+        int[] position = {0};
+        long lat = 0;
+        long lng = 0;
+        while (position[0] < length) {
+            lat += decodeValue(encoded, position);
+            lng += decodeValue(encoded, position);
+            lats[count] = lat / SCALE;
+            lngs[count] = lng / SCALE;
+            count++;
+        }
+        return new Path(lats, lngs, count);
+    }
+
+    private static void encodeValue(long value, StringBuilder out) {
+        long zigzag = value < 0 ? ~(value << 1) : value << 1;
+        while (zigzag >= 0x20) {
+            out.append((char) ((0x20 | (zigzag & 0x1f)) + 63));
+            zigzag >>= 5;
+        }
+        out.append((char) (zigzag + 63));
+    }
+
+    private static long decodeValue(String encoded, int[] position) {
+        long result = 0;
+        int shift = 0;
+        int chunk;
+        do {
+            if (position[0] >= encoded.length()) {
+                throw new IllegalArgumentException("Truncated polyline");
+            }
+            chunk = encoded.charAt(position[0]++) - 63;
+            result |= (long) (chunk & 0x1f) << shift;
+            shift += 5;
+        } while (chunk >= 0x20);
+        return (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+    }
+
+    /**
+     * Decoded coordinates; the arrays may be longer than {@link #size()}
+     */
+    public static class Path {
+        public final double[] latitudes;
+        public final double[] longitudes;
+        private final int size;
+
+        Path(double[] latitudes, double[] longitudes, int size) {
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+}
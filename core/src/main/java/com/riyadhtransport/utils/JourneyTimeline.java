@@ -0,0 +1,125 @@
+package com.riyadhtransport.utils;
+
+import com.riyadhtransport.models.Arrival;
+import com.riyadhtransport.models.RouteSegment;
+import java.util.List;
+
+/**
+ * Journey time computation with live arrivals, separated from fetching.
+ * Walking and riding add to the traveller's cumulative time; each transit leg then
+ * waits for the next departure that is still catchable at that point of the journey.
+ */
+public class JourneyTimeline {
+    /** Departures this far out are shown as scheduled rather than live */
+    public static final int LIVE_THRESHOLD_MINUTES = 59;
+    private static final int UPCOMING_COUNT = 3;
+
+    /**
+     * Compute the total journey time in minutes, applying live arrival data to each
+     * transit segment in order. {@code arrivalsPerSegment} is aligned with
+     * {@code segments}; a null entry means no live data for that segment. Each
+     * segment's arrivals are looked up once, so they are scanned, not indexed.
+     */
+    public static int compute(List<RouteSegment> segments, List<List<Arrival>> arrivalsPerSegment) {
+        int cumulativeTravelMinutes = 0;
+        int totalMinutes = 0;
+
+        for (int i = 0; i < segments.size(); i++) {
+            RouteSegment segment = segments.get(i);
+            int rideMinutes = rideMinutes(segment);
+
+            Integer waitMinutes = null;
+            List<Arrival> arrivals = i < arrivalsPerSegment.size() ? arrivalsPerSegment.get(i) : null;
+            if ((segment.isBus() || segment.isMetro()) && arrivals != null) {
+                waitMinutes = applyLiveArrival(segment, arrivals, destinationStation(segment),
+                        cumulativeTravelMinutes);
+            }
+
+            if (waitMinutes == null) {
+                applyStaticTime(segment);
+                totalMinutes += rideMinutes;
+            } else {
+                totalMinutes += waitMinutes + rideMinutes;
+            }
+            // The traveller boards after waiting, so only ride time moves the clock
+            cumulativeTravelMinutes += rideMinutes;
+        }
+        return totalMinutes;
+    }
+
+    /**
+     * Segment ride time in whole minutes, rounded up
+     */
+    public static int rideMinutes(RouteSegment segment) {
+        return (int) Math.ceil(segment.getDuration() / 60.0);
+    }
+
+    /**
+     * Apply the next catchable departure to a transit segment: wait time, next and
+     * upcoming arrivals, refined terminus and status. Returns the wait in minutes, or
+     * null if no departure is catchable and the segment should use static time.
+     */
+    public static Integer applyLiveArrival(RouteSegment segment, List<Arrival> arrivals,
+                                           String destinationStation, int cumulativeTravelMinutes) {
+        Arrival validArrival = ArrivalScan.findValidArrival(arrivals,
+                segment.getLine(), destinationStation, cumulativeTravelMinutes);
+        if (validArrival == null) {
+            return null;
+        }
+
+        int waitMinutes = validArrival.getMinutesUntil() - cumulativeTravelMinutes;
+        segment.setWaitMinutes(waitMinutes);
+        segment.setNextArrivalMinutes(validArrival.getMinutesUntil());
+        segment.setRefinedTerminus(validArrival.getDestination());
+        // Absolute times for display, not relative to the cumulative offset
+        segment.setUpcomingArrivals(ArrivalScan.upcomingMinutes(arrivals, UPCOMING_COUNT));
+        segment.setArrivalStatus(validArrival.getMinutesUntil() >= LIVE_THRESHOLD_MINUTES
+                ? "normal" : "live");
+        return waitMinutes;
+    }
+
+    /**
+     * Mark a segment as using its static duration with no live data
+     */
+    public static void applyStaticTime(RouteSegment segment) {
+        segment.setArrivalStatus("hidden");
+        segment.setWaitMinutes(null);
+    }
+
+    /**
+     * Boarding station of a segment, or null if it has none
+     */
+    public static String boardingStation(RouteSegment segment) {
+        List<String> stations = segment.getStations();
+        return stations != null && !stations.isEmpty() ? cleanStationName(stations.get(0)) : null;
+    }
+
+    /**
+     * Alighting station of a segment, used to pick the direction, or null if unknown
+     */
+    public static String destinationStation(RouteSegment segment) {
+        List<String> stations = segment.getStations();
+        return stations != null && stations.size() > 1
+                ? cleanStationName(stations.get(stations.size() - 1)) : null;
+    }
+
+    /**
+     * Clean station name by removing type suffixes like "(Bus)" or "(Metro)"
+     */
+    public static String cleanStationName(String stationName) {
+        if (stationName == null) {
+            return null;
+        }
+
+        // Remove common suffixes
+        stationName = stationName.trim();
+        if (stationName.endsWith(" (Bus)")) {
+            return stationName.substring(0, stationName.length() - 6).trim();
+        }
+        if (stationName.endsWith(" (Metro)")) {
+            return stationName.substring(0, stationName.length() - 8).trim();
+        }
+
+        return stationName;
+    }
+}
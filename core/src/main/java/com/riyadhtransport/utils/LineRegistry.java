@@ -0,0 +1,104 @@
+package com.riyadhtransport.utils;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical metro line lookup table.
+ * Every alias the backend or RPT may use for a metro line ("1", "Blue", "Blue Line",
+ * "Line Blue Line", "المسار الأزرق") maps to one interned line id, so matching and
+ * coloring are a single hash lookup instead of a chain of string comparisons.
+ */
+public class LineRegistry {
+    /** Number of Riyadh metro lines; ids run from "1" to "6" */
+    public static final int METRO_LINE_COUNT = 6;
+
+    private static final String[] IDS = {"1", "2", "3", "4", "5", "6"};
+    private static final String[] ENGLISH = {"Blue", "Red", "Orange", "Yellow", "Green", "Purple"};
+    private static final String[] ARABIC = {
+        "المسار الأزرق", "المسار الأحمر", "المسار البرتقالي",
+        "المسار الأصفر", "المسار الأخضر", "المسار البنفسجي"
+    };
+
+    // Raw strings seen per process are a small set (six metro lines plus bus numbers),
+    // but stop memoizing past this size in case a caller feeds arbitrary text
+    private static final int MAX_MEMO_SIZE = 512;
+
+    // Lowercased alias -> metro line index
+    private static final Map<String, Integer> aliases = new HashMap<>();
+    // Raw input -> canonical id, so repeat lookups skip trimming and lowercasing
+    private static final ConcurrentHashMap<String, String> memo = new ConcurrentHashMap<>();
+
+    static {
+        for (int i = 0; i < METRO_LINE_COUNT; i++) {
+            aliases.put(IDS[i], i);
+            aliases.put(ENGLISH[i].toLowerCase(Locale.ROOT), i);
+            aliases.put((ENGLISH[i] + " Line").toLowerCase(Locale.ROOT), i);
+            aliases.put(ARABIC[i], i);
+        }
+    }
+
+    /**
+     * Index (0-5) of the metro line the identifier refers to, or -1 if it is not a metro line
+     */
+    public static int metroIndex(String line) {
+        if (line == null) {
+            return -1;
+        }
+        String id = canonicalId(line);
+        if (id.length() == 1) {
+            int index = id.charAt(0) - '1';
+            if (index >= 0 && index < METRO_LINE_COUNT) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Canonical id for a line identifier: "1".."6" for metro lines, otherwise the
+     * trimmed input (e.g. a bus number) with its case preserved
+     */
+    public static String canonicalId(String line) {
+        if (line == null) {
+            return "";
+        }
+
+        String cached = memo.get(line);
+        if (cached != null) {
+            return cached;
+        }
+
+        String cleanLine = clean(line);
+        Integer index = aliases.get(cleanLine.toLowerCase(Locale.ROOT));
+        String id = index != null ? IDS[index] : cleanLine;
+        if (memo.size() < MAX_MEMO_SIZE) {
+            memo.put(line, id);
+        }
+        return id;
+    }
+
+    /**
+     * Check if two line identifiers refer to the same line,
+     * e.g. "Yellow Line" matches "4" and "Line Blue Line" matches "1"
+     */
+    public static boolean sameLine(String line1, String line2) {
+        if (line1 == null || line2 == null) {
+            return false;
+        }
+        return canonicalId(line1).equalsIgnoreCase(canonicalId(line2));
+    }
+
+    /**
+     * Strip whitespace and the "Line " prefix the backend sometimes adds ("Line Blue Line")
+     */
+    private static String clean(String line) {
+        String cleanLine = line.trim();
+        if (cleanLine.startsWith("Line ")) {
+            cleanLine = cleanLine.substring(5).trim();
+        }
+        return cleanLine;
+    }
+}
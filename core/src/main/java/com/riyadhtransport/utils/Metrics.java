@@ -0,0 +1,239 @@
+package com.riyadhtransport.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process performance metrics: counters, latency histograms and gauges by name.
+ * Recording is lock-free and allocation-free, so instrumentation can stay on in release
+ * builds. Hot paths should look a metric up once and keep it in a static field.
+ * Names are dotted and carry their unit, e.g. "arrivals.total_ms".
+ */
+public class Metrics {
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private static volatile long resetAtMs = System.currentTimeMillis();
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Register a value read when a snapshot is taken. Re-registering a name replaces it.
+     */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Zero every counter and histogram; gauges stay registered
+     */
+    public static void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        resetAtMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Current values, sorted by name
+     */
+    public static Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.capturedAtMs = System.currentTimeMillis();
+        snapshot.sinceMs = resetAtMs;
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            snapshot.counters.put(entry.getKey(), entry.getValue().get());
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            try {
+                snapshot.gauges.put(entry.getKey(), entry.getValue().getAsLong());
+            } catch (RuntimeException e) {
+                // A gauge reading released state must not break the snapshot
+            }
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            snapshot.histograms.put(entry.getKey(), entry.getValue().summary());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Pretty-printed JSON snapshot for sharing from a device
+     */
+    public static String exportJson() {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        return gson.toJson(snapshot());
+    }
+
+    /**
+     * Monotonic counter backed by a {@link LongAdder}, so concurrent increments don't contend
+     */
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        void reset() {
+            value.reset();
+        }
+    }
+
+    /**
+     * Log-linear histogram in the style of HdrHistogram: values below 16 have their own
+     * bucket, and each power of two above is split into 16 buckets, so any recorded value
+     * is reported within 6.25%. Values are unitless; negative values count as 0 and
+     * values of 2^40 or more as the largest bucket.
+     */
+    public static class Histogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int MAX_EXPONENT = 40;
+        private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.incrementAndGet(bucketIndex(value));
+            count.increment();
+            sum.add(value);
+            long currentMax = max.get();
+            while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+                currentMax = max.get();
+            }
+        }
+
+        /**
+         * Record the milliseconds elapsed since a {@link System#nanoTime()} reading
+         */
+        public void recordSinceNanos(long startNanos) {
+            record((System.nanoTime() - startNanos) / 1_000_000);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * Value at the given percentile (0-100), as the upper bound of its bucket
+         * capped at the largest recorded value; 0 when empty
+         */
+        public long percentile(double percentile) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        HistogramSummary summary() {
+            HistogramSummary summary = new HistogramSummary();
+            summary.count = count();
+            summary.mean = summary.count > 0 ? sum.sum() / (double) summary.count : 0;
+            summary.p50 = percentile(50);
+            summary.p90 = percentile(90);
+            summary.p95 = percentile(95);
+            summary.p99 = percentile(99);
+            summary.max = max();
+            return summary;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            sum.reset();
+            max.set(0);
+        }
+
+        static int bucketIndex(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            if (exponent >= MAX_EXPONENT) {
+                return BUCKETS - 1;
+            }
+            int shift = exponent - SUB_BUCKET_BITS;
+            int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+            return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+        }
+
+        static long bucketUpperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+            int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        }
+    }
+
+    public static class HistogramSummary {
+        public long count;
+        public double mean;
+        public long p50;
+        public long p90;
+        public long p95;
+        public long p99;
+        public long max;
+    }
+
+    public static class Snapshot {
+        public long capturedAtMs;
+        // Start of the recording window: process start or the last reset
+        public long sinceMs;
+        public final Map<String, Long> counters = new TreeMap<>();
+        public final Map<String, Long> gauges = new TreeMap<>();
+        public final Map<String, HistogramSummary> histograms = new TreeMap<>();
+    }
+}
@@ -0,0 +1,92 @@
+package com.riyadhtransport.utils;
+
+import java.util.Arrays;
+
+/**
+ * Douglas-Peucker simplification on projected coordinates.
+ * Points are given in {@link WebMercator} units, so a tolerance in screen pixels at a
+ * zoom level converts with {@link #toleranceForZoom}. Uses an explicit stack, so long
+ * shapes can't overflow the call stack.
+ */
+public class PolylineSimplifier {
+    /**
+     * Indexes of the points to keep, ascending; the first and last point are always kept
+     */
+    public static int[] simplify(double[] xs, double[] ys, double tolerance) {
+        int n = xs.length;
+        if (n <= 2) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        double toleranceSquared = tolerance * tolerance;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            int farthest = -1;
+            double farthestDistance = toleranceSquared;
+            for (int i = first + 1; i < last; i++) {
+                double distance = segmentDistanceSquared(xs[i], ys[i], xs[first], ys[first], xs[last], ys[last]);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest < 0) {
+                continue;
+            }
+            keep[farthest] = true;
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[top++] = first;
+            stack[top++] = farthest;
+            stack[top++] = farthest;
+            stack[top++] = last;
+        }
+
+        int count = 0;
+        for (boolean k : keep) {
+            if (k) {
+                count++;
+            }
+        }
+        int[] kept = new int[count];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                kept[j++] = i;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * A tolerance of {@code pixels} screen pixels at {@code zoom}, in normalized units
+     */
+    public static double toleranceForZoom(double pixels, int zoom) {
+        return pixels / WebMercator.worldPixels(zoom);
+    }
+
+    private static double segmentDistanceSquared(double px, double py, double ax, double ay,
+                                                 double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared > 0 ? ((px - ax) * dx + (py - ay) * dy) / lengthSquared : 0;
+        t = Math.max(0, Math.min(1, t));
+        double x = ax + t * dx - px;
+        double y = ay + t * dy - py;
+        return x * x + y * y;
+    }
+}
@@ -0,0 +1,140 @@
+package com.riyadhtransport.utils;
+
+import com.riyadhtransport.models.Station;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Substring search over station display names.
+ * Names are cleaned and lowercased once when the index is built, and a trigram index
+ * narrows longer queries to a few candidate stations before the substring check, so a
+ * keystroke no longer runs regexes and lowercasing over every station.
+ * Results keep the order of the original station list.
+ */
+public class StationSearchIndex {
+    private static final int GRAM = 3;
+
+    private final Station[] stations;
+    private final String[] names;
+    // Trigram -> ascending indexes of stations whose name contains it
+    private final Map<Long, int[]> postings;
+
+    private StationSearchIndex(Station[] stations, String[] names, Map<Long, int[]> postings) {
+        this.stations = stations;
+        this.names = names;
+        this.postings = postings;
+    }
+
+    /**
+     * Index a list of stations. A null list gives an empty index.
+     */
+    public static StationSearchIndex build(List<Station> stations) {
+        Station[] all = stations != null ? stations.toArray(new Station[0]) : new Station[0];
+        String[] names = new String[all.length];
+        Map<Long, IntList> grams = new HashMap<>();
+
+        for (int i = 0; i < all.length; i++) {
+            String displayName = all[i].getDisplayName();
+            names[i] = displayName != null ? normalize(displayName) : "";
+            String name = names[i];
+            for (int start = 0; start + GRAM <= name.length(); start++) {
+                Long key = gramKey(name, start);
+                IntList list = grams.get(key);
+                if (list == null) {
+                    list = new IntList();
+                    grams.put(key, list);
+                }
+                list.addOnce(i);
+            }
+        }
+
+        Map<Long, int[]> postings = new HashMap<>(grams.size() * 2);
+        for (Map.Entry<Long, IntList> entry : grams.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return new StationSearchIndex(all, names, postings);
+    }
+
+    public int size() {
+        return stations.length;
+    }
+
+    /**
+     * Stations whose display name contains the query, ignoring case
+     */
+    public List<Station> search(String query) {
+        if (query == null || query.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        String needle = normalize(query);
+        List<Station> results = new ArrayList<>();
+        if (needle.length() < GRAM) {
+            // Too short for a trigram; short names make a scan cheap anyway
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].contains(needle)) {
+                    results.add(stations[i]);
+                }
+            }
+            return results;
+        }
+
+        // Every match contains all of the query's trigrams, so the rarest one
+        // gives the smallest candidate list to verify
+        int[] candidates = null;
+        for (int start = 0; start + GRAM <= needle.length(); start++) {
+            int[] list = postings.get(gramKey(needle, start));
+            if (list == null) {
+                return results;
+            }
+            if (candidates == null || list.length < candidates.length) {
+                candidates = list;
+            }
+        }
+
+        for (int i : candidates) {
+            if (names[i].contains(needle)) {
+                results.add(stations[i]);
+            }
+        }
+        return results;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static Long gramKey(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | text.charAt(start + 2);
+    }
+
+    /**
+     * Growable int array that skips consecutive duplicates, since a name can
+     * contain the same trigram more than once
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void addOnce(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
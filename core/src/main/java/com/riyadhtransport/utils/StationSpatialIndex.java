@@ -0,0 +1,233 @@
+package com.riyadhtransport.utils;
+
+import com.riyadhtransport.models.Station;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stations bucketed into a Web Mercator grid of {@link #CELL_PX}-pixel cells, with the
+ * stations in each cell merged into one cluster, precomputed for every zoom from
+ * {@link #MIN_ZOOM} to {@link #MAX_CLUSTER_ZOOM}. Above that every station is its own
+ * cluster. A viewport query only visits the cells it covers, so drawing cost follows
+ * what is on screen rather than the total number of stops.
+ */
+public class StationSpatialIndex {
+    /** Below this zoom the index returns nothing; the city is a few pixels wide */
+    public static final int MIN_ZOOM = 9;
+    /** Highest zoom with merged clusters; above it stations are returned one by one */
+    public static final int MAX_CLUSTER_ZOOM = 15;
+    /** Cluster grid cell size in screen pixels */
+    public static final int CELL_PX = 64;
+
+    // One grid per zoom from MIN_ZOOM to MAX_CLUSTER_ZOOM + 1; the last holds single stations
+    private final List<Map<Long, List<Cluster>>> levels;
+    private final int stationCount;
+
+    private StationSpatialIndex(List<Map<Long, List<Cluster>>> levels, int stationCount) {
+        this.levels = levels;
+        this.stationCount = stationCount;
+    }
+
+    /**
+     * Index a list of stations. A null list gives an empty index.
+     */
+    public static StationSpatialIndex build(List<Station> stations) {
+        List<Station> all = stations != null ? stations : new ArrayList<>();
+        int n = all.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = WebMercator.x(all.get(i).getLongitude());
+            ys[i] = WebMercator.y(all.get(i).getLatitude());
+        }
+
+        List<Map<Long, List<Cluster>>> levels = new ArrayList<>();
+        for (int zoom = MIN_ZOOM; zoom <= MAX_CLUSTER_ZOOM + 1; zoom++) {
+            boolean merge = zoom <= MAX_CLUSTER_ZOOM;
+            double cellsPerWorld = WebMercator.worldPixels(zoom) / CELL_PX;
+            Map<Long, ClusterBuilder> cells = new HashMap<>();
+            Map<Long, List<Cluster>> grid = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                long key = cellKey((int) (xs[i] * cellsPerWorld), (int) (ys[i] * cellsPerWorld));
+                if (merge) {
+                    ClusterBuilder builder = cells.get(key);
+                    if (builder == null) {
+                        builder = new ClusterBuilder();
+                        cells.put(key, builder);
+                    }
+                    builder.add(all.get(i), xs[i], ys[i]);
+                } else {
+                    List<Cluster> cell = grid.get(key);
+                    if (cell == null) {
+                        cell = new ArrayList<>(1);
+                        grid.put(key, cell);
+                    }
+                    cell.add(new Cluster(all.get(i), 1, xs[i], ys[i], all.get(i).isMetro()));
+                }
+            }
+            for (Map.Entry<Long, ClusterBuilder> entry : cells.entrySet()) {
+                List<Cluster> cell = new ArrayList<>(1);
+                cell.add(entry.getValue().build());
+                grid.put(entry.getKey(), cell);
+            }
+            levels.add(grid);
+        }
+        return new StationSpatialIndex(levels, n);
+    }
+
+    public int size() {
+        return stationCount;
+    }
+
+    /**
+     * Add the clusters in cells overlapping the bounds at {@code zoom} to {@code out}.
+     * Clusters near the edges may lie just outside the bounds, so markers straddling the
+     * edge of the screen are still drawn.
+     */
+    public void query(double south, double west, double north, double east, double zoom,
+                      List<Cluster> out) {
+        int level = levelFor(zoom);
+        if (level < 0 || stationCount == 0) {
+            return;
+        }
+        Map<Long, List<Cluster>> grid = levels.get(level);
+        double cellsPerWorld = WebMercator.worldPixels(MIN_ZOOM + level) / CELL_PX;
+        int minX = (int) (WebMercator.x(west) * cellsPerWorld);
+        int maxX = (int) (WebMercator.x(east) * cellsPerWorld);
+        int minY = (int) (WebMercator.y(north) * cellsPerWorld);
+        int maxY = (int) (WebMercator.y(south) * cellsPerWorld);
+
+        long viewportCells = (long) (maxX - minX + 1) * (maxY - minY + 1);
+        if (viewportCells > grid.size()) {
+            // Zoomed out over a sparse grid: cheaper to check each occupied cell
+            for (Map.Entry<Long, List<Cluster>> entry : grid.entrySet()) {
+                int x = (int) (entry.getKey() >>> 32);
+                int y = (int) (long) entry.getKey();
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    out.addAll(entry.getValue());
+                }
+            }
+            return;
+        }
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                List<Cluster> cell = grid.get(cellKey(x, y));
+                if (cell != null) {
+                    out.addAll(cell);
+                }
+            }
+        }
+    }
+
+    public List<Cluster> query(double south, double west, double north, double east, double zoom) {
+        List<Cluster> out = new ArrayList<>();
+        query(south, west, north, east, zoom, out);
+        return out;
+    }
+
+    /**
+     * The cluster drawn closest to a point at {@code zoom}, if it is within
+     * {@code radiusPx} screen pixels; otherwise null
+     */
+    public Cluster hitTest(double latitude, double longitude, double zoom, double radiusPx) {
+        int level = levelFor(zoom);
+        if (level < 0 || stationCount == 0) {
+            return null;
+        }
+        Map<Long, List<Cluster>> grid = levels.get(level);
+        double cellsPerWorld = WebMercator.worldPixels(MIN_ZOOM + level) / CELL_PX;
+        // Distances are measured at the displayed zoom, not the grid's whole zoom
+        double pixelsPerWorld = WebMercator.worldPixels(zoom);
+        double x = WebMercator.x(longitude);
+        double y = WebMercator.y(latitude);
+        int cellX = (int) (x * cellsPerWorld);
+        int cellY = (int) (y * cellsPerWorld);
+        int reach = (int) Math.ceil(radiusPx / (pixelsPerWorld / cellsPerWorld));
+
+        Cluster best = null;
+        double bestDistance = radiusPx * radiusPx;
+        for (int dy = -reach; dy <= reach; dy++) {
+            for (int dx = -reach; dx <= reach; dx++) {
+                List<Cluster> cell = grid.get(cellKey(cellX + dx, cellY + dy));
+                if (cell == null) {
+                    continue;
+                }
+                for (Cluster cluster : cell) {
+                    double px = (cluster.mercatorX - x) * pixelsPerWorld;
+                    double py = (cluster.mercatorY - y) * pixelsPerWorld;
+                    double distance = px * px + py * py;
+                    if (distance <= bestDistance) {
+                        best = cluster;
+                        bestDistance = distance;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int levelFor(double zoom) {
+        int whole = (int) Math.floor(zoom);
+        if (whole < MIN_ZOOM) {
+            return -1;
+        }
+        return Math.min(whole, MAX_CLUSTER_ZOOM + 1) - MIN_ZOOM;
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * One marker: a single station, or several merged at a low zoom
+     */
+    public static class Cluster {
+        /** The station when {@link #count} is 1, otherwise null */
+        public final Station station;
+        public final int count;
+        public final double latitude;
+        public final double longitude;
+        /** Whether any station in the cluster is a metro station */
+        public final boolean hasMetro;
+        final double mercatorX;
+        final double mercatorY;
+
+        Cluster(Station station, int count, double mercatorX, double mercatorY, boolean hasMetro) {
+            this.station = station;
+            this.count = count;
+            this.mercatorX = mercatorX;
+            this.mercatorY = mercatorY;
+            this.latitude = WebMercator.latitude(mercatorY);
+            this.longitude = WebMercator.longitude(mercatorX);
+            this.hasMetro = hasMetro;
+        }
+
+        public boolean isSingle() {
+            return count == 1;
+        }
+    }
+
+    private static class ClusterBuilder {
+        private Station first;
+        private int count;
+        private double sumX;
+        private double sumY;
+        private boolean hasMetro;
+
+        void add(Station station, double x, double y) {
+            if (first == null) {
+                first = station;
+            }
+            count++;
+            sumX += x;
+            sumY += y;
+            hasMetro |= station.isMetro();
+        }
+
+        Cluster build() {
+            return new Cluster(count == 1 ? first : null, count, sumX / count, sumY / count, hasMetro);
+        }
+    }
+}
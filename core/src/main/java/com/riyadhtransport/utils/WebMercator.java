@@ -0,0 +1,35 @@
+package com.riyadhtransport.utils;
+
+/**
+ * Web Mercator projection as used by the map tiles, normalized to 0..1 from the
+ * west and north edges of the world
+ */
+public class WebMercator {
+    public static final int TILE_PX = 256;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    public static double x(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    public static double y(double latitude) {
+        double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+        double sin = Math.sin(Math.toRadians(clamped));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    public static double longitude(double x) {
+        return x * 360 - 180;
+    }
+
+    public static double latitude(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    /**
+     * Width of the world in screen pixels at a zoom level
+     */
+    public static double worldPixels(double zoom) {
+        return TILE_PX * Math.pow(2, zoom);
+    }
+}
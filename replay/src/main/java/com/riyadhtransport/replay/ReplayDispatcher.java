@@ -0,0 +1,173 @@
+package com.riyadhtransport.replay;
+
+import com.riyadhtransport.api.CborWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+/**
+ * Serves a recorded JSON body per request path, shaped by the current {@link ReplayProfile}.
+ * Query strings and request bodies are ignored, so every call to a path gets the same
+ * recording. Random choices come from a seeded generator so runs are repeatable.
+ * With {@link #setCborEnabled} on, requests that accept {@code application/cbor} get
+ * the recording transcoded to CBOR, as a backend supporting it would answer.
+ */
+public class ReplayDispatcher extends Dispatcher {
+    // Throttled bodies are released in slices this often
+    private static final long THROTTLE_PERIOD_MS = 50;
+
+    private final Map<String, byte[]> recordings = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> cborRecordings = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestsByPath = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> bytesByPath = new ConcurrentHashMap<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final Random random;
+    private volatile ReplayProfile profile;
+    private volatile boolean cborEnabled;
+
+    public ReplayDispatcher(ReplayProfile profile, long seed) {
+        this.profile = profile;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Answer {@code path} with a classpath resource
+     */
+    public void record(String path, String resource) {
+        try (InputStream in = ReplayDispatcher.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Missing fixture: " + resource);
+            }
+            byte[] json = in.readAllBytes();
+            recordings.put(path, json);
+            cborRecordings.put(path, CborWriter.fromJson(new String(json, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void setProfile(ReplayProfile profile) {
+        this.profile = profile;
+    }
+
+    public ReplayProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Answer CBOR to requests that accept it; otherwise every response is JSON
+     */
+    public void setCborEnabled(boolean cborEnabled) {
+        this.cborEnabled = cborEnabled;
+    }
+
+    /**
+     * Requests served since the last {@link #resetCounts()}
+     */
+    public int requestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Requests per path since the last {@link #resetCounts()}, sorted by path
+     */
+    public Map<String, Integer> requestsByPath() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Map.Entry<String, AtomicInteger> entry : requestsByPath.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    /**
+     * Response body bytes per path since the last {@link #resetCounts()}, sorted by path
+     */
+    public Map<String, Long> bytesByPath() {
+        Map<String, Long> bytes = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : bytesByPath.entrySet()) {
+            bytes.put(entry.getKey(), entry.getValue().get());
+        }
+        return bytes;
+    }
+
+    public void resetCounts() {
+        requestCount.set(0);
+        requestsByPath.clear();
+        bytesByPath.clear();
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        HttpUrl url = request.getRequestUrl();
+        String path = url != null ? url.encodedPath() : request.getPath();
+        requestCount.incrementAndGet();
+        requestsByPath.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+
+        ReplayProfile current = profile;
+        MockResponse response = new MockResponse()
+                .setHeadersDelay(delayMs(current), TimeUnit.MILLISECONDS);
+
+        double roll;
+        synchronized (random) {
+            roll = random.nextDouble();
+        }
+        if (roll < current.getDropRate()) {
+            return response.setSocketPolicy(SocketPolicy.DISCONNECT_AT_START);
+        }
+        if (roll < current.getDropRate() + current.getErrorRate()) {
+            return json(response.setResponseCode(503), "{\"error\":\"Service unavailable\"}".getBytes());
+        }
+
+        byte[] body = recordings.get(path);
+        if (body == null) {
+            return json(response.setResponseCode(404), ("{\"error\":\"No recording for " + path + "\"}").getBytes());
+        }
+        String contentType = "application/json; charset=utf-8";
+        String accept = request.getHeader("Accept");
+        if (cborEnabled && accept != null && accept.contains("application/cbor")) {
+            body = cborRecordings.get(path);
+            contentType = "application/cbor";
+        }
+        bytesByPath.computeIfAbsent(path, p -> new AtomicLong()).addAndGet(body.length);
+        long bandwidth = current.getBandwidthBytesPerSecond();
+        if (bandwidth > 0) {
+            long bytesPerPeriod = Math.max(1, bandwidth * THROTTLE_PERIOD_MS / 1000);
+            response.throttleBody(bytesPerPeriod, THROTTLE_PERIOD_MS, TimeUnit.MILLISECONDS);
+        }
+        return response.setResponseCode(200)
+                .setHeader("Content-Type", contentType)
+                .setBody(new Buffer().write(body));
+    }
+
+    private long delayMs(ReplayProfile current) {
+        long jitter = current.getJitterMs();
+        if (jitter <= 0) {
+            return current.getLatencyMs();
+        }
+        long offset;
+        synchronized (random) {
+            offset = (long) ((random.nextDouble() * 2 - 1) * jitter);
+        }
+        return Math.max(0, current.getLatencyMs() + offset);
+    }
+
+    private static MockResponse json(MockResponse response, byte[] body) {
+        return response
+                .setHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody(new Buffer().write(body));
+    }
+}
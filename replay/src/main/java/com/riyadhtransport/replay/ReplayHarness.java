@@ -0,0 +1,184 @@
+package com.riyadhtransport.replay;
+
+import com.riyadhtransport.api.NetworkQualityEstimator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs each {@link Scenario} against the replay server and reports p50/p95/p99
+ * time-to-first-data, total time and requests per run, plus requests and response
+ * bytes per path.
+ *
+ * <pre>
+ * --profile NAME       local, wifi, 4g (default), 3g or flaky
+ * --iterations N       measured runs per scenario (default 30)
+ * --warmup N           unmeasured runs per scenario (default 5)
+ * --scenario NAME      run only this scenario
+ * --latency MS --jitter MS --error-rate R --drop-rate R --bandwidth BYTES_PER_S
+ *                      override the profile
+ * --cold               drop pooled connections before every run
+ * --format F           json (default) or cbor: what the backend answers when
+ *                      a request accepts CBOR
+ * --serve PORT         only serve the recordings until interrupted
+ * </pre>
+ */
+public class ReplayHarness {
+
+    public static void main(String[] args) throws Exception {
+        ReplayProfile profile = ReplayProfile.named("4g");
+        int iterations = 30;
+        int warmup = 5;
+        String only = null;
+        boolean cold = false;
+        boolean cbor = false;
+        int servePort = -1;
+
+        // Profile first so individual overrides apply on top of it
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("--profile".equals(args[i])) {
+                profile = ReplayProfile.named(args[i + 1]);
+            }
+        }
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--profile": i++; break;
+                case "--iterations": iterations = Integer.parseInt(value); i++; break;
+                case "--warmup": warmup = Integer.parseInt(value); i++; break;
+                case "--scenario": only = value; i++; break;
+                case "--latency": profile.setLatencyMs(Long.parseLong(value)); i++; break;
+                case "--jitter": profile.setJitterMs(Long.parseLong(value)); i++; break;
+                case "--error-rate": profile.setErrorRate(Double.parseDouble(value)); i++; break;
+                case "--drop-rate": profile.setDropRate(Double.parseDouble(value)); i++; break;
+                case "--bandwidth": profile.setBandwidthBytesPerSecond(Long.parseLong(value)); i++; break;
+                case "--cold": cold = true; break;
+                case "--format": cbor = parseFormat(value); i++; break;
+                case "--serve": servePort = Integer.parseInt(value); i++; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        try (ReplayServer server = new ReplayServer(profile)) {
+            server.getDispatcher().setCborEnabled(cbor);
+            if (servePort >= 0) {
+                server.start(servePort);
+                System.out.println("Serving recordings at " + server.baseUrl("/") + " with " + profile);
+                Thread.currentThread().join();
+                return;
+            }
+
+            server.start(0);
+            rateLink(profile);
+            System.out.println("Profile: " + profile);
+            System.out.println("Link estimate: " + NetworkQualityEstimator.getQuality());
+            System.out.println("Format: " + (cbor ? "cbor" : "json"));
+            System.out.println("Iterations: " + iterations + " (+" + warmup + " warmup)"
+                    + (cold ? ", cold connections" : ""));
+            System.out.println();
+            System.out.println(String.format(Locale.ROOT, "%-22s %8s %8s %8s %8s %8s %8s %9s %6s",
+                    "scenario", "ttfd p50", "p95", "p99", "total p50", "p95", "p99", "req/run", "ok"));
+
+            for (Scenario scenario : Scenarios.all()) {
+                if (only != null && !only.equals(scenario.getName())) {
+                    continue;
+                }
+                report(scenario, server, iterations, warmup, cold);
+            }
+        }
+    }
+
+    private static void report(Scenario scenario, ReplayServer server, int iterations, int warmup,
+                               boolean cold) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            runOnce(scenario, server, cold);
+        }
+
+        ReplayDispatcher dispatcher = server.getDispatcher();
+        dispatcher.resetCounts();
+        List<Long> firstData = new ArrayList<>(iterations);
+        long[] totals = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            Scenario.Probe probe = runOnce(scenario, server, cold);
+            totals[i] = probe.elapsedNanos();
+            if (probe.hasData()) {
+                firstData.add(probe.timeToFirstDataNanos());
+            }
+        }
+
+        long[] ttfd = new long[firstData.size()];
+        for (int i = 0; i < ttfd.length; i++) {
+            ttfd[i] = firstData.get(i);
+        }
+        Arrays.sort(ttfd);
+        Arrays.sort(totals);
+        System.out.println(String.format(Locale.ROOT,
+                "%-22s %8s %8s %8s %8s %8s %8s %9.1f %3d/%-3d",
+                scenario.getName(),
+                millis(ttfd, 0.50), millis(ttfd, 0.95), millis(ttfd, 0.99),
+                millis(totals, 0.50), millis(totals, 0.95), millis(totals, 0.99),
+                dispatcher.requestCount() / (double) iterations,
+                ttfd.length, iterations));
+        Map<String, Long> bytesByPath = dispatcher.bytesByPath();
+        for (Map.Entry<String, Integer> entry : dispatcher.requestsByPath().entrySet()) {
+            Long bytes = bytesByPath.get(entry.getKey());
+            System.out.println(String.format(Locale.ROOT, "    %-50s %6d %10d B", entry.getKey(), entry.getValue(),
+                    bytes != null ? bytes : 0));
+        }
+    }
+
+    private static Scenario.Probe runOnce(Scenario scenario, ReplayServer server, boolean cold)
+            throws Exception {
+        if (cold) {
+            server.evictConnections();
+        }
+        rateLink(server.getDispatcher().getProfile());
+        Scenario.Probe probe = new Scenario.Probe();
+        try {
+            scenario.run(server, probe);
+        } catch (IOException e) {
+            // A dropped or failed request that the app would surface as an error
+        }
+        return probe;
+    }
+
+    /**
+     * Give NetworkQualityEstimator what the app would measure on this link: the profile's
+     * latency as the handshake RTT and its bandwidth on a large body. Replay connections
+     * are local, so their own handshakes say nothing about the profile. Repeated before
+     * every run, so the estimate doesn't expire during a long run.
+     */
+    private static void rateLink(ReplayProfile profile) {
+        long bytes = 64 * 1024;
+        long bandwidth = profile.getBandwidthBytesPerSecond();
+        for (int i = 0; i < 3; i++) {
+            NetworkQualityEstimator.onCall(profile.getLatencyMs(), bandwidth > 0 ? bytes : 0,
+                    bandwidth > 0 ? Math.max(1, bytes * 1000 / bandwidth) : -1);
+        }
+    }
+
+    private static boolean parseFormat(String format) {
+        if ("cbor".equals(format)) {
+            return true;
+        }
+        if ("json".equals(format)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unknown format: " + format);
+    }
+
+    /**
+     * Nearest-rank percentile of sorted nanosecond samples, in milliseconds
+     */
+    private static String millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length) - 1;
+        long nanos = sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+}
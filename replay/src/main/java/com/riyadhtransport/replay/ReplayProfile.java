@@ -0,0 +1,98 @@
+package com.riyadhtransport.replay;
+
+/**
+ * Network conditions applied to every replayed response.
+ * Latency is added before the response headers, with uniform jitter either side;
+ * the error rate answers with HTTP 503, the drop rate closes the connection without
+ * a response, and a non-zero bandwidth throttles the body.
+ */
+public class ReplayProfile {
+    private final String name;
+    private long latencyMs;
+    private long jitterMs;
+    private double errorRate;
+    private double dropRate;
+    // Bytes per second for response bodies, 0 for unthrottled
+    private long bandwidthBytesPerSecond;
+
+    public ReplayProfile(String name, long latencyMs, long jitterMs, double errorRate,
+                         double dropRate, long bandwidthBytesPerSecond) {
+        this.name = name;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.dropRate = dropRate;
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+    }
+
+    /**
+     * Preset by name: "local", "wifi", "4g", "3g" or "flaky"
+     */
+    public static ReplayProfile named(String name) {
+        switch (name) {
+            case "local":
+                return new ReplayProfile(name, 0, 0, 0, 0, 0);
+            case "wifi":
+                return new ReplayProfile(name, 30, 10, 0, 0, 2_500_000);
+            case "4g":
+                return new ReplayProfile(name, 80, 30, 0.005, 0, 1_000_000);
+            case "3g":
+                return new ReplayProfile(name, 250, 100, 0.02, 0.005, 100_000);
+            case "flaky":
+                return new ReplayProfile(name, 150, 150, 0.15, 0.05, 250_000);
+            default:
+                throw new IllegalArgumentException("Unknown profile: " + name);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getLatencyMs() {
+        return latencyMs;
+    }
+
+    public void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    public long getJitterMs() {
+        return jitterMs;
+    }
+
+    public void setJitterMs(long jitterMs) {
+        this.jitterMs = jitterMs;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public double getDropRate() {
+        return dropRate;
+    }
+
+    public void setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    public long getBandwidthBytesPerSecond() {
+        return bandwidthBytesPerSecond;
+    }
+
+    public void setBandwidthBytesPerSecond(long bandwidthBytesPerSecond) {
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (latency " + latencyMs + "+/-" + jitterMs + " ms, errors "
+                + errorRate + ", drops " + dropRate + ", bandwidth "
+                + (bandwidthBytesPerSecond > 0 ? bandwidthBytesPerSecond + " B/s" : "unlimited") + ")";
+    }
+}
@@ -0,0 +1,125 @@
+package com.riyadhtransport.replay;
+
+import com.riyadhtransport.api.AppWriteApiService;
+import com.riyadhtransport.api.CborConverterFactory;
+import com.riyadhtransport.api.NominatimService;
+import com.riyadhtransport.api.RptStationService;
+import com.riyadhtransport.api.TransportApiService;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Local stand-in for the backend, RPT, AppWrite and Nominatim, replaying recorded
+ * responses on one port. The backend is served from the root and the other services
+ * under their own path prefix, so each gets its own Retrofit base URL as in the app.
+ */
+public class ReplayServer implements Closeable {
+    public static final String RPT_PREFIX = "/rpt/";
+    public static final String APPWRITE_PREFIX = "/appwrite/v1/";
+    public static final String NOMINATIM_PREFIX = "/nominatim/";
+
+    public static final String APPWRITE_DATABASE_ID = "replay";
+    public static final String APPWRITE_COLLECTION_ID = "emptt";
+    public static final String APPWRITE_PROJECT_ID = "replay";
+
+    private static final long SEED = 20250131L;
+
+    private final MockWebServer server = new MockWebServer();
+    private final ReplayDispatcher dispatcher;
+    private OkHttpClient client;
+
+    public ReplayServer(ReplayProfile profile) {
+        dispatcher = new ReplayDispatcher(profile, SEED);
+        recordAll(dispatcher);
+        server.setDispatcher(dispatcher);
+    }
+
+    /**
+     * Start on the given port, or any free port when 0
+     */
+    public void start(int port) throws IOException {
+        server.start(port);
+        // Same timeouts as the app's backend client; one client so connections are pooled
+        client = new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public ReplayDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public String baseUrl(String prefix) {
+        return server.url(prefix).toString();
+    }
+
+    public TransportApiService transportApi() {
+        return create(TransportApiService.class, "/");
+    }
+
+    public RptStationService rptService() {
+        return create(RptStationService.class, RPT_PREFIX);
+    }
+
+    public AppWriteApiService appWriteService() {
+        return create(AppWriteApiService.class, APPWRITE_PREFIX);
+    }
+
+    public NominatimService nominatimService() {
+        return create(NominatimService.class, NOMINATIM_PREFIX);
+    }
+
+    /**
+     * Drop pooled connections so the next scenario run pays for connection setup again
+     */
+    public void evictConnections() {
+        client.connectionPool().evictAll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (client != null) {
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+        }
+        server.shutdown();
+    }
+
+    private <T> T create(Class<T> service, String prefix) {
+        return new Retrofit.Builder()
+                .baseUrl(baseUrl(prefix))
+                .client(client)
+                // As in the app's backend client, so CBOR responses are decoded the same way
+                .addConverterFactory(CborConverterFactory.create())
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(service);
+    }
+
+    private static void recordAll(ReplayDispatcher dispatcher) {
+        // Backend
+        dispatcher.record("/api/stations", "fixtures/stations.json");
+        dispatcher.record("/metro_arrivals", "fixtures/metro_arrivals.json");
+        dispatcher.record("/bus_arrivals", "replay/bus_arrivals.json");
+        dispatcher.record("/route_from_coords", "replay/route_from_coords.json");
+        dispatcher.record("/mtrlines", "replay/mtrlines.json");
+        dispatcher.record("/buslines", "replay/buslines.json");
+        dispatcher.record("/viewmtr", "replay/viewmtr.json");
+        dispatcher.record("/viewbus", "fixtures/viewbus.json");
+        dispatcher.record("/giveMeId", "replay/giveMeId.json");
+        dispatcher.record("/refineTerminus", "replay/refineTerminus.json");
+
+        // RPT, AppWrite and Nominatim
+        dispatcher.record(RPT_PREFIX + "en/web/guest/stationdetails", "fixtures/rpt_departures.json");
+        dispatcher.record(APPWRITE_PREFIX + "databases/" + APPWRITE_DATABASE_ID + "/collections/"
+                + APPWRITE_COLLECTION_ID + "/documents", "fixtures/alerts.json");
+        dispatcher.record(NOMINATIM_PREFIX + "search", "replay/nominatim.json");
+    }
+}
@@ -0,0 +1,41 @@
+package com.riyadhtransport.replay;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One user-visible flow replayed against the {@link ReplayServer}
+ */
+public interface Scenario {
+
+    String getName();
+
+    /**
+     * Run the flow once, blocking until all of its requests have finished.
+     * Call {@link Probe#firstData()} when the screen would first have data to show.
+     */
+    void run(ReplayServer server, Probe probe) throws Exception;
+
+    /**
+     * Timestamps for one run. Only the first {@link #firstData()} call counts.
+     */
+    class Probe {
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong firstDataNanos = new AtomicLong();
+
+        public void firstData() {
+            firstDataNanos.compareAndSet(0, System.nanoTime());
+        }
+
+        boolean hasData() {
+            return firstDataNanos.get() != 0;
+        }
+
+        long timeToFirstDataNanos() {
+            return firstDataNanos.get() - startNanos;
+        }
+
+        long elapsedNanos() {
+            return System.nanoTime() - startNanos;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.riyadhtransport.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.riyadhtransport.api.ApiFutures;
+import com.riyadhtransport.api.AppWriteQuery;
+import com.riyadhtransport.api.CircuitBreaker;
+import com.riyadhtransport.api.Deadline;
+import com.riyadhtransport.api.RequestScheduler;
+import com.riyadhtransport.api.RetryPolicy;
+import com.riyadhtransport.api.TransportApiService;
+import com.riyadhtransport.models.Arrival;
+import com.riyadhtransport.models.LineAlert;
+import com.riyadhtransport.models.NominatimResult;
+import com.riyadhtransport.models.RefinedTerminusResponse;
+import com.riyadhtransport.models.Route;
+import com.riyadhtransport.models.RouteSegment;
+import com.riyadhtransport.models.StationDeparture;
+import com.riyadhtransport.models.StationIdResponse;
+import com.riyadhtransport.utils.ArrivalTimeFormatter;
+import com.riyadhtransport.utils.JourneyTimeline;
+import com.riyadhtransport.utils.LineRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * The app's network flows, issuing the same requests in the same order and with the
+ * same concurrency as the code they mirror. The managers and fragments need an Android
+ * Context and post to the main thread, so the sequences are repeated here on top of the
+ * shared service interfaces; keep them in step when the app's call pattern changes.
+ * Calls go through the same {@link RequestScheduler}, and arrivals use the same
+ * deadlines, retries and circuit breakers, so a slow or flaky profile is met the way
+ * the app meets it.
+ */
+public class Scenarios {
+    private static final Gson gson = new Gson();
+    private static final String RPT_STATION_FIELD =
+            "_com_rcrc_stations_RcrcStationDetailsPortlet_INSTANCE_53WVbOYPfpUF_busStopId";
+
+    // As LiveArrivalManager: 5 s per lookup, 2 s per primary attempt once sent, 2 s kept
+    // for the fallback, and breakers that live as long as the process
+    private static final long ARRIVALS_DEADLINE_MS = 5000;
+    private static final long PRIMARY_ATTEMPT_MS = 2000;
+    private static final long FALLBACK_RESERVE_MS = 2000;
+    private static final CircuitBreaker METRO_BREAKER = new CircuitBreaker("metro_arrivals", 3, 1500, 30000);
+    private static final CircuitBreaker BUS_BREAKER = new CircuitBreaker("bus_arrivals", 3, 1500, 30000);
+
+    // As AsyncApi
+    private static final RetryPolicy retryPolicy = new RetryPolicy(3, 200, 1000, 0.1, 10);
+    private static final Executor callbacks = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "replay-callback");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static List<Scenario> all() {
+        return Arrays.asList(
+                new ArrivalsScenario("arrivals-metro", "King Abdullah Financial District", "metro", "Blue Line"),
+                new ArrivalsScenario("arrivals-bus-fallback", "Al Batha St 12", "bus", "150"),
+                new LinesScenario(),
+                new RouteScenario(),
+                new AlertsScenario(),
+                new PlaceSearchScenario());
+    }
+
+    /**
+     * LiveArrivalManager.getLiveArrivals: primary arrivals endpoint, then
+     * giveMeId, RPT departures and refineTerminus when it has nothing
+     */
+    static class ArrivalsScenario implements Scenario {
+        private final String name;
+        private final String station;
+        private final String segmentType;
+        private final String line;
+
+        ArrivalsScenario(String name, String station, String segmentType, String line) {
+            this.name = name;
+            this.station = station;
+            this.segmentType = segmentType;
+            this.line = line;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void run(ReplayServer server, Probe probe) throws IOException {
+            if (fetchArrivals(server, station, segmentType, line) != null) {
+                probe.firstData();
+            }
+        }
+    }
+
+    /**
+     * LinesFragment.fetchLinesFromApi: metro lines, then bus lines, then a summary
+     * request per line as a background prefetch, so the scheduler runs at most two at
+     * a time (fewer on a slow link); the list is shown once every summary is back
+     */
+    static class LinesScenario implements Scenario {
+        @Override
+        public String getName() {
+            return "lines-fanout";
+        }
+
+        @Override
+        public void run(ReplayServer server, Probe probe) throws Exception {
+            TransportApiService api = server.transportApi();
+            List<String[]> lines = new ArrayList<>();
+
+            Response<JsonObject> metro = api.getMetroLines().execute();
+            if (!metro.isSuccessful() || metro.body() == null) {
+                return;
+            }
+            for (String id : metro.body().get("lines").getAsString().split(",")) {
+                lines.add(new String[] {id, "metro"});
+            }
+            try {
+                Response<JsonObject> bus = api.getBusLines().execute();
+                if (bus.isSuccessful() && bus.body() != null) {
+                    for (String id : bus.body().get("lines").getAsString().split(",")) {
+                        lines.add(new String[] {id, "bus"});
+                    }
+                }
+            } catch (IOException e) {
+                // The fragment carries on with metro lines only
+            }
+
+            CountDownLatch remaining = new CountDownLatch(lines.size());
+            Callback<JsonObject> countDown = new Callback<JsonObject>() {
+                @Override
+                public void onResponse(Call<JsonObject> call, Response<JsonObject> response) {
+                    remaining.countDown();
+                }
+
+                @Override
+                public void onFailure(Call<JsonObject> call, Throwable t) {
+                    remaining.countDown();
+                }
+            };
+            for (String[] line : lines) {
+                JsonObject requestBody = new JsonObject();
+                requestBody.addProperty("line", line[0]);
+                Call<JsonObject> summary = "metro".equals(line[1])
+                        ? api.viewMetro(requestBody) : api.viewBus(requestBody);
+                RequestScheduler.schedule(summary, RequestScheduler.Priority.BACKGROUND_PREFETCH)
+                        .enqueue(countDown);
+            }
+            remaining.await(2, TimeUnit.MINUTES);
+            probe.firstData();
+        }
+    }
+
+    /**
+     * RouteFragment route search, then JourneyTimeCalculator fetching live arrivals
+     * for every transit segment in parallel. The route is drawn as soon as it arrives.
+     */
+    static class RouteScenario implements Scenario {
+        private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "replay-route");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        @Override
+        public String getName() {
+            return "route-search";
+        }
+
+        @Override
+        public void run(ReplayServer server, Probe probe) throws Exception {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("start_lat", 24.6877);
+            requestBody.put("start_lng", 46.6857);
+            requestBody.put("end_lat", 24.7612);
+            requestBody.put("end_lng", 46.6404);
+
+            Response<Map<String, Object>> response =
+                    server.transportApi().findRouteFromCoordinates(requestBody).execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                return;
+            }
+            List<?> routes = (List<?>) response.body().get("routes");
+            if (routes == null || routes.isEmpty()) {
+                return;
+            }
+            Route route = gson.fromJson(gson.toJson(routes.get(0)), Route.class);
+            probe.firstData();
+
+            List<RouteSegment> segments = route.getSegments();
+            List<Future<List<Arrival>>> fetches = new ArrayList<>(segments.size());
+            for (RouteSegment segment : segments) {
+                String station = JourneyTimeline.boardingStation(segment);
+                if ((segment.isBus() || segment.isMetro()) && station != null) {
+                    fetches.add(executor.submit(() ->
+                            fetchArrivals(server, station, segment.getType(), segment.getLine())));
+                } else {
+                    fetches.add(null);
+                }
+            }
+
+            List<List<Arrival>> arrivalsPerSegment = new ArrayList<>(segments.size());
+            for (Future<List<Arrival>> fetch : fetches) {
+                List<Arrival> arrivals = null;
+                if (fetch != null) {
+                    try {
+                        arrivals = fetch.get();
+                    } catch (Exception e) {
+                        // The segment falls back to its static time
+                    }
+                }
+                arrivalsPerSegment.add(arrivals);
+            }
+            JourneyTimeline.compute(segments, arrivalsPerSegment);
+        }
+    }
+
+    /**
+     * AlertsSync's first sync of the alerts collection from AppWrite, one page
+     */
+    static class AlertsScenario implements Scenario {
+        @Override
+        public String getName() {
+            return "alerts";
+        }
+
+        @Override
+        public void run(ReplayServer server, Probe probe) throws IOException {
+            Response<Map<String, Object>> response = server.appWriteService().listDocuments(
+                    ReplayServer.APPWRITE_DATABASE_ID,
+                    ReplayServer.APPWRITE_COLLECTION_ID,
+                    ReplayServer.APPWRITE_PROJECT_ID,
+                    Arrays.asList(AppWriteQuery.orderAsc("$updatedAt"),
+                            AppWriteQuery.limit(AppWriteQuery.MAX_LIMIT))).execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                return;
+            }
+            List<LineAlert> alerts = new ArrayList<>();
+            Object documents = response.body().get("documents");
+            if (documents instanceof List) {
+                for (Object document : (List<?>) documents) {
+                    if (document instanceof Map) {
+                        Map<?, ?> doc = (Map<?, ?>) document;
+                        Object title = doc.get("title");
+                        Object message = doc.get("message");
+                        Object createdAt = doc.get("$createdAt");
+                        if (title != null) {
+                            alerts.add(new LineAlert(title.toString(),
+                                    message != null ? message.toString() : "",
+                                    createdAt != null ? createdAt.toString() : ""));
+                        }
+                    }
+                }
+            }
+            probe.firstData();
+        }
+    }
+
+    /**
+     * SearchLocationActivity's Nominatim place search
+     */
+    static class PlaceSearchScenario implements Scenario {
+        @Override
+        public String getName() {
+            return "place-search";
+        }
+
+        @Override
+        public void run(ReplayServer server, Probe probe) throws IOException {
+            Response<List<NominatimResult>> response = server.nominatimService().search(
+                    "Kingdom Centre, Riyadh", "json", 10, 1, "46.5,24.5,47.0,25.0", "en").execute();
+            if (response.isSuccessful() && response.body() != null) {
+                probe.firstData();
+            }
+        }
+    }
+
+    /**
+     * Arrivals for a station, or null where LiveArrivalManager would report an error
+     */
+    static List<Arrival> fetchArrivals(ReplayServer server, String station, String segmentType,
+                                       String line) {
+        try {
+            return liveArrivals(server, station, segmentType, line).join();
+        } catch (CompletionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * LiveArrivalManager.liveArrivals: the primary endpoint unless its breaker is open,
+     * then giveMeId, RPT departures and refineTerminus when it fails or has nothing
+     */
+    private static CompletableFuture<List<Arrival>> liveArrivals(ReplayServer server, String station,
+                                                                 String segmentType, String line) {
+        Deadline deadline = Deadline.after(ARRIVALS_DEADLINE_MS);
+        boolean metro = "metro".equalsIgnoreCase(segmentType);
+        CircuitBreaker breaker = metro ? METRO_BREAKER : BUS_BREAKER;
+        if (!breaker.tryAcquire()) {
+            return fallbackArrivals(server, station, line, deadline);
+        }
+
+        TransportApiService api = server.transportApi();
+        Map<String, String> request = new HashMap<>();
+        request.put("station_name", station);
+        Call<Map<String, Object>> call = metro ? api.getMetroArrivals(request) : api.getBusArrivals(request);
+        CompletableFuture<Map<String, Object>> primary = body(breaker.monitor(call),
+                RequestScheduler.Priority.VISIBLE_REFRESH, PRIMARY_ATTEMPT_MS,
+                deadline.leaving(FALLBACK_RESERVE_MS));
+        primary.whenComplete((body, error) -> breaker.release());
+
+        return ApiFutures.compose(ApiFutures.recover(primary, error -> null), body -> {
+            if (body != null && body.containsKey("arrivals")) {
+                List<Arrival> arrivals = gson.fromJson(gson.toJson(body.get("arrivals")),
+                        new TypeToken<List<Arrival>>(){}.getType());
+                if (arrivals != null && !arrivals.isEmpty()) {
+                    return CompletableFuture.completedFuture(arrivals);
+                }
+            }
+            return fallbackArrivals(server, station, line, deadline);
+        });
+    }
+
+    /**
+     * Fallback: station ID, RPT departures, refined terminus, on the lookup's deadline
+     */
+    private static CompletableFuture<List<Arrival>> fallbackArrivals(ReplayServer server, String station,
+                                                                     String line, Deadline deadline) {
+        TransportApiService api = server.transportApi();
+        Map<String, String> request = new HashMap<>();
+        request.put("station_name", station);
+        CompletableFuture<List<StationDeparture>> all = ApiFutures.compose(
+                body(api.getStationId(request), deadline), idBody -> {
+                    StationIdResponse ids = gson.fromJson(gson.toJson(idBody), StationIdResponse.class);
+                    if (ids.getMatches() == null || ids.getMatches().isEmpty()) {
+                        throw new IllegalStateException("No station matches found");
+                    }
+                    Map<String, String> fields = new HashMap<>();
+                    fields.put(RPT_STATION_FIELD, ids.getMatches().get(0).getStationId());
+                    return body(server.rptService().getStationDepartures(fields), deadline);
+                });
+
+        String lineNumber = LineRegistry.canonicalId(line);
+        return ApiFutures.compose(all, rpt -> {
+            List<StationDeparture> departures = new ArrayList<>();
+            for (StationDeparture departure : rpt) {
+                if (lineNumber == null || lineNumber.isEmpty() || lineNumber.equals(departure.getNumber())) {
+                    departures.add(departure);
+                }
+            }
+            if (departures.isEmpty()) {
+                throw new IllegalStateException("No departures found for line " + lineNumber);
+            }
+
+            Map<String, String> terminusRequest = new HashMap<>();
+            terminusRequest.put("line_number", departures.get(0).getNumber());
+            terminusRequest.put("api_destination", departures.get(0).getDestination());
+            // Original destinations are used when refinement fails
+            CompletableFuture<String> terminus = ApiFutures.recover(
+                    ApiFutures.map(body(api.refineTerminus(terminusRequest), deadline), terminusBody ->
+                            gson.fromJson(gson.toJson(terminusBody), RefinedTerminusResponse.class)
+                                    .getRefinedTerminus()),
+                    error -> null);
+            return ApiFutures.map(terminus, refinedTerminus -> toArrivals(departures, refinedTerminus));
+        });
+    }
+
+    private static List<Arrival> toArrivals(List<StationDeparture> departures, String refinedTerminus) {
+        long now = System.currentTimeMillis();
+        List<Arrival> arrivals = new ArrayList<>(departures.size());
+        for (StationDeparture departure : departures) {
+            long departureTime = ArrivalTimeFormatter.parseIsoUtcMillis(departure.getActualDepartureTimePlanned());
+            if (departureTime == ArrivalTimeFormatter.INVALID_TIME) {
+                continue;
+            }
+            Arrival arrival = new Arrival();
+            arrival.setLine(departure.getNumber());
+            arrival.setDestination(refinedTerminus != null ? refinedTerminus : departure.getDestination());
+            arrival.setMinutesUntil(ArrivalTimeFormatter.minutesUntil(departureTime, now));
+            arrivals.add(arrival);
+        }
+        return arrivals;
+    }
+
+    private static <T> CompletableFuture<T> body(Call<T> call, Deadline deadline) {
+        return body(call, RequestScheduler.Priority.VISIBLE_REFRESH, 0, deadline);
+    }
+
+    /**
+     * AsyncApi.body: each attempt is a fresh copy of {@code call} through the scheduler,
+     * given at most {@code attemptTimeoutMs} (0 for no limit) once sent, and retried
+     * within the deadline and the retry budget
+     */
+    private static <T> CompletableFuture<T> body(Call<T> call, RequestScheduler.Priority priority,
+                                                 long attemptTimeoutMs, Deadline deadline) {
+        return retryPolicy.run(deadline, attemptDeadline -> {
+            Call<T> attempt = RequestScheduler.schedule(call.clone(), priority);
+            if (attemptTimeoutMs > 0) {
+                attempt.timeout().timeout(attemptTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            return ApiFutures.withTimeout(ApiFutures.body(attempt, callbacks),
+                    attemptDeadline.remainingMs(), TimeUnit.MILLISECONDS);
+        });
+    }
+}